@@ -0,0 +1,342 @@
+package controlling;
+
+import static utils.MyLogger.getLogger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import rdeapprox.FieldStatistics;
+import rdeapprox.RDESolver;
+
+/**
+ * <p>
+ * A small HTTP server on <i>localhost</i> which monitors and steers the
+ * calculation of a <code>{@link RDEController}</code> while it runs, i.e.
+ * with <code>curl localhost:8080/status</code>:
+ * <ul>
+ * <li><i>/status</i>: time steps, simulated time, throughput, the extrema
+ * and means of all variables and the number of excited grid points, see
+ * <code>{@link FieldStatistics}</code>. The statistics are calculated by
+ * the solver every <i>interval</i> time steps, so the status never needs
+ * another pass over the grid,</li>
+ * <li><i>/pause</i>, <i>/resume</i>, <i>/step?n=100</i> and <i>/stop</i>,
+ * see <code>{@link RunControl}</code>. They change the calculation and are
+ * only accepted as <i>POST</i>, i.e. <code>curl -X POST
+ * localhost:8080/stop</code>, so a web page in a browser cannot stop a run
+ * with a link or an image,</li>
+ * <li><i>/snapshot?field=0</i>: the values of a variable, one row of the
+ * grid per line.</li>
+ * </ul>
+ * The values are read by the thread of the calculation between two chunks
+ * of time steps, see <code>{@link RunControl#execute(Callable)}</code>, so
+ * they are consistent and the calculation is not slowed down between the
+ * requests. While no calculation is running they are answered with
+ * <i>503</i>.
+ *
+ * @author Mario Krapp
+ */
+public class ControlServer {
+
+	private static Logger logger = getLogger(ControlServer.class
+			.getSimpleName(), Level.ALL);
+
+	/**
+	 * The longest time in seconds a request waits for the calculation.
+	 */
+	private static final int TIMEOUT = 10;
+
+	private final RDEController rc;
+
+	private final HttpServer server;
+
+	private final ExecutorService executor = Executors
+			.newSingleThreadExecutor();
+
+	private final long startNanos = System.nanoTime();
+
+	private final long startStep;
+
+	private long lastNanos = startNanos;
+
+	private long lastStep;
+
+	/**
+	 * The statistics of the status, see
+	 * <code>{@link ControlServer#statistics(RDESolver)}</code>.
+	 */
+	private String statistics = "";
+
+	/**
+	 * Updates the statistics in the thread of the calculation.
+	 */
+	private final StepObserver observer = new StepObserver() {
+		public void observe(RDEController r, long step) {
+			statistics = statistics(r.getRde());
+		}
+	};
+
+	/**
+	 * Creates a new <code>{@link ControlServer}</code> object and registers
+	 * it at the controller.
+	 *
+	 * @param rc
+	 *                the controlled calculation.
+	 * @param port
+	 *                the port on <i>localhost</i>.
+	 * @param interval
+	 *                the number of time steps between two updates of the
+	 *                statistics.
+	 */
+	public ControlServer(RDEController rc, int port, long interval)
+			throws IOException {
+		this.rc = rc;
+		startStep = lastStep = rc.getStepCount();
+		rc.addObserver(observer, interval, interval, true);
+		server = HttpServer.create(new InetSocketAddress(InetAddress
+				.getLoopbackAddress(), port), 0);
+		server.setExecutor(executor);
+		server.createContext("/status", new HttpHandler() {
+			public void handle(HttpExchange e) throws IOException {
+				reply(e, read(new Callable<String>() {
+					public String call() {
+						return status();
+					}
+				}));
+			}
+		});
+		server.createContext("/snapshot", new HttpHandler() {
+			public void handle(HttpExchange e) throws IOException {
+				final int field = parameter(e, "field", 0);
+				if (field < 0
+						|| field >= ControlServer.this.rc.getRde().getModel()
+								.getFieldCount()) {
+					send(e, 404, "Unknown field " + field + "\n");
+					return;
+				}
+				e.getResponseHeaders().set("Content-Disposition",
+						"attachment; filename=\"snapshot." + field + ".dat\"");
+				reply(e, read(new Callable<String>() {
+					public String call() {
+						return snapshot(field);
+					}
+				}));
+			}
+		});
+		server.createContext("/pause", new HttpHandler() {
+			public void handle(HttpExchange e) throws IOException {
+				if (!isPost(e)) {
+					return;
+				}
+				ControlServer.this.rc.getRunControl().pause();
+				reply(e, "paused\n");
+			}
+		});
+		server.createContext("/resume", new HttpHandler() {
+			public void handle(HttpExchange e) throws IOException {
+				if (!isPost(e)) {
+					return;
+				}
+				ControlServer.this.rc.getRunControl().resume();
+				reply(e, "resumed\n");
+			}
+		});
+		server.createContext("/step", new HttpHandler() {
+			public void handle(HttpExchange e) throws IOException {
+				if (!isPost(e)) {
+					return;
+				}
+				int n = parameter(e, "n", 1);
+				if (n < 1) {
+					send(e, 400, "Invalid number of steps\n");
+					return;
+				}
+				ControlServer.this.rc.getRunControl().step(n);
+				reply(e, "stepping " + n + "\n");
+			}
+		});
+		server.createContext("/stop", new HttpHandler() {
+			public void handle(HttpExchange e) throws IOException {
+				if (!isPost(e)) {
+					return;
+				}
+				ControlServer.this.rc.getRunControl().stop();
+				reply(e, "stopped\n");
+			}
+		});
+	}
+
+	/**
+	 * Starts the server in a background thread.
+	 */
+	public void start() {
+		server.start();
+		logger.info("Control server on http://localhost:"
+				+ server.getAddress().getPort() + "/status");
+	}
+
+	/**
+	 * Stops the server and removes it from the controller.
+	 */
+	public void stop() {
+		server.stop(0);
+		executor.shutdown();
+		rc.removeObserver(observer);
+	}
+
+	/**
+	 * @return the port, i.e. if the server was created with port <b>0</b>.
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * @return the status, one <i>key=value</i> per line.
+	 */
+	private String status() {
+		RDESolver rde = rc.getRde();
+		long now = System.nanoTime();
+		long step = rc.getStepCount();
+		int cells = rde.getGeometry().getCellCount();
+		double rate = (step - lastStep) * 1e9 / Math.max(1, now - lastNanos);
+		double average = (step - startStep) * 1e9
+				/ Math.max(1, now - startNanos);
+		lastNanos = now;
+		lastStep = step;
+		StringBuilder sb = new StringBuilder();
+		sb.append("model=" + rde.getModel().getClass().getSimpleName() + "\n");
+		sb.append("step=" + step + "\n");
+		sb.append("time=" + rc.getTimeElapsed() + "\n");
+		sb.append("steps_per_second=" + rate + "\n");
+		sb.append("average_steps_per_second=" + average + "\n");
+		sb.append("cells_per_second=" + rate * cells + "\n");
+		sb.append("paused=" + rc.getRunControl().isPaused() + "\n");
+		sb.append("stopped=" + rc.getRunControl().isStopped() + "\n");
+		sb.append(statistics);
+		return sb.toString();
+	}
+
+	/**
+	 * @return the statistics which were calculated inside the last time
+	 *         step, one <i>key=value</i> per line.
+	 */
+	private static String statistics(RDESolver rde) {
+		FieldStatistics stats = rde.getStatistics();
+		StringBuilder sb = new StringBuilder();
+		sb.append("statistics_step=" + stats.getStep() + "\n");
+		for (int f = 0; f < rde.getModel().getFieldCount(); f++) {
+			sb.append("min." + f + "=" + stats.getMin(f) + "\n");
+			sb.append("max." + f + "=" + stats.getMax(f) + "\n");
+			sb.append("mean." + f + "=" + stats.getMean(f) + "\n");
+		}
+		sb.append("excited=" + stats.getCountAbove(0) + "\n");
+		return sb.toString();
+	}
+
+	/**
+	 * @return the values of a variable, one row of the grid per line.
+	 */
+	private String snapshot(int field) {
+		RDESolver rde = rc.getRde();
+		StringBuilder sb = new StringBuilder();
+		for (int y = 0; y < rde.getDimY(); y++) {
+			for (int x = 0; x < rde.getDimX(); x++) {
+				sb.append(rde.getValue(field, x, y) + "\t");
+			}
+			sb.append("\n");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Reads the values in the thread of the calculation.
+	 *
+	 * @return the result or <code>null</code> if the calculation is not
+	 *         running.
+	 */
+	private String read(Callable<String> task) {
+		try {
+			return rc.getRunControl().execute(task).get(TIMEOUT,
+					TimeUnit.SECONDS);
+		} catch (TimeoutException e) {
+			return null;
+		} catch (CancellationException e) {
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			logger.log(Level.WARNING, "Exception occurred", e.getCause());
+			return null;
+		}
+	}
+
+	/**
+	 * @return the value of a parameter of the query, <i>def</i> if it is
+	 *         missing or <b>-1</b> if it is not a number.
+	 */
+	private static int parameter(HttpExchange e, String key, int def) {
+		String query = e.getRequestURI().getQuery();
+		if (query != null) {
+			for (String p : query.split("&")) {
+				if (p.startsWith(key + "=")) {
+					try {
+						return Integer.parseInt(p.substring(key.length() + 1));
+					} catch (NumberFormatException ex) {
+						return -1;
+					}
+				}
+			}
+		}
+		return def;
+	}
+
+	/**
+	 * Answers requests which are not <i>POST</i> with <i>405</i>.
+	 *
+	 * @return <code>true</code> if the request is a <i>POST</i>.
+	 */
+	private static boolean isPost(HttpExchange e) throws IOException {
+		if ("POST".equals(e.getRequestMethod())) {
+			return true;
+		}
+		e.getResponseHeaders().set("Allow", "POST");
+		send(e, 405, "Use POST to change the calculation\n");
+		return false;
+	}
+
+	private static void reply(HttpExchange e, String body) throws IOException {
+		if (body == null) {
+			send(e, 503, "The calculation is not running\n");
+		} else {
+			send(e, 200, body);
+		}
+	}
+
+	private static void send(HttpExchange e, int code, String body)
+			throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		e.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		e.sendResponseHeaders(code, bytes.length);
+		OutputStream os = e.getResponseBody();
+		os.write(bytes);
+		os.close();
+	}
+
+}
@@ -0,0 +1,416 @@
+package controlling;
+
+import static utils.MyLogger.getLogger;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+import rdeapprox.FieldStatistics;
+import rdeapprox.RDESolver;
+
+/**
+ * <p>
+ * Renders frames of one variable into colormapped PNG images and an animated
+ * GIF, i.e. to show a spiral wave without dumping the grid as text. The
+ * values are copied by a <code>{@link StepObserver}</code> in the thread of
+ * the calculation into a small pool of buffers and rendered by a pool of
+ * worker threads. If all buffers are busy the frame is dropped, so rendering
+ * never stalls the calculation. The frames of the GIF are written in their
+ * order by a single thread.
+ *
+ * <p>
+ * With <i>autoscale</i> each frame is colored from its minimum to its
+ * maximum, otherwise the range grows with the extrema of all frames so far,
+ * which keeps the colors of a wave comparable. With <i>show_scales</i> a
+ * color bar with the range is drawn below each frame.
+ *
+ * @author Mario Krapp
+ */
+public class FrameRenderer implements StepObserver {
+
+	private static Logger logger = getLogger(FrameRenderer.class
+			.getSimpleName(), Level.ALL);
+
+	/**
+	 * The number of colors of the map, the last two entries of the palette
+	 * are black and white for the scale.
+	 */
+	private static final int COLORS = 254;
+
+	private static final int BLACK = 254;
+
+	private static final int WHITE = 255;
+
+	/**
+	 * The height of the color bar with its labels.
+	 */
+	private static final int SCALE = 24;
+
+	private static final IndexColorModel PALETTE = palette();
+
+	/**
+	 * Creates daemon threads, so a failed calculation does not keep the
+	 * program alive.
+	 */
+	private static final ThreadFactory DAEMONS = new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "frame renderer");
+			t.setDaemon(true);
+			return t;
+		}
+	};
+
+	private final int field;
+
+	private final int stride;
+
+	private final int width;
+
+	private final int height;
+
+	private final File folder;
+
+	private final boolean autoscale;
+
+	private final boolean showScales;
+
+	private double min = Double.POSITIVE_INFINITY;
+
+	private double max = Double.NEGATIVE_INFINITY;
+
+	private final BlockingQueue<Frame> free;
+
+	private final ExecutorService workers;
+
+	private final ExecutorService sequencer;
+
+	private ImageOutputStream gifStream;
+
+	private ImageWriter gif;
+
+	private int delay;
+
+	private int frames;
+
+	private int dropped;
+
+	/**
+	 * Creates a new <code>{@link FrameRenderer}</code> object. It has to be
+	 * registered at the controller, see
+	 * <code>{@link FrameRenderer#attach(RDEController, long)}</code>.
+	 *
+	 * @param rde
+	 *                the solver.
+	 * @param folder
+	 *                the folder of the PNG images, <code>null</code> for
+	 *                none.
+	 * @param field
+	 *                the rendered variable.
+	 * @param stride
+	 *                the distance between the rendered grid points.
+	 * @param threads
+	 *                the number of worker threads.
+	 * @param autoscale
+	 *                <code>true</code> to color each frame from its minimum
+	 *                to its maximum.
+	 * @param showScales
+	 *                <code>true</code> to draw a color bar.
+	 */
+	public FrameRenderer(RDESolver rde, File folder, int field, int stride,
+			int threads, boolean autoscale, boolean showScales) {
+		if (stride < 1 || threads < 1) {
+			throw new IllegalArgumentException("Invalid stride " + stride
+					+ " or threads " + threads);
+		}
+		this.folder = folder;
+		this.field = field;
+		this.stride = stride;
+		this.autoscale = autoscale;
+		this.showScales = showScales;
+		width = (rde.getDimX() + stride - 1) / stride;
+		height = (rde.getDimY() + stride - 1) / stride;
+		if (folder != null) {
+			folder.mkdirs();
+		}
+		free = new ArrayBlockingQueue<Frame>(2 * threads);
+		for (int b = 0; b < 2 * threads; b++) {
+			free.add(new Frame(width * height));
+		}
+		workers = Executors.newFixedThreadPool(threads, DAEMONS);
+		sequencer = Executors.newSingleThreadExecutor(DAEMONS);
+	}
+
+	/**
+	 * Registers the renderer at a controller. The extrema of the frames are
+	 * taken from the <code>{@link FieldStatistics}</code> of the solver.
+	 *
+	 * @param rc
+	 *                the controller of the solver.
+	 * @param interval
+	 *                the number of time steps between two frames.
+	 */
+	public void attach(RDEController rc, long interval) {
+		rc.addObserver(this, interval, interval, true);
+	}
+
+	/**
+	 * Assembles the frames into an animated GIF which loops forever.
+	 *
+	 * @param file
+	 *                the GIF file.
+	 * @param fps
+	 *                the frames per second of the animation.
+	 */
+	public void writeGif(File file, double fps) throws IOException {
+		if (frames > 0 || gif != null) {
+			throw new IllegalStateException("GIF has to be set before the "
+					+ "first frame");
+		}
+		file.delete();
+		gifStream = ImageIO.createImageOutputStream(file);
+		gif = ImageIO.getImageWritersBySuffix("gif").next();
+		gif.setOutput(gifStream);
+		gif.prepareWriteSequence(null);
+		delay = Math.max(1, (int) Math.round(100 / fps));
+	}
+
+	/**
+	 * @return the number of rendered frames.
+	 */
+	public int getFrameCount() {
+		return frames;
+	}
+
+	/**
+	 * @return the number of frames which were dropped because all buffers
+	 *         were busy.
+	 */
+	public int getDropped() {
+		return dropped;
+	}
+
+	public void observe(RDEController rc, long step) {
+		Frame f = free.poll();
+		if (f == null) {
+			dropped++;
+			return;
+		}
+		RDESolver rde = rc.getRde();
+		int dimX = rde.getDimX();
+		int dimY = rde.getDimY();
+		int i = 0;
+		for (int y = 0; y < dimY; y += stride) {
+			for (int x = 0; x < dimX; x += stride) {
+				f.values[i++] = (float) rde.getValue(field, x, y);
+			}
+		}
+		FieldStatistics stats = rde.getStatistics();
+		double fmin = stats.getMin(field);
+		double fmax = stats.getMax(field);
+		if (autoscale) {
+			f.min = fmin;
+			f.max = fmax;
+		} else {
+			f.min = min = Math.min(min, fmin);
+			f.max = max = Math.max(max, fmax);
+		}
+		f.number = frames++;
+		f.time = rc.getTimeElapsed();
+		final Frame frame = f;
+		final Future<BufferedImage> image = workers
+				.submit(new Callable<BufferedImage>() {
+					public BufferedImage call() throws IOException {
+						return render(frame);
+					}
+				});
+		sequencer.execute(new Runnable() {
+			public void run() {
+				try {
+					BufferedImage img = image.get();
+					if (gif != null) {
+						gif.writeToSequence(new IIOImage(img, null,
+								metadata(img)), null);
+					}
+				} catch (ExecutionException e) {
+					logger.log(Level.WARNING, "Exception occurred", e.getCause());
+				} catch (IOException e) {
+					logger.log(Level.WARNING, "Exception occurred", e);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					free.add(frame);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Waits until all frames are rendered and closes the GIF.
+	 */
+	public void close() throws IOException {
+		workers.shutdown();
+		sequencer.shutdown();
+		try {
+			workers.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+			sequencer.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (gif != null) {
+			gif.endWriteSequence();
+			gif.dispose();
+			gifStream.close();
+		}
+		logger.info(frames + " frames rendered, " + dropped + " dropped");
+	}
+
+	/**
+	 * Colors a frame and writes it as PNG image.
+	 */
+	private BufferedImage render(Frame f) throws IOException {
+		BufferedImage img = new BufferedImage(width, height
+				+ (showScales ? SCALE : 0), BufferedImage.TYPE_BYTE_INDEXED,
+				PALETTE);
+		byte[] pixels = new byte[width];
+		double scale = f.max > f.min ? (COLORS - 1) / (f.max - f.min) : 0;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				double q = (f.values[y * width + x] - f.min) * scale;
+				// NaN is mapped to the first color
+				pixels[x] = (byte) Math.min(COLORS - 1, Math.max(0, (int) q));
+			}
+			// the first row of the grid at the bottom
+			img.getRaster().setDataElements(0, height - 1 - y, width, 1,
+					pixels);
+		}
+		if (showScales) {
+			drawScale(img, f);
+		}
+		if (folder != null) {
+			ImageIO.write(img, "png", new File(folder, String.format(
+					"frame.%06d.png", f.number)));
+		}
+		return img;
+	}
+
+	private void drawScale(BufferedImage img, Frame f) {
+		byte[] pixels = new byte[width];
+		for (int x = 0; x < width; x++) {
+			pixels[x] = (byte) (x * (COLORS - 1) / Math.max(1, width - 1));
+		}
+		for (int y = height + 2; y < height + 8; y++) {
+			img.getRaster().setDataElements(0, y, width, 1, pixels);
+		}
+		Graphics2D g = img.createGraphics();
+		g.setColor(Color.BLACK);
+		g.fillRect(0, height + 8, width, SCALE - 8);
+		g.setColor(Color.WHITE);
+		g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 10));
+		String lo = String.format("%.3g", f.min);
+		String hi = String.format("%.3g", f.max);
+		String t = String.format("t=%.1f", f.time);
+		int baseline = height + SCALE - 3;
+		g.drawString(lo, 1, baseline);
+		g.drawString(hi, width - g.getFontMetrics().stringWidth(hi) - 1,
+				baseline);
+		g.drawString(t, (width - g.getFontMetrics().stringWidth(t)) / 2,
+				baseline);
+		g.dispose();
+	}
+
+	/**
+	 * @return the metadata of a GIF frame with its delay, the first frame
+	 *         also loops the animation.
+	 */
+	private IIOMetadata metadata(BufferedImage img) throws IOException {
+		IIOMetadata meta = gif.getDefaultImageMetadata(ImageTypeSpecifier
+				.createFromRenderedImage(img), null);
+		String format = meta.getNativeMetadataFormatName();
+		IIOMetadataNode root = (IIOMetadataNode) meta.getAsTree(format);
+		IIOMetadataNode control = new IIOMetadataNode(
+				"GraphicControlExtension");
+		control.setAttribute("disposalMethod", "none");
+		control.setAttribute("userInputFlag", "FALSE");
+		control.setAttribute("transparentColorFlag", "FALSE");
+		control.setAttribute("delayTime", Integer.toString(delay));
+		control.setAttribute("transparentColorIndex", "0");
+		root.appendChild(control);
+		IIOMetadataNode apps = new IIOMetadataNode("ApplicationExtensions");
+		IIOMetadataNode loop = new IIOMetadataNode("ApplicationExtension");
+		loop.setAttribute("applicationID", "NETSCAPE");
+		loop.setAttribute("authenticationCode", "2.0");
+		loop.setUserObject(new byte[] { 1, 0, 0 });
+		apps.appendChild(loop);
+		root.appendChild(apps);
+		meta.setFromTree(format, root);
+		return meta;
+	}
+
+	/**
+	 * @return a blue to red map, followed by black and white.
+	 */
+	private static IndexColorModel palette() {
+		byte[] r = new byte[256];
+		byte[] g = new byte[256];
+		byte[] b = new byte[256];
+		for (int i = 0; i < COLORS; i++) {
+			double t = i / (double) (COLORS - 1);
+			r[i] = channel(1.5 - Math.abs(4 * t - 3));
+			g[i] = channel(1.5 - Math.abs(4 * t - 2));
+			b[i] = channel(1.5 - Math.abs(4 * t - 1));
+		}
+		r[WHITE] = g[WHITE] = b[WHITE] = (byte) 255;
+		r[BLACK] = g[BLACK] = b[BLACK] = 0;
+		return new IndexColorModel(8, 256, r, g, b);
+	}
+
+	private static byte channel(double c) {
+		return (byte) Math.round(255 * Math.min(1, Math.max(0, c)));
+	}
+
+	/**
+	 * A pooled frame buffer.
+	 */
+	private static class Frame {
+
+		private final float[] values;
+
+		private int number;
+
+		private double time;
+
+		private double min;
+
+		private double max;
+
+		Frame(int size) {
+			values = new float[size];
+		}
+
+	}
+
+}
@@ -0,0 +1,222 @@
+package controlling;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import rdeapprox.RDESolver;
+
+/**
+ * <p>
+ * Exports frames of one variable into a memory-mapped file, i.e. for
+ * visualization or analysis processes on the same machine. The file is a
+ * ring of <i>slots</i> frames which other processes map and read without
+ * copies and without any coordination with the calculation. All numbers are
+ * little-endian.
+ *
+ * <pre>
+ * header, 64 bytes:
+ *   0  int    0x52444552 (&quot;RDER&quot;)
+ *   4  int    version 1
+ *   8  int    number of slots
+ *  12  int    width
+ *  16  int    height
+ *  20  int    size of a slot in bytes
+ *  24  long   sequence number of the latest complete frame, -1 if none
+ * slot s at 64 + s * size of a slot:
+ *   0  long   sequence
+ *   8  long   time step
+ *  16  double simulated time
+ *  24  float[width * height] values, row by row (y)
+ * </pre>
+ *
+ * <p>
+ * Frame <i>n</i> is written into slot <i>n % slots</i> with a seqlock: the
+ * sequence of the slot is set to <i>2n+1</i> while the frame is written and
+ * to <i>2n+2</i> afterwards, then the header gets <i>n</i>. A reader takes
+ * the latest <i>n</i> from the header, reads the sequence of its slot, the
+ * frame and the sequence again. The frame is complete if both sequences are
+ * <i>2n+2</i>, otherwise the writer has overtaken the reader and it retries
+ * with the new latest frame.
+ *
+ * @author Mario Krapp
+ */
+public class FrameRing implements StepObserver {
+
+	private static final int MAGIC = 0x52444552;
+
+	private static final int HEADER = 64;
+
+	private static final int SLOT_HEADER = 24;
+
+	private static final VarHandle LONGS = MethodHandles
+			.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private final int field;
+
+	private final int stride;
+
+	private final int width;
+
+	private final int height;
+
+	private final int slots;
+
+	private final int slotSize;
+
+	private final MappedByteBuffer buffer;
+
+	private final RandomAccessFile file;
+
+	private long sequence;
+
+	/**
+	 * Creates the file of the ring.
+	 *
+	 * @param rde
+	 *                the solver.
+	 * @param file
+	 *                the file, i.e. in <i>/dev/shm</i> to keep it in memory.
+	 * @param field
+	 *                the exported variable.
+	 * @param stride
+	 *                the distance between the exported grid points.
+	 * @param slots
+	 *                the number of frames in the ring.
+	 */
+	public FrameRing(RDESolver rde, File file, int field, int stride,
+			int slots) throws IOException {
+		if (stride < 1 || slots < 1) {
+			throw new IllegalArgumentException("Invalid stride " + stride
+					+ " or number of slots " + slots);
+		}
+		this.field = field;
+		this.stride = stride;
+		this.slots = slots;
+		width = (rde.getDimX() + stride - 1) / stride;
+		height = (rde.getDimY() + stride - 1) / stride;
+		// slots aligned to cache lines
+		slotSize = (SLOT_HEADER + 4 * width * height + 63) & ~63;
+		long size = HEADER + (long) slots * slotSize;
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Ring of " + size
+					+ " bytes is too large");
+		}
+		this.file = new RandomAccessFile(file, "rw");
+		this.file.setLength(0);
+		this.file.setLength(size);
+		buffer = this.file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+				size);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, 1);
+		buffer.putInt(8, slots);
+		buffer.putInt(12, width);
+		buffer.putInt(16, height);
+		buffer.putInt(20, slotSize);
+		LONGS.setRelease(buffer, 24, -1L);
+	}
+
+	/**
+	 * Registers the ring at a controller.
+	 *
+	 * @param rc
+	 *                the controller of the solver.
+	 * @param interval
+	 *                the number of time steps between two frames.
+	 */
+	public void attach(RDEController rc, long interval) {
+		rc.addObserver(this, interval);
+	}
+
+	public void observe(RDEController rc, long step) {
+		write(rc.getRde(), step, rc.getTimeElapsed());
+	}
+
+	/**
+	 * Writes the current values as the next frame.
+	 *
+	 * @param rde
+	 *                the solver.
+	 * @param step
+	 *                the time step.
+	 * @param time
+	 *                the simulated time.
+	 */
+	public void write(RDESolver rde, long step, double time) {
+		long n = sequence++;
+		int slot = HEADER + (int) (n % slots) * slotSize;
+		LONGS.setVolatile(buffer, slot, 2 * n + 1);
+		VarHandle.storeStoreFence();
+		buffer.putLong(slot + 8, step);
+		buffer.putDouble(slot + 16, time);
+		int i = slot + SLOT_HEADER;
+		int dimX = rde.getDimX();
+		int dimY = rde.getDimY();
+		for (int y = 0; y < dimY; y += stride) {
+			for (int x = 0; x < dimX; x += stride) {
+				buffer.putFloat(i, (float) rde.getValue(field, x, y));
+				i += 4;
+			}
+		}
+		LONGS.setRelease(buffer, slot, 2 * n + 2);
+		LONGS.setRelease(buffer, 24, n);
+	}
+
+	/**
+	 * Reads the latest complete frame of a ring file, i.e. to check the
+	 * protocol from Java.
+	 *
+	 * @param ring
+	 *                the mapped ring file.
+	 * @param values
+	 *                the array for the values.
+	 * @return the time step of the frame or <b>-1</b> if there is none.
+	 */
+	public static long read(MappedByteBuffer ring, float[] values) {
+		ring.order(ByteOrder.LITTLE_ENDIAN);
+		int slots = ring.getInt(8);
+		int slotSize = ring.getInt(20);
+		while (true) {
+			long n = (long) LONGS.getAcquire(ring, 24);
+			if (n < 0) {
+				return -1;
+			}
+			int slot = HEADER + (int) (n % slots) * slotSize;
+			long s1 = (long) LONGS.getAcquire(ring, slot);
+			if (s1 != 2 * n + 2) {
+				continue;
+			}
+			long step = ring.getLong(slot + 8);
+			for (int i = 0; i < values.length; i++) {
+				values[i] = ring.getFloat(slot + SLOT_HEADER + 4 * i);
+			}
+			VarHandle.loadLoadFence();
+			long s2 = (long) LONGS.getVolatile(ring, slot);
+			if (s1 == s2) {
+				return step;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of frames which were written.
+	 */
+	public long getFrameCount() {
+		return sequence;
+	}
+
+	/**
+	 * Closes the file. The frames stay in the file.
+	 */
+	public void close() throws IOException {
+		buffer.force();
+		file.close();
+	}
+
+}
@@ -0,0 +1,349 @@
+package controlling;
+
+import static utils.MyLogger.getLogger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import rdeapprox.FieldStatistics;
+import rdeapprox.RDESolver;
+
+/**
+ * <p>
+ * Streams frames of one variable to viewers which connect to a TCP port on
+ * <i>localhost</i>, i.e. to watch a spiral wave while it is calculated. A
+ * frame is the grid downsampled by a stride and quantized to one byte per
+ * grid point. It is sent as
+ *
+ * <pre>
+ * int    0x52444546 (&quot;RDEF&quot;)
+ * int    width, height
+ * long   time step
+ * double simulated time
+ * double minimum, maximum of the quantization
+ * byte[] width * height values, row by row (y), 0 = minimum, 255 = maximum
+ * </pre>
+ *
+ * <p>
+ * The frames are created by a <code>{@link StepObserver}</code> in the
+ * thread of the calculation, at most with the target frame rate. Each viewer
+ * has a small pool of frame buffers and its own sending thread. If all
+ * buffers of a viewer are still waiting to be sent the frame is dropped for
+ * this viewer, so a slow viewer never stalls the calculation. After the
+ * buffers are allocated no frame allocates memory.
+ *
+ * @author Mario Krapp
+ */
+public class FrameStreamer implements StepObserver {
+
+	private static Logger logger = getLogger(FrameStreamer.class
+			.getSimpleName(), Level.ALL);
+
+	private static final int MAGIC = 0x52444546;
+
+	/**
+	 * The number of frame buffers of each viewer.
+	 */
+	private static final int BUFFERS = 3;
+
+	private final int field;
+
+	private final int stride;
+
+	private final int width;
+
+	private final int height;
+
+	private final long frameNanos;
+
+	private long nextFrame;
+
+	private double min;
+
+	private double max;
+
+	private boolean autoscale = true;
+
+	/**
+	 * The quantized values of the current frame.
+	 */
+	private final byte[] pixels;
+
+	private final ServerSocket server;
+
+	private final List<Viewer> viewers = new CopyOnWriteArrayList<Viewer>();
+
+	private volatile boolean closed;
+
+	private int dropped;
+
+	/**
+	 * Creates a new <code>{@link FrameStreamer}</code> object and waits for
+	 * viewers in a background thread. It has to be registered at the
+	 * controller, see
+	 * <code>{@link FrameStreamer#attach(RDEController)}</code>.
+	 *
+	 * @param rde
+	 *                the solver.
+	 * @param port
+	 *                the port on <i>localhost</i>, <b>0</b> for any free
+	 *                port.
+	 * @param field
+	 *                the streamed variable.
+	 * @param stride
+	 *                the distance between the streamed grid points.
+	 * @param fps
+	 *                the largest number of frames per second.
+	 */
+	public FrameStreamer(RDESolver rde, int port, int field, int stride,
+			double fps) throws IOException {
+		if (stride < 1 || fps <= 0) {
+			throw new IllegalArgumentException("Invalid stride " + stride
+					+ " or frame rate " + fps);
+		}
+		this.field = field;
+		this.stride = stride;
+		width = (rde.getDimX() + stride - 1) / stride;
+		height = (rde.getDimY() + stride - 1) / stride;
+		frameNanos = (long) (1e9 / fps);
+		nextFrame = System.nanoTime();
+		pixels = new byte[width * height];
+		server = new ServerSocket(port, 4, InetAddress.getLoopbackAddress());
+		Thread t = new Thread(new Runnable() {
+			public void run() {
+				accept();
+			}
+		}, "frame streamer");
+		t.setDaemon(true);
+		t.start();
+		logger.info("Streaming frames of " + width + "x" + height
+				+ " on port " + server.getLocalPort());
+	}
+
+	/**
+	 * Registers the streamer at a controller. Whether a frame is due is
+	 * checked after every time block. Without a fixed range the extrema are
+	 * taken from the <code>{@link FieldStatistics}</code> of the solver.
+	 *
+	 * @param rc
+	 *                the controller of the solver.
+	 */
+	public void attach(RDEController rc) {
+		long block = rc.getRde().getTimeBlock();
+		rc.addObserver(this, block, block, autoscale);
+	}
+
+	/**
+	 * Sets a fixed range for the quantization. By default each frame is
+	 * scaled from its minimum to its maximum. It has to be set before the
+	 * streamer is registered, see
+	 * <code>{@link FrameStreamer#attach(RDEController)}</code>.
+	 *
+	 * @param min
+	 *                the value of <b>0</b>.
+	 * @param max
+	 *                the value of <b>255</b>.
+	 */
+	public void setRange(double min, double max) {
+		this.min = min;
+		this.max = max;
+		autoscale = false;
+	}
+
+	/**
+	 * @return the port on <i>localhost</i>.
+	 */
+	public int getPort() {
+		return server.getLocalPort();
+	}
+
+	/**
+	 * @return the number of frames which were dropped for slow viewers.
+	 */
+	public int getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * Closes the port and all connections.
+	 */
+	public void close() {
+		closed = true;
+		try {
+			server.close();
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Exception occurred", e);
+		}
+		for (Viewer v : viewers) {
+			v.close();
+		}
+	}
+
+	public void observe(RDEController rc, long step) {
+		if (viewers.isEmpty()) {
+			return;
+		}
+		long now = System.nanoTime();
+		if (now < nextFrame) {
+			return;
+		}
+		nextFrame = Math.max(nextFrame + frameNanos, now);
+		quantize(rc.getRde());
+		for (Viewer v : viewers) {
+			if (!v.offer(pixels, step, rc.getTimeElapsed(), min, max)) {
+				dropped++;
+			}
+		}
+	}
+
+	private void quantize(RDESolver rde) {
+		int dimX = rde.getDimX();
+		int dimY = rde.getDimY();
+		if (autoscale) {
+			FieldStatistics stats = rde.getStatistics();
+			min = stats.getMin(field);
+			max = stats.getMax(field);
+		}
+		double scale = max > min ? 255 / (max - min) : 0;
+		int i = 0;
+		for (int y = 0; y < dimY; y += stride) {
+			for (int x = 0; x < dimX; x += stride) {
+				double q = (rde.getValue(field, x, y) - min) * scale;
+				// NaN is mapped to 0
+				pixels[i++] = (byte) Math.min(255, Math.max(0, (int) q));
+			}
+		}
+	}
+
+	private void accept() {
+		while (!closed) {
+			try {
+				Socket s = server.accept();
+				Viewer v = new Viewer(s);
+				viewers.add(v);
+				v.start();
+				logger.info("Viewer connected from " + s.getRemoteSocketAddress());
+			} catch (IOException e) {
+				if (!closed) {
+					logger.log(Level.WARNING, "Exception occurred", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * A connected viewer with its buffers and sending thread.
+	 */
+	private class Viewer implements Runnable {
+
+		private final Socket socket;
+
+		private final DataOutputStream out;
+
+		private final BlockingQueue<Frame> free = new ArrayBlockingQueue<Frame>(
+				BUFFERS);
+
+		private final BlockingQueue<Frame> queued = new ArrayBlockingQueue<Frame>(
+				BUFFERS);
+
+		Viewer(Socket socket) throws IOException {
+			this.socket = socket;
+			socket.setTcpNoDelay(true);
+			out = new DataOutputStream(new BufferedOutputStream(socket
+					.getOutputStream(), 1 << 16));
+			for (int b = 0; b < BUFFERS; b++) {
+				free.add(new Frame(width * height));
+			}
+		}
+
+		void start() {
+			Thread t = new Thread(this, "viewer " + socket.getRemoteSocketAddress());
+			t.setDaemon(true);
+			t.start();
+		}
+
+		/**
+		 * @return <code>false</code> if the frame was dropped.
+		 */
+		boolean offer(byte[] pixels, long step, double time, double min,
+				double max) {
+			Frame f = free.poll();
+			if (f == null) {
+				return false;
+			}
+			System.arraycopy(pixels, 0, f.pixels, 0, pixels.length);
+			f.step = step;
+			f.time = time;
+			f.min = min;
+			f.max = max;
+			queued.add(f);
+			return true;
+		}
+
+		public void run() {
+			try {
+				while (!closed) {
+					Frame f = queued.take();
+					out.writeInt(MAGIC);
+					out.writeInt(width);
+					out.writeInt(height);
+					out.writeLong(f.step);
+					out.writeDouble(f.time);
+					out.writeDouble(f.min);
+					out.writeDouble(f.max);
+					out.write(f.pixels);
+					out.flush();
+					free.add(f);
+				}
+			} catch (IOException e) {
+				logger.info("Viewer disconnected: " + e.getMessage());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				viewers.remove(this);
+				close();
+			}
+		}
+
+		void close() {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				logger.log(Level.WARNING, "Exception occurred", e);
+			}
+		}
+
+	}
+
+	/**
+	 * A pooled frame buffer.
+	 */
+	private static class Frame {
+
+		private final byte[] pixels;
+
+		private long step;
+
+		private double time;
+
+		private double min;
+
+		private double max;
+
+		Frame(int size) {
+			pixels = new byte[size];
+		}
+
+	}
+
+}
@@ -1,28 +1,36 @@
 package controlling;
 
 import static utils.MyLogger.getLogger;
-import static utils.Parser.getDouble;
-import static utils.PropertiesManager.loadProperties;
 
 import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import models.BeelerReuterModel;
+import models.CellParameters;
 import models.FentonKarmaModel;
 import models.FitzHughNagumoModel;
 import models.Heat;
 import models.HodgkinHuxleyModel;
 import models.KarmaModel;
+import models.MinimalModel;
 import models.MinimalModelEndo;
 import models.MinimalModelEpi;
 import models.MinimalModelEpiTWS;
 import models.MinimalModelM;
+import models.ModelSpec;
 import models.Oregonator;
 import models.RDEModel;
+import rdeapprox.CellEngine;
+import rdeapprox.FieldStatistics;
 import rdeapprox.InitCondition;
 import rdeapprox.RDESolver;
+import rdeapprox.RestingState;
+import rdeapprox.SolverConfig;
+import rdeapprox.SteadyStateCache;
 
 /**
  * 
@@ -53,7 +61,11 @@ public class RDEController {
 	 */
 	private InitCondition ic;
 
-	private Properties p;
+	/**
+	 * The parameters of the simulation, see
+	 * <code>{@link SimulationConfig}</code>.
+	 */
+	private SimulationConfig config;
 
 	/**
 	 * The simulation time elapsed since the start of the numerical
@@ -62,12 +74,24 @@ public class RDEController {
 	private double timeElapsed;
 
 	/**
-	 * A <code>boolean</code> value which defines pausing action.
+	 * Pauses, single steps and stops the calculation, see
+	 * <code>{@link RunControl}</code>.
 	 */
-	private boolean pause;
+	private final RunControl control = new RunControl();
 
 	private double timeStep;
 
+	/**
+	 * The number of time steps calculated since the start.
+	 */
+	private long stepCount;
+
+	/**
+	 * The registered observers, see
+	 * <code>{@link RDEController#addObserver(StepObserver, long)}</code>.
+	 */
+	private List<Schedule> observers = new ArrayList<Schedule>();
+
 	/**
 	 * Creates a <code>{@link RDEController}</code> object which loads the
 	 * parameters of a configuration file to
@@ -80,114 +104,308 @@ public class RDEController {
 	 * 
 	 */
 	public RDEController(String configFile, String RDEConfigFile) {
-		// Load the property file
-		p = loadProperties(configFile);
-		// Read out all properties
-		if (p.getProperty("model").equalsIgnoreCase("br")) {
+		this(configFile, SolverConfig.load(RDEConfigFile));
+	}
+
+	/**
+	 * Creates a <code>{@link RDEController}</code> object with numerical
+	 * parameters which are already loaded, i.e. changed in memory with
+	 * <code>{@link SolverConfig#with(String, String)}</code>.
+	 * 
+	 * @param configFile
+	 *                Name of configuration file.
+	 * @param config
+	 *                the numerical parameters for RDESolver
+	 */
+	public RDEController(String configFile, SolverConfig config) {
+		this(SimulationConfig.load(configFile, config));
+	}
+
+	/**
+	 * Creates a <code>{@link RDEController}</code> object with all
+	 * parameters already parsed.
+	 * 
+	 * @param config
+	 *                the parameters of the simulation and of the RDESolver.
+	 */
+	public RDEController(SimulationConfig config) {
+		this.config = config;
+		SolverConfig solver = config.getSolver();
+		String model = config.getModel();
+		// Read out all properties, the resting state is calculated from a
+		// guess
+		double[] guess = null;
+		boolean resting = true;
+		if (model.equalsIgnoreCase("br")) {
 			rde = new RDESolver(
 					new BeelerReuterModel(1.0, 0, 0, 0, 0, 0, 0, 0),
-					RDEConfigFile);
-			ic = new InitCondition(rde);
-			ic.steadyState(0, -84.57375612225653);
-			ic.steadyState(1, 0.010981968723265758);
-			ic.steadyState(2, 0.9877211754875601);
-			ic.steadyState(3, 0.9748381389815388);
-			ic.steadyState(4, 0.0029707246632091067);
-			ic.steadyState(5, 0.9999813338933937);
-			ic.steadyState(6, 0.005628650570534315);
-			ic.steadyState(7, 1.7820072156200738E-7);
-		} else if (p.getProperty("model").equalsIgnoreCase("fk")) {
-			rde = new RDESolver(new FentonKarmaModel(0.1, 0, 0), RDEConfigFile);
-			ic = new InitCondition(rde);
-			ic.steadyState(0, 0);
-			ic.steadyState(1, 1);
-			ic.steadyState(2, 1);
-		} else if (p.getProperty("model").equalsIgnoreCase("fhn")) {
-			rde = new RDESolver(new FitzHughNagumoModel(1, 0), RDEConfigFile);
-			ic = new InitCondition(rde);
-			ic.steadyState(0, 0);
-			ic.steadyState(1, 0);
-		} else if (p.getProperty("model").equalsIgnoreCase("hh")) {
+					solver);
+			guess = new double[] { -84, 0.01, 1, 1, 0, 1, 0, 1e-7 };
+		} else if (model.equalsIgnoreCase("fk")) {
+			rde = new RDESolver(new FentonKarmaModel(0.1, 0, 0), solver);
+			// the slow inward current never vanishes, so there is no
+			// resting state
+			guess = new double[] { 0, 1, 1 };
+			resting = false;
+		} else if (model.equalsIgnoreCase("fhn")) {
+			rde = new RDESolver(new FitzHughNagumoModel(1, 0), solver);
+			guess = new double[] { 0, 0 };
+		} else if (model.equalsIgnoreCase("hh")) {
 			rde = new RDESolver(new HodgkinHuxleyModel(1, 0, 0, 0),
-					RDEConfigFile);
-			ic = new InitCondition(rde);
-			ic.steadyState(0, 2.775662655567501E-4);
-			ic.steadyState(1, 0.05293421762086476);
-			ic.steadyState(2, 0.5961110463468148);
-			ic.steadyState(3, 0.3176811675797801);
-		} else if (p.getProperty("model").equalsIgnoreCase("ka")) {
-			rde = new RDESolver(new KarmaModel(1.1, 0), RDEConfigFile);
-			ic = new InitCondition(rde);
-			ic.steadyState(0, 0);
-			ic.steadyState(1, 0);
-		} else if (p.getProperty("model").equalsIgnoreCase("mm_epi")) {
+					solver);
+			guess = new double[] { 0, 0.05, 0.6, 0.3 };
+		} else if (model.equalsIgnoreCase("ka")) {
+			rde = new RDESolver(new KarmaModel(1.1, 0), solver);
+			guess = new double[] { 0, 0 };
+		} else if (model.equalsIgnoreCase("mm_epi")) {
 			rde = new RDESolver(new MinimalModelEpi(0.1171, 0, 0, 0),
-					RDEConfigFile);
-			ic = new InitCondition(rde);
-			ic.steadyState(0, 0);
-			ic.steadyState(1, 1);
-			ic.steadyState(2, 1);
-			ic.steadyState(3, 0.02155304308028087);
-		} else if (p.getProperty("model").equalsIgnoreCase("mm_endo")) {
+					solver);
+			guess = new double[] { 0, 1, 1, 0 };
+		} else if (model.equalsIgnoreCase("mm_endo")) {
 			rde = new RDESolver(new MinimalModelEndo(0.1171, 0, 0, 0),
-					RDEConfigFile);
-			ic = new InitCondition(rde);
-			ic.steadyState(0, 0);
-			ic.steadyState(1, 1);
-			ic.steadyState(2, 1);
-			ic.steadyState(3, 0.02155304308028087);
-		} else if (p.getProperty("model").equalsIgnoreCase("mm_m")) {
+					solver);
+			guess = new double[] { 0, 1, 1, 0 };
+		} else if (model.equalsIgnoreCase("mm_m")) {
 			rde = new RDESolver(new MinimalModelM(0.1171, 0, 0, 0),
-					RDEConfigFile);
-			ic = new InitCondition(rde);
-			ic.steadyState(0, 0);
-			ic.steadyState(1, 1);
-			ic.steadyState(2, 1);
-			ic.steadyState(3, 0.02155304308028087);
-		} else if (p.getProperty("model").equalsIgnoreCase("ore")) {
-			rde = new RDESolver(new Oregonator(1.0, 0), RDEConfigFile);
-			ic = new InitCondition(rde);
-			ic.steadyState(0, 0);
-			ic.steadyState(1, 0);
-		} else if (p.getProperty("model").equalsIgnoreCase("heat")) {
-			rde = new RDESolver(new Heat(1.0), RDEConfigFile);
-			ic = new InitCondition(rde);
-			ic.steadyState(0, 0);
-		} else if (p.getProperty("model").equalsIgnoreCase("tws")) {
-			rde = new RDESolver(new MinimalModelEpiTWS(0,0,0,0,0), RDEConfigFile);
-			ic = new InitCondition(rde);
-			ic.steadyState(0, 0.0);
-			ic.steadyState(1, -0.38);
-			ic.steadyState(2, 0.2);
-			ic.steadyState(3, 0.24);
-			ic.steadyState(4, -0.06);
+					solver);
+			guess = new double[] { 0, 1, 1, 0 };
+		} else if (model.equalsIgnoreCase("mm")) {
+			rde = new RDESolver(new MinimalModel(0.1171, 0, 0, 0),
+					solver);
+			transmuralLayers(rde.getModel().getCellParameters());
+			guess = new double[] { 0, 1, 1, 0 };
+		} else if (model.equalsIgnoreCase("ore")) {
+			rde = new RDESolver(new Oregonator(1.0, 0), solver);
+			guess = new double[] { 0, 0 };
+		} else if (model.equalsIgnoreCase("heat")) {
+			rde = new RDESolver(new Heat(1.0), solver);
+			guess = new double[] { 0 };
+		} else if (model.equalsIgnoreCase("tws")) {
+			rde = new RDESolver(new MinimalModelEpiTWS(0,0,0,0,0), solver);
+			// initial values of the travelling wave, not a resting state
+			guess = new double[] { 0.0, -0.38, 0.2, 0.24, -0.06 };
+			resting = false;
+		} else if (model.endsWith(".model")) {
+			ModelSpec spec = ModelSpec.load(model);
+			rde = new RDESolver(spec.compile(), solver);
+			guess = spec.getInitial().clone();
+		}
+		double[] state = resting ? RestingState.solve(rde.getModel(), guess)
+				: guess;
+		ic = new InitCondition(rde);
+		for (int f = 0; f < state.length; f++) {
+			ic.steadyState(f, state[f]);
 		}
 
 		logger.info(rde.getModel().getClass().getSimpleName() + " is set!");
+		setThreshold();
 		timeStep = rde.getDt();
+		if (config.getPrepace() > 0) {
+			prepace(config.getPrepace());
+		}
 	}
 
 	/**
-	 * Solves the PDEs for severals steps. Thereby the elapsed time is taken and
-	 * added to <code>{@link RDEController#timeElapsed}</code>. The
-	 * calculation pauses if <code>{@link RDEController#pause}</code> is set
-	 * to <code>true</code>.
+	 * Starts at all grid points from the state of a single cell which was
+	 * paced with <i>bcl</i>, <i>duration</i> and <i>strength</i>. The state
+	 * is calculated once and then loaded from the
+	 * <code>{@link SteadyStateCache}</code>.
+	 * 
+	 * @param beats
+	 *                number of stimuli.
+	 */
+	private void prepace(int beats) {
+		double[] rest = new double[rde.getModel().getFieldCount()];
+		for (int f = 0; f < rest.length; f++) {
+			rest[f] = rde.getValue(f, 0, 0);
+		}
+		double[] state = SteadyStateCache.pacedState(rde.getModel(), rest,
+				config.getBcl(), beats, config.getDuration(), config
+						.getStrength());
+		SteadyStateCache.warmStart(rde, state);
+		logger.info("Prepaced with " + beats + " beats.");
+	}
+
+	/**
+	 * Divides the grid in x-direction into an endocardial, a midmyocardial
+	 * and an epicardial layer. The widths of the first two layers are given
+	 * by the fractions <i>endo_fraction</i> and <i>m_fraction</i> of the
+	 * configuration file.
+	 * 
+	 * @param cp
+	 *                the parameters which differ from grid point to grid
+	 *                point.
+	 */
+	private void transmuralLayers(CellParameters cp) {
+		int dimX = cp.getDimX();
+		int dimY = cp.getDimY();
+		int endo = (int) (config.getEndoFraction() * dimX);
+		int m = endo + (int) (config.getMFraction() * dimX);
+		cp.setCellType(MinimalModel.ENDO, 0, endo, 0, dimY);
+		cp.setCellType(MinimalModel.M, endo, m, 0, dimY);
+		cp.setCellType(MinimalModel.EPI, m, dimX, 0, dimY);
+		logger.info("Transmural layers: " + cp.getCellCount(MinimalModel.ENDO)
+				+ " endo, " + cp.getCellCount(MinimalModel.M) + " m, "
+				+ cp.getCellCount(MinimalModel.EPI) + " epi cells.");
+	}
+
+	/**
+	 * Solves the PDEs for severals steps, see
+	 * <code>{@link RDEController#run(long)}</code>.
 	 * 
 	 * @param steps
 	 *                number of time steps for which the calculation is carried
 	 *                on.
 	 */
 	public void doTimeSteps(double steps) {
-		while (steps > 0) {
-			rde.nextTimeStep();
-			timeElapsed += timeStep;
-			if (pause) {
-				pauseLoop();
+		run((long) Math.ceil(steps));
+	}
+
+	/**
+	 * Solves the PDEs for several steps. The steps are calculated in chunks
+	 * of up to one time block of the <code>{@link RDESolver}</code>, and the
+	 * registered observers are only called after the chunks which end at
+	 * their scheduled steps. Thereby the elapsed time is taken and added to
+	 * <code>{@link RDEController#timeElapsed}</code>. The
+	 * <code>{@link RunControl}</code> can pause or stop the calculation
+	 * between these chunks. The <code>{@link FieldStatistics}</code> are
+	 * only calculated inside the last time step before the observers which
+	 * asked for them, see
+	 * <code>{@link RDEController#addObserver(StepObserver, long, long, boolean)}</code>.
+	 * 
+	 * @param steps
+	 *                number of time steps, <code>Long.MAX_VALUE</code> to
+	 *                calculate until the calculation is stopped.
+	 */
+	public void run(long steps) {
+		control.begin();
+		try {
+			long end = steps > Long.MAX_VALUE - stepCount ? Long.MAX_VALUE
+					: stepCount + steps;
+			while (stepCount < end) {
+				long next = end;
+				long statistics = Long.MAX_VALUE;
+				for (Schedule o : observers) {
+					next = Math.min(next, o.next);
+					if (o.statistics) {
+						statistics = Math.min(statistics, o.next);
+					}
+				}
+				// several time steps at once if the solver uses time blocks
+				long chunk = Math.min(next - stepCount, rde.getTimeBlock());
+				if (control.isActive()) {
+					chunk = control.acquire(chunk);
+					if (chunk == 0) {
+						return;
+					}
+				}
+				int k = (int) chunk;
+				// the statistics for the observers which read them
+				rde.nextTimeSteps(k, stepCount + k == statistics);
+				for (int i = 0; i < k; i++) {
+					timeElapsed += timeStep;
+				}
+				stepCount += k;
+				if (stepCount == next && !observers.isEmpty()) {
+					// observers may add or remove observers
+					for (Schedule o : new ArrayList<Schedule>(observers)) {
+						if (o.next == stepCount) {
+							o.next += o.interval;
+							o.observer.observe(this, stepCount);
+						}
+					}
+				}
 			}
-			steps--;
+		} finally {
+			control.end();
 		}
 	}
 
+	/**
+	 * Solves the PDEs until a simulation time, see
+	 * <code>{@link RDEController#run(long)}</code>.
+	 * 
+	 * @param time
+	 *                the elapsed simulation time at the end.
+	 */
+	public void runUntil(double time) {
+		run(Math.max(0, Math.round((time - timeElapsed) / timeStep)));
+	}
+
+	/**
+	 * Registers an observer which is called every <i>interval</i> time
+	 * steps, the first time <i>interval</i> steps from now.
+	 * 
+	 * @param observer
+	 *                the observer.
+	 * @param interval
+	 *                the number of time steps between two calls.
+	 */
+	public void addObserver(StepObserver observer, long interval) {
+		addObserver(observer, interval, interval);
+	}
+
+	/**
+	 * Registers an observer which is called every <i>interval</i> time
+	 * steps.
+	 * 
+	 * @param observer
+	 *                the observer.
+	 * @param interval
+	 *                the number of time steps between two calls.
+	 * @param delay
+	 *                the number of time steps until the first call.
+	 */
+	public void addObserver(StepObserver observer, long interval, long delay) {
+		addObserver(observer, interval, delay, false);
+	}
+
+	/**
+	 * Registers an observer which is called every <i>interval</i> time
+	 * steps and optionally reads the <code>{@link FieldStatistics}</code>,
+	 * which are then calculated inside the time step before each call.
+	 * 
+	 * @param observer
+	 *                the observer.
+	 * @param interval
+	 *                the number of time steps between two calls.
+	 * @param delay
+	 *                the number of time steps until the first call.
+	 * @param statistics
+	 *                <code>true</code> if the observer reads the statistics
+	 *                of <code>{@link RDESolver#getStatistics()}</code>.
+	 */
+	public void addObserver(StepObserver observer, long interval, long delay,
+			boolean statistics) {
+		if (interval < 1 || delay < 1) {
+			throw new IllegalArgumentException("Interval " + interval
+					+ " and delay " + delay + " have to be positive");
+		}
+		observers.add(new Schedule(observer, interval, stepCount + delay,
+				statistics));
+	}
+
+	/**
+	 * Removes an observer.
+	 * 
+	 * @param observer
+	 *                the observer.
+	 */
+	public void removeObserver(StepObserver observer) {
+		for (int i = observers.size() - 1; i >= 0; i--) {
+			if (observers.get(i).observer == observer) {
+				observers.remove(i);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of time steps calculated since the start.
+	 */
+	public long getStepCount() {
+		return stepCount;
+	}
+
 	/**
 	 * @return Value of elapsed simulation time.
 	 */
@@ -205,13 +423,13 @@ public class RDEController {
 	}
 
 	public double getData(int field, int x, int y) {
-		return rde.getData()[rde.getActArray()][field][x][y];
+		return rde.getValue(field, x, y);
 	}
 	
 	public String allDataX(int field, int y) {
 		StringBuilder sb = new StringBuilder();
 		for (int x = 0; x < rde.getDimX(); x++) {
-			sb.append(x + "\t" + rde.getData()[rde.getActArray()][field][x][y]);
+			sb.append(x + "\t" + rde.getValue(field, x, y));
 			sb.append("\n");
 		}
 		return sb.toString();
@@ -220,7 +438,7 @@ public class RDEController {
 	public String allDataY(int field, int x) {
 		StringBuilder sb = new StringBuilder();
 		for (int y = 0; y < rde.getDimY(); y++) {
-			sb.append(y + "\t" + rde.getData()[rde.getActArray()][field][x][y]);
+			sb.append(y + "\t" + rde.getValue(field, x, y));
 			sb.append("\n");
 		}
 		return sb.toString();
@@ -245,58 +463,75 @@ public class RDEController {
 	 */
 	public void setRde(RDESolver rde) {
 		this.rde = rde;
+		setThreshold();
+	}
+
+	/**
+	 * Counts the excited grid points of the first variable in the
+	 * <code>{@link FieldStatistics}</code>.
+	 */
+	private void setThreshold() {
+		if (config.hasThreshold()) {
+			rde.setStatisticsThreshold(0, config.getThreshold());
+		}
+	}
+
+	/**
+	 * @return the control which pauses, single steps and stops the
+	 *         calculation from other threads.
+	 */
+	public RunControl getRunControl() {
+		return control;
 	}
 
 	/**
-	 * Sets the <code>boolean</code> <code>{@link RDEController#pause}</code>
-	 * to an new value.
+	 * Pauses or resumes the calculation, see
+	 * <code>{@link RunControl}</code>.
 	 * 
 	 * @param pause
-	 *                new value of <code>{@link RDEController#pause}</code>.
+	 *                <code>true</code> to pause the calculation.
 	 */
 	public void setPause(boolean pause) {
-		this.pause = pause;
+		if (pause) {
+			control.pause();
+		} else {
+			control.resume();
+		}
 	}
 
 	/**
-	 * @return value of <code>{@link RDEController#pause}</code>.
+	 * @return <code>true</code> if the calculation is paused.
 	 */
 	public boolean isPause() {
-		return pause;
+		return control.isPaused();
 	}
 
 	/**
-	 * Pauses the current Thread.
+	 * Waits while the calculation is paused.
 	 */
 	public void pauseLoop() {
-		while (pause) {
-			try {
-				Thread.sleep(10);
-			} catch (Exception ex) {
-				logger.log(Level.WARNING, "Exception occurred", ex);
-			}
-		}
+		control.acquire(0);
 	}
 
 	public void stimulate(int x, int y, double strength) {
-		rde.getData()[rde.getActArray()][0][x][y] += strength;
+		rde.addValue(0, x, y, strength);
 	}
 
 	public void stimulateLeft(int width, double strength) {
 		for (int x = 0; x <= width; x++) {
-			rde.getData()[rde.getActArray()][0][x][0] += strength;
+			rde.addValue(0, x, 0, strength);
 		}
 	}
 
 	public void stimulateRight(int width, double strength) {
 		int dimX = rde.getDimX();
 		for (int x = dimX - 1 - width; x < dimX; x++) {
-			rde.getData()[rde.getActArray()][0][x][0] += strength;
+			rde.addValue(0, x, 0, strength);
 		}
 	}
 
 	public void setState(int x, int y, double value) {
-		rde.getData()[rde.getActArray()][0][x][y] = value;
+		rde.setValue(0, x, y, value);
 	}
 
 	public boolean isAbove(int x, int y, double value) {
@@ -314,11 +549,12 @@ public class RDEController {
 	 */
 	public void movePulse(int pos) {
 		logger.fine("Moving maximum of pulse to " + pos + "...");
+		double threshold = config.getThreshold();
 		PulseParams pp = getPulseParams(0);
 		while (pp.getMaxPosition() != pos) {
 			doTimeSteps(1);
 			pp = getPulseParams(0);
-			if (pp.getMaximum() < getDouble(p, "threshold")) {
+			if (pp.getMaximum() < threshold) {
 				logger.fine("No Pulse for moving available");
 				break;
 			}
@@ -331,8 +567,9 @@ public class RDEController {
 	 * position</i>) it is necessary to derive these quantities first.
 	 * 
 	 * <p>
-	 * The minimum and maximum with their positions are calulated by looping
-	 * through grid.
+	 * The minimum and maximum with their positions are taken from the
+	 * <code>{@link FieldStatistics}</code> of the time step if the whole
+	 * cable is tissue, otherwise they are calulated by looping through grid.
 	 * 
 	 * <p>
 	 * The left and right branch positon respectivly depend on the parameter
@@ -347,7 +584,15 @@ public class RDEController {
 	 * @see PulseParams
 	 */
 	public PulseParams getPulseParams(int f) {
-		double val = getDouble(p, "threshold");
+		if (isCable()) {
+			// the scan starts from 0 and keeps the first extremum
+			FieldStatistics s = rde.getStatistics();
+			boolean max = s.getMax(f) > 0;
+			boolean min = s.getMin(f) < 0;
+			return new PulseParams(max ? s.getMax(f) : 0, min ? s.getMin(f)
+					: 0, max ? s.getMaxX(f) : -1, min ? s.getMinX(f) : -1, -1,
+					-1);
+		}
 		if (rde.getDimension() == 1) {
 			int dimX = rde.getDimX();
 			int y = 0;
@@ -360,13 +605,13 @@ public class RDEController {
 
 			for (int x = 0; x < dimX; x++) {
 				// Calculating Minimum/MinimumPosition
-				if (rde.getData()[rde.getActArray()][f][x][y] > max) {
-					max = rde.getData()[rde.getActArray()][f][x][y];
+				if (rde.getValue(f, x, y) > max) {
+					max = rde.getValue(f, x, y);
 					maxpos = x;
 				}
 				// Calculating Maximum/MaximumPosition
-				if (rde.getData()[rde.getActArray()][f][x][y] < min) {
-					min = rde.getData()[rde.getActArray()][f][x][y];
+				if (rde.getValue(f, x, y) < min) {
+					min = rde.getValue(f, x, y);
 					minpos = x;
 				}
 
@@ -394,19 +639,84 @@ public class RDEController {
 	}
 
 	public Point2D.Double getMaximum(int field, int startX, int endX) {
+		if (isCable() && startX <= 0 && endX >= rde.getDimX() - 1) {
+			FieldStatistics s = rde.getStatistics();
+			return s.getMax(field) > 0 ? new Point2D.Double(s.getMaxX(field), s
+					.getMax(field)) : new Point2D.Double(-1, 0.0);
+		}
 		double max = 0.0;
 		int maxpos = -1;
 		for (int x = startX; x <= endX; x++) {
-			if (rde.getData()[rde.getActArray()][field][x][0] > max) {
-				max = rde.getData()[rde.getActArray()][field][x][0];
+			if (rde.getValue(field, x, 0) > max) {
+				max = rde.getValue(field, x, 0);
 				maxpos = x;
 			}
 		}
 		return new Point2D.Double(maxpos, max);
 	}
 
+	/**
+	 * @return <code>true</code> if the grid is one dimensional and all grid
+	 *         points are tissue, so the <code>{@link FieldStatistics}</code>
+	 *         cover the whole cable.
+	 */
+	private boolean isCable() {
+		return rde.getDimension() == 1
+				&& rde.getGeometry().getCellCount() == rde.getDimX();
+	}
+
+	/**
+	 * @return the parameters of the simulation.
+	 */
+	public SimulationConfig getConfig() {
+		return config;
+	}
+
+	/**
+	 * @return a copy of the parameters of the configuration file.
+	 */
 	public Properties getProperties() {
-		return p;
+		return config.getProperties();
+	}
+
+	/**
+	 * Creates a <code>{@link CellEngine}</code> for a single cell of the
+	 * model, which starts from the current values of grid point <i>(0,0)</i>.
+	 * 
+	 * @return the new <code>{@link CellEngine}</code>.
+	 */
+	public CellEngine createCellEngine() {
+		double[] state = new double[rde.getModel().getFieldCount()];
+		for (int f = 0; f < state.length; f++) {
+			state[f] = rde.getValue(f, 0, 0);
+		}
+		return new CellEngine(rde.getModel(), state);
+	}
+
+	/**
+	 * An observer and the time step of its next call.
+	 */
+	private static class Schedule {
+
+		private final StepObserver observer;
+
+		private final long interval;
+
+		private long next;
+
+		/**
+		 * <code>true</code> if the observer reads the statistics.
+		 */
+		private final boolean statistics;
+
+		Schedule(StepObserver observer, long interval, long next,
+				boolean statistics) {
+			this.observer = observer;
+			this.interval = interval;
+			this.next = next;
+			this.statistics = statistics;
+		}
+
 	}
 
 }
@@ -0,0 +1,401 @@
+package controlling;
+
+import static utils.MyLogger.getLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ * Pauses, resumes, single steps and stops the calculation of a
+ * <code>{@link RDEController}</code> from other threads. The controller asks
+ * for permission at the boundaries of the chunks of time steps of
+ * <code>{@link RDEController#run(long)}</code>, so all actions take effect
+ * between two time steps. As long as no action is requested this costs one
+ * read of a <code>volatile</code> field per chunk. A paused calculation waits
+ * on a <code>Condition</code> and does not poll.
+ *
+ * @author Mario Krapp
+ */
+public class RunControl {
+
+	private static Logger logger = getLogger(RunControl.class
+			.getSimpleName(), Level.ALL);
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * Signalled whenever the state changes.
+	 */
+	private final Condition changed = lock.newCondition();
+
+	/**
+	 * <code>true</code> if the calculation has to ask for permission.
+	 */
+	private volatile boolean active;
+
+	private boolean paused;
+
+	private long stepsLeft;
+
+	private boolean stopped;
+
+	/**
+	 * <code>true</code> while the calculation waits for a pause to end.
+	 */
+	private boolean waiting;
+
+	/**
+	 * <code>true</code> after the calculation has returned because of a stop.
+	 */
+	private boolean acknowledged;
+
+	/**
+	 * The number of calculations which are running, see
+	 * <code>{@link RunControl#begin()}</code>.
+	 */
+	private int running;
+
+	/**
+	 * The tasks which are run by the calculation at the next boundary.
+	 */
+	private final List<FutureTask<?>> tasks = new ArrayList<FutureTask<?>>();
+
+	/**
+	 * Pauses the calculation after the current time step.
+	 */
+	public void pause() {
+		lock.lock();
+		try {
+			paused = true;
+			stepsLeft = 0;
+			update();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Resumes a paused calculation.
+	 */
+	public void resume() {
+		lock.lock();
+		try {
+			paused = false;
+			stepsLeft = 0;
+			update();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Lets a paused calculation do some time steps, then it is paused again.
+	 *
+	 * @param steps
+	 *                the number of time steps.
+	 * @throws IllegalArgumentException
+	 *                 if <i>steps</i> is smaller than <b>1</b>.
+	 */
+	public void step(long steps) {
+		if (steps < 1) {
+			throw new IllegalArgumentException("Invalid number of steps: "
+					+ steps);
+		}
+		lock.lock();
+		try {
+			paused = true;
+			stepsLeft = steps > Long.MAX_VALUE - stepsLeft ? Long.MAX_VALUE
+					: stepsLeft + steps;
+			update();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stops the calculation after the current time step.
+	 * <code>{@link RDEController#run(long)}</code> returns, also from a
+	 * pause, and all following calls return immediately until
+	 * <code>{@link RunControl#reset()}</code> is called.
+	 */
+	public void stop() {
+		lock.lock();
+		try {
+			stopped = true;
+			update();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stops the calculation and waits until it has returned.
+	 *
+	 * @param timeout
+	 *                the longest time to wait in milliseconds.
+	 * @return <code>true</code> if the calculation has returned,
+	 *         <code>false</code> if it did not return within the timeout,
+	 *         i.e. because it was not running.
+	 */
+	public boolean shutdown(long timeout) throws InterruptedException {
+		long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+		lock.lock();
+		try {
+			stopped = true;
+			update();
+			while (!acknowledged) {
+				if (nanos <= 0) {
+					return false;
+				}
+				nanos = changed.awaitNanos(nanos);
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Allows new calculations after a stop. A pause is kept.
+	 */
+	public void reset() {
+		lock.lock();
+		try {
+			stopped = false;
+			acknowledged = false;
+			update();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the calculation is paused.
+	 */
+	public boolean isPaused() {
+		lock.lock();
+		try {
+			return paused;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the calculation was stopped.
+	 */
+	public boolean isStopped() {
+		lock.lock();
+		try {
+			return stopped;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits until a paused calculation has finished all allowed time steps
+	 * and waits itself.
+	 */
+	public void awaitPaused() throws InterruptedException {
+		lock.lock();
+		try {
+			while (paused && !stopped && (stepsLeft > 0 || !waiting)) {
+				changed.await();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stops the calculation as soon as a file exists, i.e. to stop a long
+	 * simulation from the shell. The directory of the file is watched by a
+	 * daemon thread.
+	 *
+	 * @param file
+	 *                the stop file.
+	 */
+	public void stopOnFile(final File file) {
+		final Path path = file.getAbsoluteFile().toPath();
+		final WatchService watcher;
+		try {
+			watcher = FileSystems.getDefault().newWatchService();
+			path.getParent().register(watcher,
+					StandardWatchEventKinds.ENTRY_CREATE);
+		} catch (IOException e) {
+			throw new IllegalStateException("Can not watch " + file, e);
+		}
+		if (file.exists()) {
+			stop();
+		}
+		Thread t = new Thread(new Runnable() {
+			public void run() {
+				try {
+					while (true) {
+						WatchKey key = watcher.take();
+						for (WatchEvent<?> e : key.pollEvents()) {
+							if (path.getFileName().equals(e.context())) {
+								logger.info("Stopped by " + file);
+								stop();
+								watcher.close();
+								return;
+							}
+						}
+						key.reset();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (IOException e) {
+					logger.log(Level.WARNING, "Exception occurred", e);
+				}
+			}
+		}, "stop file " + file);
+		t.setDaemon(true);
+		t.start();
+	}
+
+	/**
+	 * Runs a task in the thread of the calculation between two chunks of
+	 * time steps, also while it is paused, i.e. to read a consistent state
+	 * of the grid.
+	 *
+	 * @param task
+	 *                the task.
+	 * @return the result, which is cancelled if no calculation is running.
+	 */
+	public <T> Future<T> execute(Callable<T> task) {
+		FutureTask<T> f = new FutureTask<T>(task);
+		lock.lock();
+		try {
+			if (running == 0) {
+				f.cancel(false);
+				return f;
+			}
+			tasks.add(f);
+			update();
+		} finally {
+			lock.unlock();
+		}
+		return f;
+	}
+
+	/**
+	 * Called by the calculation when it starts, so tasks are accepted.
+	 */
+	void begin() {
+		lock.lock();
+		try {
+			running++;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Called by the calculation when it returns. Runs the pending tasks, so
+	 * no task waits for a calculation which has ended.
+	 */
+	void end() {
+		lock.lock();
+		try {
+			runTasks();
+			running--;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the calculation has to call
+	 *         <code>{@link RunControl#acquire(long)}</code>.
+	 */
+	boolean isActive() {
+		return active;
+	}
+
+	/**
+	 * Called by the calculation before a chunk of time steps. Runs the
+	 * pending tasks and waits while the calculation is paused.
+	 *
+	 * @param steps
+	 *                the number of time steps of the chunk.
+	 * @return the number of time steps which may be calculated, <b>0</b> if
+	 *         the calculation has to return.
+	 */
+	long acquire(long steps) {
+		lock.lock();
+		try {
+			runTasks();
+			while (paused && stepsLeft == 0 && !stopped) {
+				waiting = true;
+				changed.signalAll();
+				try {
+					changed.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					stopped = true;
+					update();
+				} finally {
+					waiting = false;
+				}
+				runTasks();
+			}
+			if (stopped) {
+				acknowledged = true;
+				changed.signalAll();
+				return 0;
+			}
+			if (paused) {
+				steps = Math.min(steps, stepsLeft);
+				stepsLeft -= steps;
+			}
+			// never moves the time steps of the calculation backwards
+			return Math.max(0, steps);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Runs the pending tasks without holding the lock.
+	 */
+	private void runTasks() {
+		while (!tasks.isEmpty()) {
+			List<FutureTask<?>> pending = new ArrayList<FutureTask<?>>(tasks);
+			tasks.clear();
+			update();
+			lock.unlock();
+			try {
+				for (FutureTask<?> f : pending) {
+					f.run();
+				}
+			} finally {
+				lock.lock();
+			}
+		}
+	}
+
+	private void update() {
+		active = paused || stopped || !tasks.isEmpty();
+		changed.signalAll();
+	}
+
+}
@@ -0,0 +1,515 @@
+package controlling;
+
+import static utils.PropertiesManager.loadProperties;
+
+import java.util.Properties;
+
+import rdeapprox.SolverConfig;
+
+/**
+ * <p>
+ * The parameters of a simulation as in <i>tws.config</i> together with the
+ * numerical parameters of the <code>{@link SolverConfig}</code>. A
+ * <code>{@link SimulationConfig}</code> is immutable and all values are
+ * parsed and checked once when it is created, so the time steps never parse
+ * a <code>String</code>.
+ *
+ * <p>
+ * Parameters which are only needed by some protocols, i.e. <i>bcl</i> or
+ * <i>s1</i>, may be missing. Their getters throw an
+ * <code>IllegalArgumentException</code> if they are used anyway.
+ *
+ * @author Mario Krapp
+ */
+public final class SimulationConfig {
+
+	private final Properties properties;
+
+	private final SolverConfig solver;
+
+	private final String model;
+
+	private final double duration;
+
+	private final int width;
+
+	private final double strength;
+
+	private final double threshold;
+
+	private final double bcl;
+
+	private final int beats;
+
+	private final int prepace;
+
+	private final double endoFraction;
+
+	private final double mFraction;
+
+	private final int s1;
+
+	private final int s2;
+
+	private final double diStart;
+
+	private final double diEnd;
+
+	private final double stepSize;
+
+	private final int showStep;
+
+	private final int gridStep;
+
+	private final int threads;
+
+	private final String output;
+
+	private final int httpPort;
+
+	private final int streamPort;
+
+	private final double streamFps;
+
+	private final String ringFile;
+
+	private final int ringSlots;
+
+	private final String renderDir;
+
+	private final String renderGif;
+
+	private final double renderFps;
+
+	private final int renderThreads;
+
+	private final boolean autoscale;
+
+	private final boolean showScales;
+
+	/**
+	 * Creates a new <code>{@link SimulationConfig}</code> object.
+	 *
+	 * @param p
+	 *                the parameters of the simulation, which are copied.
+	 * @param solver
+	 *                the numerical parameters.
+	 * @throws IllegalArgumentException
+	 *                 if a parameter is missing or invalid.
+	 */
+	public SimulationConfig(Properties p, SolverConfig solver) {
+		properties = new Properties();
+		properties.putAll(p);
+		this.solver = solver;
+
+		model = p.getProperty("model");
+		if (model == null) {
+			throw new IllegalArgumentException("Missing parameter: model");
+		}
+		duration = getDouble("duration", 0);
+		width = getInt("width", -1);
+		strength = getDouble("strength", Double.NaN);
+		threshold = getDouble("threshold", Double.NaN);
+		bcl = getDouble("bcl", Double.NaN);
+		beats = getInt("beats", -1);
+		prepace = getInt("prepace", 0);
+		endoFraction = getDouble("endo_fraction", Double.NaN);
+		mFraction = getDouble("m_fraction", Double.NaN);
+		s1 = getInt("s1", -1);
+		s2 = getInt("s2", -1);
+		diStart = getDouble("di_start", Double.NaN);
+		diEnd = getDouble("di_end", Double.NaN);
+		stepSize = getDouble("stepsize", Double.NaN);
+		showStep = getInt("show_step", -1);
+		gridStep = getInt("gridstep", -1);
+		threads = getInt("threads", Runtime.getRuntime().availableProcessors());
+		output = p.getProperty("output");
+		httpPort = getInt("http_port", 0);
+		streamPort = getInt("stream_port", 0);
+		streamFps = getDouble("stream_fps", 25);
+		ringFile = p.getProperty("ring_file");
+		ringSlots = getInt("ring_slots", 8);
+		renderDir = p.getProperty("render_dir");
+		renderGif = p.getProperty("render_gif");
+		renderFps = getDouble("render_fps", 10);
+		renderThreads = getInt("render_threads", 2);
+		autoscale = getBoolean("autoscale", true);
+		showScales = getBoolean("show_scales", true);
+
+		if (httpPort < 0 || httpPort > 65535) {
+			throw new IllegalArgumentException("Invalid http_port: " + httpPort);
+		}
+		if (streamPort < 0 || streamPort > 65535 || !(streamFps > 0)) {
+			throw new IllegalArgumentException("Invalid stream_port "
+					+ streamPort + " or stream_fps " + streamFps);
+		}
+		if (ringSlots < 1) {
+			throw new IllegalArgumentException("Invalid ring_slots: " + ringSlots);
+		}
+		if (!(renderFps > 0) || renderThreads < 1) {
+			throw new IllegalArgumentException("Invalid render_fps "
+					+ renderFps + " or render_threads " + renderThreads);
+		}
+		if (duration < 0 || prepace < 0 || threads < 1) {
+			throw new IllegalArgumentException("Negative duration, prepace "
+					+ "or threads");
+		}
+		if (!Double.isNaN(stepSize) && stepSize <= 0) {
+			throw new IllegalArgumentException("Invalid stepsize: " + stepSize);
+		}
+		if (showStep == 0 || gridStep == 0) {
+			throw new IllegalArgumentException("Invalid show_step or gridstep");
+		}
+	}
+
+	/**
+	 * Loads the configuration files.
+	 *
+	 * @param configFile
+	 *                name of the file, i.e. <i>tws.config</i>.
+	 * @param RDEConfigFile
+	 *                name of the file, i.e. <i>rde.config</i>.
+	 * @return the configuration.
+	 */
+	public static SimulationConfig load(String configFile, String RDEConfigFile) {
+		return load(configFile, SolverConfig.load(RDEConfigFile));
+	}
+
+	/**
+	 * Loads a configuration file.
+	 *
+	 * @param configFile
+	 *                name of the file, i.e. <i>tws.config</i>.
+	 * @param solver
+	 *                the numerical parameters.
+	 * @return the configuration.
+	 */
+	public static SimulationConfig load(String configFile, SolverConfig solver) {
+		return new SimulationConfig(loadProperties(configFile), solver);
+	}
+
+	/**
+	 * Creates a copy with one parameter changed, i.e.
+	 * <code>config.with("bcl", "500")</code>.
+	 *
+	 * @param key
+	 *                the parameter as in <i>tws.config</i>.
+	 * @param value
+	 *                the new value.
+	 * @return the new configuration.
+	 */
+	public SimulationConfig with(String key, String value) {
+		Properties p = getProperties();
+		p.setProperty(key, value);
+		return new SimulationConfig(p, solver);
+	}
+
+	/**
+	 * Creates a copy with other numerical parameters.
+	 *
+	 * @param solver
+	 *                the numerical parameters.
+	 * @return the new configuration.
+	 */
+	public SimulationConfig with(SolverConfig solver) {
+		return new SimulationConfig(properties, solver);
+	}
+
+	/**
+	 * @return a copy of the parameters.
+	 */
+	public Properties getProperties() {
+		Properties p = new Properties();
+		p.putAll(properties);
+		return p;
+	}
+
+	private double getDouble(String key, double def) {
+		String s = properties.getProperty(key);
+		if (s == null) {
+			return def;
+		}
+		try {
+			return Double.parseDouble(s.trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid " + key + ": " + s);
+		}
+	}
+
+	private int getInt(String key, int def) {
+		String s = properties.getProperty(key);
+		if (s == null) {
+			return def;
+		}
+		try {
+			return Integer.parseInt(s.trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid " + key + ": " + s);
+		}
+	}
+
+	private boolean getBoolean(String key, boolean def) {
+		String s = properties.getProperty(key);
+		if (s == null) {
+			return def;
+		}
+		s = s.trim();
+		if (!s.equalsIgnoreCase("true") && !s.equalsIgnoreCase("false")) {
+			throw new IllegalArgumentException("Invalid " + key + ": " + s);
+		}
+		return Boolean.parseBoolean(s);
+	}
+
+	private static double require(double value, String key) {
+		if (Double.isNaN(value)) {
+			throw new IllegalArgumentException("Missing parameter: " + key);
+		}
+		return value;
+	}
+
+	private static int require(int value, String key) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Missing parameter: " + key);
+		}
+		return value;
+	}
+
+	/**
+	 * @return the numerical parameters, including the kernel, the time
+	 *         blocks and the storage of the grid.
+	 */
+	public SolverConfig getSolver() {
+		return solver;
+	}
+
+	/**
+	 * @return the name of the model, i.e. <i>fhn</i> or a <i>.model</i>
+	 *         file.
+	 */
+	public String getModel() {
+		return model;
+	}
+
+	/**
+	 * @return the duration of a stimulus, <b>0</b> for a kick.
+	 */
+	public double getDuration() {
+		return duration;
+	}
+
+	/**
+	 * @return the number of stimulated grid points.
+	 */
+	public int getWidth() {
+		return require(width, "width");
+	}
+
+	/**
+	 * @return the amplitude of a stimulus.
+	 */
+	public double getStrength() {
+		return require(strength, "strength");
+	}
+
+	/**
+	 * @return the value of the first variable above which a grid point is
+	 *         excited.
+	 */
+	public double getThreshold() {
+		return require(threshold, "threshold");
+	}
+
+	/**
+	 * @return <code>true</code> if a <i>threshold</i> is given.
+	 */
+	public boolean hasThreshold() {
+		return !Double.isNaN(threshold);
+	}
+
+	/**
+	 * @return the basic cycle length.
+	 */
+	public double getBcl() {
+		return require(bcl, "bcl");
+	}
+
+	/**
+	 * @return the number of stimuli for pacing a single cell.
+	 */
+	public int getBeats() {
+		return require(beats, "beats");
+	}
+
+	/**
+	 * @return the number of stimuli for the initial state, <b>0</b> for the
+	 *         resting state.
+	 */
+	public int getPrepace() {
+		return prepace;
+	}
+
+	/**
+	 * @return the fraction of the endocardial layer.
+	 */
+	public double getEndoFraction() {
+		return require(endoFraction, "endo_fraction");
+	}
+
+	/**
+	 * @return the fraction of the midmyocardial layer.
+	 */
+	public double getMFraction() {
+		return require(mFraction, "m_fraction");
+	}
+
+	/**
+	 * @return the number of stimuli with <i>bcl</i> before the DIs.
+	 */
+	public int getS1() {
+		return require(s1, "s1");
+	}
+
+	/**
+	 * @return the number of stimuli of each DI.
+	 */
+	public int getS2() {
+		return require(s2, "s2");
+	}
+
+	/**
+	 * @return the first DI.
+	 */
+	public double getDiStart() {
+		return require(diStart, "di_start");
+	}
+
+	/**
+	 * @return the last DI.
+	 */
+	public double getDiEnd() {
+		return require(diEnd, "di_end");
+	}
+
+	/**
+	 * @return the step between the DIs.
+	 */
+	public double getStepSize() {
+		return require(stepSize, "stepsize");
+	}
+
+	/**
+	 * @return the number of time steps between two outputs.
+	 */
+	public int getShowStep() {
+		return require(showStep, "show_step");
+	}
+
+	/**
+	 * @return the distance between the written grid points.
+	 */
+	public int getGridStep() {
+		return require(gridStep, "gridstep");
+	}
+
+	/**
+	 * @return the number of threads, by default the number of processors.
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * @param def
+	 *                the folder if none is given.
+	 * @return the folder of the output.
+	 */
+	public String getOutput(String def) {
+		return output != null ? output : def;
+	}
+
+	/**
+	 * @return the port of the <code>{@link ControlServer}</code> on
+	 *         <i>localhost</i>, <b>0</b> if there is none.
+	 */
+	public int getHttpPort() {
+		return httpPort;
+	}
+
+	/**
+	 * @return the port of the <code>{@link FrameStreamer}</code> on
+	 *         <i>localhost</i>, <b>0</b> if there is none.
+	 */
+	public int getStreamPort() {
+		return streamPort;
+	}
+
+	/**
+	 * @return the largest number of streamed frames per second.
+	 */
+	public double getStreamFps() {
+		return streamFps;
+	}
+
+	/**
+	 * @return the file of the <code>{@link FrameRing}</code> or
+	 *         <code>null</code> if there is none.
+	 */
+	public String getRingFile() {
+		return ringFile;
+	}
+
+	/**
+	 * @return the number of frames in the <code>{@link FrameRing}</code>.
+	 */
+	public int getRingSlots() {
+		return ringSlots;
+	}
+
+	/**
+	 * @return the folder of the PNG images of the
+	 *         <code>{@link FrameRenderer}</code> or <code>null</code> if
+	 *         there is none.
+	 */
+	public String getRenderDir() {
+		return renderDir;
+	}
+
+	/**
+	 * @return the animated GIF of the <code>{@link FrameRenderer}</code> or
+	 *         <code>null</code> if there is none.
+	 */
+	public String getRenderGif() {
+		return renderGif;
+	}
+
+	/**
+	 * @return the frames per second of the animated GIF.
+	 */
+	public double getRenderFps() {
+		return renderFps;
+	}
+
+	/**
+	 * @return the number of threads which render the frames.
+	 */
+	public int getRenderThreads() {
+		return renderThreads;
+	}
+
+	/**
+	 * @return <code>true</code> if each rendered frame is colored from its
+	 *         minimum to its maximum.
+	 */
+	public boolean isAutoscale() {
+		return autoscale;
+	}
+
+	/**
+	 * @return <code>true</code> if a color bar is drawn below the rendered
+	 *         frames.
+	 */
+	public boolean isShowScales() {
+		return showScales;
+	}
+
+}
@@ -0,0 +1,23 @@
+package controlling;
+
+/**
+ * An action which is called by a <code>{@link RDEController}</code> at
+ * regular time steps, i.e. writing the data, recording a probe or applying a
+ * stimulus. See
+ * <code>{@link RDEController#addObserver(StepObserver, long)}</code>.
+ *
+ * @author Mario Krapp
+ */
+public interface StepObserver {
+
+	/**
+	 * Called after the time step at which the observer is scheduled.
+	 *
+	 * @param rc
+	 *                the controller, which may be changed by the observer.
+	 * @param step
+	 *                the number of time steps calculated by the controller.
+	 */
+	void observe(RDEController rc, long step);
+
+}
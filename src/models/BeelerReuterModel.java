@@ -41,7 +41,7 @@ public class BeelerReuterModel extends RDEModel {
 
     private static final double g_s = 0.09;
 
-    private static double I_ext = 0;
+    private double I_ext = 0;
 
     @Override
     public double[] function(double[][][] data, int x, int y) {
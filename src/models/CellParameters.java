@@ -0,0 +1,175 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * The <code>{@link CellParameters}</code> class holds optional parameters
+ * which may differ from grid point to grid point. These are the <i>cell
+ * type</i>, a scaling factor for the <i>diffusion constants</i> and an
+ * arbitrary number of scaling factors for <i>conductances</i> of a
+ * <code>{@link RDEModel}</code>.
+ *
+ * <p>
+ * All parameters are stored as primitive <code>Array</code>s with the same
+ * <i>[x][y]</i> layout as the data of the <code>RDESolver</code>. A model does
+ * not branch on the cell type but uses it as index into its parameter tables,
+ * so one grid may contain cells of different types without slowing down the
+ * calculation. Scaling factors which were never set are <b>1</b>.
+ *
+ * @author Mario Krapp
+ *
+ */
+public class CellParameters {
+
+	/**
+	 * The number of grid points in x-direction.
+	 */
+	private int dimX;
+
+	/**
+	 * The number of grid points in y-direction.
+	 */
+	private int dimY;
+
+	/**
+	 * The cell type of each grid point. The meaning of a cell type is defined
+	 * by the model, i.e. <code>{@link MinimalModel#EPI}</code>.
+	 */
+	private byte[][] cellType;
+
+	/**
+	 * The factor by which the diffusion constants are scaled at each grid
+	 * point. Created on first access.
+	 */
+	private double[][] diffusionScale;
+
+	/**
+	 * The factors by which the conductances of a model are scaled at each grid
+	 * point. The first index is defined by the model. Created on first
+	 * access.
+	 */
+	private double[][][] conductance;
+
+	/**
+	 * Creates a new <code>{@link CellParameters}</code> object where every
+	 * grid point has cell type <b>0</b> and all scaling factors are <b>1</b>.
+	 *
+	 * @param dimX
+	 *            the number of grid points in x-direction.
+	 * @param dimY
+	 *            the number of grid points in y-direction.
+	 */
+	public CellParameters(int dimX, int dimY) {
+		this.dimX = dimX;
+		this.dimY = dimY;
+		cellType = new byte[dimX][dimY];
+		conductance = new double[0][][];
+	}
+
+	/**
+	 * @return the number of grid points in x-direction.
+	 */
+	public int getDimX() {
+		return dimX;
+	}
+
+	/**
+	 * @return the number of grid points in y-direction.
+	 */
+	public int getDimY() {
+		return dimY;
+	}
+
+	/**
+	 * @return the cell types of all grid points.
+	 */
+	public byte[][] getCellType() {
+		return cellType;
+	}
+
+	/**
+	 * Sets the cell type for a rectangular part of the grid.
+	 *
+	 * @param type
+	 *            the new cell type.
+	 * @param startX
+	 *            first grid point in x-direction.
+	 * @param endX
+	 *            first grid point in x-direction which is not set anymore.
+	 * @param startY
+	 *            first grid point in y-direction.
+	 * @param endY
+	 *            first grid point in y-direction which is not set anymore.
+	 */
+	public void setCellType(int type, int startX, int endX, int startY,
+			int endY) {
+		for (int x = startX; x < endX; x++) {
+			Arrays.fill(cellType[x], startY, endY, (byte) type);
+		}
+	}
+
+	/**
+	 * Counts the grid points of a certain cell type.
+	 *
+	 * @param type
+	 *            the cell type.
+	 * @return the number of grid points with this cell type.
+	 */
+	public int getCellCount(int type) {
+		int count = 0;
+		for (int x = 0; x < dimX; x++) {
+			for (int y = 0; y < dimY; y++) {
+				if (cellType[x][y] == type) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the scaling factors of the diffusion constants.
+	 */
+	public double[][] getDiffusionScale() {
+		if (diffusionScale == null) {
+			diffusionScale = ones();
+		}
+		return diffusionScale;
+	}
+
+	/**
+	 * Returns the scaling factors of a conductance. The meaning of
+	 * <code>index</code> is defined by the model, i.e.
+	 * <code>{@link MinimalModel#G_FI}</code>.
+	 *
+	 * @param index
+	 *            index of the conductance.
+	 * @return the scaling factors of this conductance.
+	 */
+	public double[][] getConductance(int index) {
+		if (index >= conductance.length) {
+			conductance = Arrays.copyOf(conductance, index + 1);
+		}
+		if (conductance[index] == null) {
+			conductance[index] = ones();
+		}
+		return conductance[index];
+	}
+
+	/**
+	 * @return the number of conductances which have been accessed so far.
+	 */
+	public int getConductanceCount() {
+		return conductance.length;
+	}
+
+	private double[][] ones() {
+		double[][] ret = new double[dimX][dimY];
+		for (int x = 0; x < dimX; x++) {
+			Arrays.fill(ret[x], 1.0);
+		}
+		return ret;
+	}
+
+}
@@ -17,10 +17,17 @@ public class FitzHughNagumoModel extends RDEModel {
 		this.Dv = Dv;
 	}
 	
-	private static final double a = 0.02;
-	private static final double b = 0.25;
-	private static final double eps  = 0.003;
-	private static double I_ext = 0.0;
+	public static final double a = 0.02;
+	public static final double b = 0.25;
+	public static final double eps  = 0.003;
+	private double I_ext = 0.0;
+
+	/**
+	 * @return the external current.
+	 */
+	public double getIExt() {
+		return I_ext;
+	}
 	
 	@Override
 	public double[] function(double[][][] data, int x, int y) {
@@ -31,5 +38,27 @@ public class FitzHughNagumoModel extends RDEModel {
 		ret[1] = eps * (v - b * w); 
 		return ret;
 	}
+
+	@Override
+	public boolean jacobian(double[][][] data, int x, int y, double[][] jac) {
+		double v = data[0][x][y];
+		jac[0][0] = -(3 * v * v - 2 * (1 + a) * v + a);
+		jac[0][1] = -1;
+		jac[1][0] = eps;
+		jac[1][1] = -eps * b;
+		return true;
+	}
+
+	@Override
+	public void react(double[][][] data, int x, int y, int n, double[][] out) {
+		double[] v = data[0][x];
+		double[] w = data[1][x];
+		for (int k = 0; k < n; k++) {
+			double vk = v[y + k];
+			double wk = w[y + k];
+			out[0][k] = - vk * (vk - 1) * (vk - a) - wk + I_ext;
+			out[1][k] = eps * (vk - b * wk);
+		}
+	}
 	
 }
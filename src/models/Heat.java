@@ -1,5 +1,7 @@
 package models;
 
+import java.util.Arrays;
+
 /**
  * @author mario
  *
@@ -20,5 +22,10 @@ public class Heat extends RDEModel {
 		ret[0] = 0;
 		return ret;
 	}
+
+	@Override
+	public void react(double[][][] data, int x, int y, int n, double[][] out) {
+		Arrays.fill(out[0], 0, n, 0);
+	}
 	
 }
@@ -32,7 +32,7 @@ public class HodgkinHuxleyModel extends RDEModel {
 
     private static final double g_L = 0.3;
 
-    private static double I_ext = 0.0;
+    private double I_ext = 0.0;
 
     public double[] function(double[][][] data, int x, int y) {
 	double[] ret = new double[8];
@@ -19,7 +19,7 @@ public class KarmaModel extends RDEModel {
 
 	private static final int M = 6; // 4 ... 10
 	
-	private static double I_ext;
+	private double I_ext;
 	
 	public KarmaModel(double DE, double Dn) {
 		super(2, new double[] {DE, Dn});
@@ -0,0 +1,144 @@
+package models;
+
+/**
+ * <p>
+ * The minimal model of Bueno-Orovio for tissue which consists of different
+ * cell types. Unlike <code>{@link MinimalModelEpi}</code>,
+ * <code>{@link MinimalModelEndo}</code> and <code>{@link MinimalModelM}</code>
+ * the parameters of all three cell types are kept in tables which are indexed
+ * by the cell type of each grid point (see
+ * <code>{@link CellParameters#getCellType()}</code>). Therefore a transmural
+ * slice can be simulated in one grid.
+ *
+ * <p>
+ * The currents <i>J<sub>fi</sub></i>, <i>J<sub>so</sub></i> and
+ * <i>J<sub>si</sub></i> can be scaled for each grid point by the conductances
+ * <code>{@link MinimalModel#G_FI}</code>, <code>{@link MinimalModel#G_SO}</code>
+ * and <code>{@link MinimalModel#G_SI}</code>.
+ *
+ * @author Mario Krapp
+ *
+ */
+public class MinimalModel extends RDEModel {
+
+	/**
+	 * Cell type of epicardial cells.
+	 */
+	public static final int EPI = 0;
+
+	/**
+	 * Cell type of endocardial cells.
+	 */
+	public static final int ENDO = 1;
+
+	/**
+	 * Cell type of midmyocardial cells.
+	 */
+	public static final int M = 2;
+
+	/**
+	 * Index of the conductance of the fast inward current.
+	 */
+	public static final int G_FI = 0;
+
+	/**
+	 * Index of the conductance of the slow outward current.
+	 */
+	public static final int G_SO = 1;
+
+	/**
+	 * Index of the conductance of the slow inward current.
+	 */
+	public static final int G_SI = 2;
+
+	double Du;
+	double Dv;
+	double Dw;
+	double Ds;
+
+	public MinimalModel(double Du, double Dv, double Dw, double Ds) {
+		super(4, new double[] {Du, Dv, Dw, Ds});
+		this.Du = Du;
+		this.Dv = Dv;
+		this.Dw = Dw;
+		this.Ds = Ds;
+	}
+
+	/*
+	 * Mathematical modeling and spectral simulation of ...
+	 * from Alfonso Bueno Orovio p.34
+	 *
+	 */
+//	parameters for all three cell types
+	private static final double u_m = 0.3;
+	private static final double u_p = 0.13;
+	private static final double t_v_plus = 1.45;
+	private static final double t_s1 = 2.7342;
+	private static final double k_s = 2.0994;
+	private static final double u_s = 0.9087;
+
+//	parameters for the cell types {EPI, ENDO, M}
+	private static final double[] u_u = {1.55, 1.56, 1.61};
+	private static final double[] u_q = {0.006, 0.024, 0.1};
+	private static final double[] u_r = {0.006, 0.006, 0.005};
+	private static final double[] t_v1_minus = {60, 75, 80};
+	private static final double[] t_v2_minus = {1150, 10, 1.45};
+	private static final double[] t_w1_minus = {60, 6, 70};
+	private static final double[] t_w2_minus = {15, 140, 8};
+	private static final double[] k_w_minus = {65, 200, 200};
+	private static final double[] u_w_minus = {0.03, 0.016, 0.016};
+	private static final double[] t_w_plus = {200, 280, 280};
+	private static final double[] t_fi = {0.11, 0.104, 0.078};
+	private static final double[] t_o1 = {400, 470, 410};
+	private static final double[] t_o2 = {6, 6, 7};
+	private static final double[] t_so1 = {30.02, 40, 91};
+	private static final double[] t_so2 = {0.996, 1.2, 0.8};
+	private static final double[] k_so = {2.046, 2, 2.1};
+	private static final double[] u_so = {0.65, 0.65, 0.6};
+	private static final double[] t_s2 = {16, 2, 4};
+	private static final double[] t_si = {1.8875, 2.9013, 3.3849};
+	private static final double[] t_w_inf = {0.07, 0.0273, 0.01};
+	private static final double[] w_inf_star = {0.94, 0.78, 0.5};
+
+	private double I_ext = 0;
+
+	private byte[][] type;
+	private double[][] g_fi;
+	private double[][] g_so;
+	private double[][] g_si;
+
+	@Override
+	public void setCellParameters(CellParameters cellParameters) {
+		super.setCellParameters(cellParameters);
+		type = cellParameters.getCellType();
+		g_fi = cellParameters.getConductance(G_FI);
+		g_so = cellParameters.getConductance(G_SO);
+		g_si = cellParameters.getConductance(G_SI);
+	}
+
+	public double[] function(double[][][] data, int x, int y) {
+		double[] ret = new double[4];
+		double u = data[0][x][y];
+		double v = data[1][x][y];
+		double w = data[2][x][y];
+		double s = data[3][x][y];
+		int t = type[x][y];
+		int m = (u < u_m) ? 0 : 1;
+		int p = (u < u_p) ? 0 : 1;
+		int q = (u < u_q[t]) ? 0 : 1;
+		int r = (u < u_r[t]) ? 0 : 1;
+		int v_inf = (u < u_q[t]) ? 1 : 0;
+
+		double J_fi = - v * m * (u - u_m) * (u_u[t] - u) / t_fi[t];
+		double J_so = u * (1 - p) / ((1 - r) * t_o1[t] + r * t_o2[t]) + p / (t_so1[t] + (t_so2[t] - t_so1[t]) * (1 + java.lang.StrictMath.tanh(k_so[t] * (u - u_so[t]))) / 2);
+		double J_si = - p * w * s / t_si[t];
+
+		ret[0] = - (g_fi[x][y] * J_fi + g_so[x][y] * J_so + g_si[x][y] * J_si - I_ext);
+		ret[1] = (1 - m) * (v_inf - v) / ((1 - q) * t_v1_minus[t] + q * t_v2_minus[t]) - m * v / t_v_plus;
+//		Difference in Bueno-Orovio2007 and Bueno-Orovio2007a
+		ret[2] = (1 - p) * (((1 - r) * (1 - u / t_w_inf[t]) + r * w_inf_star[t]) - w) / (t_w1_minus[t] + (t_w2_minus[t] - t_w1_minus[t]) * (1 + java.lang.StrictMath.tanh(k_w_minus[t] * (u - u_w_minus[t]))) / 2) - p * w / t_w_plus[t];
+		ret[3] = ((1 + java.lang.StrictMath.tanh(k_s * (u - u_s))) / 2 - s) / ((1 - p) * t_s1 + p * t_s2[t]);
+		return ret;
+	}
+
+}
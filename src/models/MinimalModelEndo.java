@@ -51,7 +51,7 @@ public class MinimalModelEndo extends RDEModel {
 	private static final double t_w_inf = 0.0273;
 	private static final double w_inf_star = 0.78;
 	
-	private static double I_ext = 0;
+	private double I_ext = 0;
 
 	public double[] function(double[][][] data, int x, int y) {
 		double[] ret = new double[4];
@@ -0,0 +1,105 @@
+package models;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import javax.tools.JavaFileObject.Kind;
+
+/**
+ * Compiles the source code generated by a <code>{@link ModelSpec}</code> in
+ * memory with the compiler of the running JDK and loads the class with its own
+ * <code>ClassLoader</code>.
+ *
+ * @author Mario Krapp
+ *
+ */
+class ModelCompiler {
+
+	/**
+	 * Compiles and loads a class.
+	 *
+	 * @param className
+	 *            fully qualified name of the class.
+	 * @param source
+	 *            the source code of the class.
+	 * @return the loaded class.
+	 * @throws IllegalStateException
+	 *             if the JVM has no compiler (i.e. a JRE).
+	 * @throws IllegalArgumentException
+	 *             if the source code does not compile.
+	 */
+	static Class<?> compile(String className, final String source) {
+		JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+		if (javac == null) {
+			throw new IllegalStateException(
+					"Model specifications need a JDK with a Java compiler");
+		}
+		final Map<String, ByteArrayOutputStream> classes = new HashMap<String, ByteArrayOutputStream>();
+		StandardJavaFileManager standard = javac.getStandardFileManager(null,
+				null, null);
+		JavaFileManager fm = new ForwardingJavaFileManager<StandardJavaFileManager>(
+				standard) {
+			@Override
+			public JavaFileObject getJavaFileForOutput(Location location,
+					final String name, Kind kind, FileObject sibling) {
+				return new SimpleJavaFileObject(URI.create("mem:///"
+						+ name.replace('.', '/') + kind.extension), kind) {
+					@Override
+					public OutputStream openOutputStream() {
+						ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+						classes.put(name, bytes);
+						return bytes;
+					}
+				};
+			}
+		};
+		JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///"
+				+ className.replace('.', '/') + Kind.SOURCE.extension),
+				Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return source;
+			}
+		};
+		StringWriter messages = new StringWriter();
+		boolean ok = javac.getTask(messages, fm, null,
+				Arrays.asList("-classpath", System.getProperty("java.class.path")),
+				null, Arrays.asList(file)).call();
+		if (!ok) {
+			throw new IllegalArgumentException("Model could not be compiled:\n"
+					+ messages + "\n" + source);
+		}
+
+		ClassLoader loader = new ClassLoader(RDEModel.class.getClassLoader()) {
+			@Override
+			protected Class<?> findClass(String name)
+					throws ClassNotFoundException {
+				ByteArrayOutputStream bytes = classes.get(name);
+				if (bytes == null) {
+					throw new ClassNotFoundException(name);
+				}
+				byte[] b = bytes.toByteArray();
+				return defineClass(name, b, 0, b.length);
+			}
+		};
+		try {
+			return loader.loadClass(className);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,330 @@
+package models;
+
+import static utils.PropertiesManager.loadProperties;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * <p>
+ * A <code>{@link ModelSpec}</code> describes a system of reaction diffusion
+ * equations declaratively and compiles it into a <code>{@link RDEModel}</code>
+ * at runtime. The specification is a properties file:
+ *
+ * <pre>
+ * name=FitzHughNagumo
+ * variables=v, w
+ * param.a=0.02
+ * param.b=0.25
+ * param.eps=0.003
+ * diffusion.v=1
+ * rhs.v=-v * (v - 1) * (v - a) - w
+ * rhs.w=eps * (v - b * w)
+ * init.w=0
+ * </pre>
+ *
+ * <p>
+ * The right hand sides are arithmetic expressions of the variables, the
+ * parameters, numbers, comparisons with <code>?:</code> and the functions
+ * <i>exp, log, sqrt, pow, sin, cos, tanh, sinh, cosh, abs, min, max</i> and
+ * <i>heaviside</i>. Numbers are always floating point numbers. Diffusion
+ * constants and initial values which are not given are <b>0</b>. The
+ * <code>RDEController</code> starts from the resting state next to the initial
+ * values.
+ *
+ * <p>
+ * The generated class overrides
+ * <code>{@link RDEModel#react(double[][][], int, int, int, double[][])}</code>
+ * with a loop which does not allocate, and the parameters are constants which
+ * the compiler folds into the expressions. See <code>{@link ModelCompiler}</code>.
+ *
+ * @author Mario Krapp
+ *
+ */
+public class ModelSpec {
+
+	private static final String[] FUNCTIONS = { "exp", "log", "sqrt", "pow",
+			"sin", "cos", "tanh", "sinh", "cosh", "abs", "min", "max" };
+
+	private static final String OPERATORS = "+-*/(),<>=!?:&|";
+
+	private String name;
+
+	private String[] variables;
+
+	private String[] parameters;
+
+	private double[] values;
+
+	private double[] diffusion;
+
+	private double[] initial;
+
+	/**
+	 * The right hand sides translated to Java expressions.
+	 */
+	private String[] rhs;
+
+	/**
+	 * Creates a new <code>{@link ModelSpec}</code> object from
+	 * <code>Properties</code>.
+	 *
+	 * @param p
+	 *            the specification.
+	 * @throws IllegalArgumentException
+	 *             if the specification is incomplete or an expression is
+	 *             invalid.
+	 */
+	public ModelSpec(Properties p) {
+		name = p.getProperty("name", "SpecModel");
+		if (!name.matches("[A-Za-z][A-Za-z0-9_]*")) {
+			throw new IllegalArgumentException("Invalid model name: " + name);
+		}
+		if (p.getProperty("variables") == null) {
+			throw new IllegalArgumentException("No variables given");
+		}
+		variables = p.getProperty("variables").trim().split("[\\s,]+");
+
+		List<String> names = new ArrayList<String>();
+		for (String key : p.stringPropertyNames()) {
+			if (key.startsWith("param.")) {
+				names.add(key.substring("param.".length()));
+			}
+		}
+		parameters = names.toArray(new String[names.size()]);
+		Arrays.sort(parameters);
+		values = new double[parameters.length];
+		for (int i = 0; i < parameters.length; i++) {
+			values[i] = Double.parseDouble(p.getProperty("param."
+					+ parameters[i]).trim());
+		}
+		for (String s : variables) {
+			checkName(s);
+		}
+		for (String s : parameters) {
+			checkName(s);
+		}
+
+		int n = variables.length;
+		diffusion = new double[n];
+		initial = new double[n];
+		rhs = new String[n];
+		for (int f = 0; f < n; f++) {
+			String v = variables[f];
+			diffusion[f] = Double.parseDouble(p.getProperty("diffusion." + v,
+					"0").trim());
+			initial[f] = Double.parseDouble(p.getProperty("init." + v, "0")
+					.trim());
+			if (p.getProperty("rhs." + v) == null) {
+				throw new IllegalArgumentException("No right hand side for " + v);
+			}
+			rhs[f] = translate(p.getProperty("rhs." + v));
+		}
+	}
+
+	/**
+	 * Loads a specification from a file.
+	 *
+	 * @param fileName
+	 *            name of the file.
+	 * @return the specification.
+	 */
+	public static ModelSpec load(String fileName) {
+		if (!new File(fileName).exists()) {
+			throw new IllegalArgumentException("Model specification \""
+					+ fileName + "\" does not exist");
+		}
+		return new ModelSpec(loadProperties(fileName));
+	}
+
+	private void checkName(String s) {
+		if (!s.matches("[A-Za-z][A-Za-z0-9_]*")
+				|| Arrays.asList(FUNCTIONS).contains(s)
+				|| s.equals("heaviside")) {
+			throw new IllegalArgumentException("Invalid name: " + s);
+		}
+	}
+
+	/**
+	 * Translates an expression of the specification into a Java expression.
+	 * Variables become local variables <i>v_name</i>, parameters constants
+	 * <i>p_name</i> and all numbers <code>double</code> literals. Anything else
+	 * is rejected, so the expression can not contain arbitrary Java code.
+	 */
+	private String translate(String expr) {
+		StringBuilder sb = new StringBuilder();
+		int i = 0;
+		while (i < expr.length()) {
+			char c = expr.charAt(i);
+			if (Character.isWhitespace(c)) {
+				sb.append(c);
+				i++;
+			} else if (Character.isDigit(c) || c == '.') {
+				int j = i;
+				while (j < expr.length()
+						&& (Character.isDigit(expr.charAt(j)) || expr.charAt(j) == '.')) {
+					j++;
+				}
+				if (j < expr.length()
+						&& (expr.charAt(j) == 'e' || expr.charAt(j) == 'E')) {
+					j++;
+					if (j < expr.length()
+							&& (expr.charAt(j) == '+' || expr.charAt(j) == '-')) {
+						j++;
+					}
+					while (j < expr.length() && Character.isDigit(expr.charAt(j))) {
+						j++;
+					}
+				}
+				String number = expr.substring(i, j);
+				// check the number and avoid integer arithmetic
+				Double.parseDouble(number);
+				sb.append(number.matches("[0-9]+") ? number + ".0" : number);
+				i = j;
+			} else if (Character.isLetter(c)) {
+				int j = i;
+				while (j < expr.length()
+						&& (Character.isLetterOrDigit(expr.charAt(j)) || expr
+								.charAt(j) == '_')) {
+					j++;
+				}
+				String id = expr.substring(i, j);
+				if (Arrays.asList(variables).contains(id)) {
+					sb.append("v_" + id);
+				} else if (Arrays.asList(parameters).contains(id)) {
+					sb.append("p_" + id);
+				} else if (Arrays.asList(FUNCTIONS).contains(id)) {
+					sb.append("Math." + id);
+				} else if (id.equals("heaviside")) {
+					sb.append("models.ModelSpec.heaviside");
+				} else {
+					throw new IllegalArgumentException("Unknown name \"" + id
+							+ "\" in " + expr);
+				}
+				i = j;
+			} else if (OPERATORS.indexOf(c) >= 0) {
+				sb.append(c);
+				i++;
+			} else {
+				throw new IllegalArgumentException("Invalid character '" + c
+						+ "' in " + expr);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * The Heaviside step function for the right hand sides.
+	 *
+	 * @param x
+	 *            the argument.
+	 * @return <b>1</b> if <i>x &gt;= 0</i>, otherwise <b>0</b>.
+	 */
+	public static double heaviside(double x) {
+		return x >= 0 ? 1.0 : 0.0;
+	}
+
+	/**
+	 * Generates the source code of the model.
+	 *
+	 * @param className
+	 *            the fully qualified name of the generated class.
+	 * @return the source code.
+	 */
+	public String toJava(String className) {
+		int dot = className.lastIndexOf('.');
+		int n = variables.length;
+		StringBuilder sb = new StringBuilder();
+		if (dot > 0) {
+			sb.append("package " + className.substring(0, dot) + ";\n\n");
+		}
+		sb.append("public final class " + className.substring(dot + 1)
+				+ " extends models.RDEModel {\n\n");
+		for (int i = 0; i < parameters.length; i++) {
+			sb.append("\tprivate static final double p_" + parameters[i]
+					+ " = " + Double.toString(values[i]) + ";\n");
+		}
+		sb.append("\n\tpublic " + className.substring(dot + 1)
+				+ "(double[] diffConsts) {\n");
+		sb.append("\t\tsuper(" + n + ", diffConsts);\n\t}\n\n");
+
+		// single grid point
+		sb.append("\t@Override\n");
+		sb.append("\tpublic double[] function(double[][][] data, int x, int y) {\n");
+		for (int f = 0; f < n; f++) {
+			sb.append("\t\tdouble v_" + variables[f] + " = data[" + f
+					+ "][x][y];\n");
+		}
+		sb.append("\t\tdouble[] ret = new double[" + n + "];\n");
+		for (int f = 0; f < n; f++) {
+			sb.append("\t\tret[" + f + "] = " + rhs[f] + ";\n");
+		}
+		sb.append("\t\treturn ret;\n\t}\n\n");
+
+		// runs of grid points
+		sb.append("\t@Override\n");
+		sb.append("\tpublic void react(double[][][] data, int x, int y, int n, double[][] out) {\n");
+		for (int f = 0; f < n; f++) {
+			sb.append("\t\tdouble[] r" + f + " = data[" + f + "][x];\n");
+			sb.append("\t\tdouble[] o" + f + " = out[" + f + "];\n");
+		}
+		sb.append("\t\tfor (int k = 0; k < n; k++) {\n");
+		for (int f = 0; f < n; f++) {
+			sb.append("\t\t\tdouble v_" + variables[f] + " = r" + f
+					+ "[y + k];\n");
+		}
+		for (int f = 0; f < n; f++) {
+			sb.append("\t\t\to" + f + "[k] = " + rhs[f] + ";\n");
+		}
+		sb.append("\t\t}\n\t}\n\n}\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Compiles the specification into a new <code>{@link RDEModel}</code>.
+	 *
+	 * @return the model with the diffusion constants of the specification.
+	 */
+	public RDEModel compile() {
+		String className = "models.spec." + name;
+		Class<?> c = ModelCompiler.compile(className, toJava(className));
+		try {
+			return (RDEModel) c.getConstructor(double[].class).newInstance(
+					(Object) diffusion.clone());
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return the name of the model.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the names of the variables.
+	 */
+	public String[] getVariables() {
+		return variables;
+	}
+
+	/**
+	 * @return the diffusion constants of the variables.
+	 */
+	public double[] getDiffusion() {
+		return diffusion;
+	}
+
+	/**
+	 * @return the initial values of the variables.
+	 */
+	public double[] getInitial() {
+		return initial;
+	}
+
+}
@@ -11,10 +11,10 @@ public class Oregonator extends RDEModel {
 		this.Dv = Dv;
 	}
 
-	private static final double eps = 1.0 / 0.08;
-	private static final double phi = 0.0071;
-	private static final double q = 0.005;
-	private static final double f = 1.4;
+	public static final double eps = 1.0 / 0.08;
+	public static final double phi = 0.0071;
+	public static final double q = 0.005;
+	public static final double f = 1.4;
 	
 	@Override
 	public double[] function(double[][][] data, int x, int y) {
@@ -26,4 +26,16 @@ public class Oregonator extends RDEModel {
 		return ret;
 	}
 
+	@Override
+	public void react(double[][][] data, int x, int y, int n, double[][] out) {
+		double[] u = data[0][x];
+		double[] v = data[1][x];
+		for (int k = 0; k < n; k++) {
+			double uk = u[y + k];
+			double vk = v[y + k];
+			out[0][k] = eps * (uk - (uk * uk) - (f * vk + phi) * (uk - q) / (uk + q));
+			out[1][k] = uk - vk;
+		}
+	}
+
 }
@@ -24,6 +24,11 @@ public abstract class RDEModel {
 	 */
 	public double[] diffConsts;
 
+	/**
+	 * The parameters which may differ from grid point to grid point.
+	 */
+	protected CellParameters cellParameters;
+
 	/**
 	 * Creates a new <code>{@link RDEModel}</code> object which contains the
 	 * system of PDEs with their different diffusion constants.
@@ -52,6 +57,27 @@ public abstract class RDEModel {
 		return diffConsts;
 	}
 
+	/**
+	 * @return the parameters which may differ from grid point to grid point.
+	 */
+	public CellParameters getCellParameters() {
+		return cellParameters;
+	}
+
+	/**
+	 * Sets the parameters which may differ from grid point to grid point. The
+	 * dimensions of <code>cellParameters</code> have to match the grid of the
+	 * <code>{@link RDESolver}</code>. Models which depend on these parameters
+	 * override this method to keep references to the <code>Array</code>s they
+	 * need.
+	 * 
+	 * @param cellParameters
+	 *            the new parameters.
+	 */
+	public void setCellParameters(CellParameters cellParameters) {
+		this.cellParameters = cellParameters;
+	}
+
 	/**
 	 * The system of coupled PDEs which shall be solved numerically on a grid
 	 * with length <i>x</i> and width <i>y</i>.
@@ -68,4 +94,55 @@ public abstract class RDEModel {
 	 */
 	public abstract double[] function(double[][][] data, int x, int y);
 
-}
\ No newline at end of file
+	/**
+	 * Calculates the reaction terms for the consecutive grid points
+	 * <i>(x,y)</i> to <i>(x,y+n-1)</i>. The default implementation calls
+	 * <code>{@link RDEModel#function(double[][][], int, int)}</code> for each
+	 * grid point. Models with simple equations override it with a loop over
+	 * the rows, which can be vectorized.
+	 * 
+	 * @param data
+	 *            <code>Array</code> of data for each variable at each point
+	 *            <i>(x,y)</i>.
+	 * @param x
+	 *            x-coordinate of the grid points.
+	 * @param y
+	 *            y-coordinate of the first grid point.
+	 * @param n
+	 *            number of grid points.
+	 * @param out
+	 *            the reaction term of variable <i>f</i> at grid point
+	 *            <i>(x,y+k)</i> is stored in <code>out[f][k]</code>.
+	 */
+	public void react(double[][][] data, int x, int y, int n, double[][] out) {
+		for (int k = 0; k < n; k++) {
+			double[] ret = function(data, x, y + k);
+			for (int f = 0; f < fieldCount; f++) {
+				out[f][k] = ret[f];
+			}
+		}
+	}
+
+	/**
+	 * Calculates the Jacobian of
+	 * <code>{@link RDEModel#function(double[][][], int, int)}</code> at grid
+	 * point <i>(x,y)</i>. Models may override it with the derivatives, otherwise
+	 * the solvers use finite differences.
+	 * 
+	 * @param data
+	 *            <code>Array</code> of data for each variable at each point
+	 *            <i>(x,y)</i>.
+	 * @param x
+	 *            x-coordinate of the grid point.
+	 * @param y
+	 *            y-coordinate of the grid point.
+	 * @param jac
+	 *            the derivative of equation <i>i</i> by variable <i>j</i> is
+	 *            stored in <code>jac[i][j]</code>.
+	 * @return <code>false</code> if the model does not provide the Jacobian.
+	 */
+	public boolean jacobian(double[][][] data, int x, int y, double[][] jac) {
+		return false;
+	}
+
+}
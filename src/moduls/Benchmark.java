@@ -0,0 +1,150 @@
+package moduls;
+
+import static utils.Parser.getInteger;
+import static utils.Printer.print;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import models.FitzHughNagumoModel;
+import models.Heat;
+import models.MinimalModel;
+import models.Oregonator;
+import models.RDEModel;
+import rdeapprox.RDESolver;
+import rdeapprox.Simd;
+import rdeapprox.SolverConfig;
+
+/**
+ * Measures the throughput of the <code>{@link RDESolver}</code> in grid point
+ * updates per second, once with the generic kernel and once with the kernel
+ * selected for the model. Each measurement runs in a new JVM with the
+ * options of this one, so the profile the JIT compiler collected for one
+ * kernel does not slow down the other. The median of several runs is
+ * printed.
+ *
+ * @author Mario Krapp
+ */
+public class Benchmark {
+
+	private static final String[] MODELS = { "fhn", "oregonator", "heat",
+			"mm" };
+
+	private static final String[] KERNELS = { "generic", "auto" };
+
+	/**
+	 * The number of runs of each model and kernel.
+	 */
+	private static final int RUNS = 3;
+
+	private static RDEModel createModel(String name) {
+		if (name.equals("fhn")) {
+			return new FitzHughNagumoModel(1, 0);
+		} else if (name.equals("oregonator")) {
+			return new Oregonator(1.0, 0.6);
+		} else if (name.equals("heat")) {
+			return new Heat(1.0);
+		}
+		return new MinimalModel(0.1171, 0, 0, 0);
+	}
+
+	/**
+	 * @return million grid point updates per second.
+	 */
+	private static double measure(String model, SolverConfig config,
+			int steps) {
+		RDESolver rde = new RDESolver(createModel(model), config);
+		for (int x = 0; x < rde.getDimX() / 10; x++) {
+			for (int y = 0; y < rde.getDimY(); y++) {
+				rde.setValue(0, x, y, 1.0);
+			}
+		}
+		// warm up
+		rde.nextTimeSteps(steps / 4 + 1);
+		long start = System.nanoTime();
+		rde.nextTimeSteps(steps);
+		long time = System.nanoTime() - start;
+		return (double) rde.getGeometry().getCellCount() * steps * 1000 / time;
+	}
+
+	/**
+	 * Measures a model and a kernel in a new JVM.
+	 *
+	 * @return million grid point updates per second.
+	 */
+	private static double fork(int dimX, int dimY, int steps, String model,
+			String kernel) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin"
+				+ File.separator + "java");
+		command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(Benchmark.class.getName());
+		command.addAll(Arrays.asList("" + dimX, "" + dimY, "" + steps, model,
+				kernel));
+		Process process = new ProcessBuilder(command).redirectErrorStream(
+				true).start();
+		BufferedReader in = new BufferedReader(new InputStreamReader(process
+				.getInputStream()));
+		String result = null;
+		for (String line = in.readLine(); line != null; line = in.readLine()) {
+			result = line;
+		}
+		if (process.waitFor() != 0 || result == null) {
+			throw new IllegalStateException("Benchmark of " + model
+					+ " failed: " + result);
+		}
+		return Double.parseDouble(result);
+	}
+
+	/**
+	 * Prints the table, or with a model and a kernel as fourth and fifth
+	 * argument only the throughput of this kernel.
+	 */
+	public static void main(String[] args) throws Exception {
+		int dimX = args.length > 0 ? getInteger(args[0]) : 256;
+		int dimY = args.length > 1 ? getInteger(args[1]) : 256;
+		int steps = args.length > 2 ? getInteger(args[2]) : 200;
+
+		if (args.length > 4) {
+			Properties p = new Properties();
+			p.setProperty("dimension", "2");
+			p.setProperty("boundary_condition", "noflux");
+			p.setProperty("time_step", "0.01");
+			p.setProperty("spatial_step", "0.5");
+			p.setProperty("x_dimension", "" + dimX);
+			p.setProperty("y_dimension", "" + dimY);
+			p.setProperty("kernel", args[4]);
+			print(measure(args[3], new SolverConfig(p), steps));
+			return;
+		}
+
+		DecimalFormat df = new DecimalFormat("0.0");
+		print("Grid " + dimX + "x" + dimY + ", " + steps + " steps, vector kernels "
+				+ (Simd.ENABLED ? "on" : "off") + ", median of " + RUNS
+				+ " runs");
+		print("model\tgeneric\tselected\t[Mcells/s]");
+		for (String model : MODELS) {
+			StringBuilder sb = new StringBuilder(model);
+			for (String kernel : KERNELS) {
+				double[] runs = new double[RUNS];
+				for (int r = 0; r < RUNS; r++) {
+					runs[r] = fork(dimX, dimY, steps, model, kernel);
+				}
+				Arrays.sort(runs);
+				sb.append("\t" + df.format(runs[RUNS / 2]));
+			}
+			print(sb.toString());
+		}
+	}
+
+}
@@ -0,0 +1,241 @@
+package moduls;
+
+import static utils.MyLogger.getLogger;
+import static utils.Printer.print;
+import static utils.Writer.write;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import controlling.RDEController;
+import controlling.SimulationConfig;
+import rdeapprox.SolverConfig;
+
+/**
+ * <p>
+ * Measures the restitution of the action potential duration (APD) and of the
+ * conduction velocity (CV) in a cable with the parameters of
+ * <i>tws.config</i>: the cable is paced <i>s1</i> times with the period
+ * <i>bcl</i> at its left end. Then <i>s2</i> stimuli follow, each one a
+ * diastolic interval (DI) after the repolarization of the measuring point at
+ * a quarter of the cable. The APD and the CV between a quarter and three
+ * quarters of the cable of the last stimulus are written for each DI from
+ * <i>di_start</i> to <i>di_end</i> with the step <i>stepsize</i>. For
+ * <i>s1=0</i> each DI is paced from rest (dynamic protocol).
+ *
+ * <p>
+ * The state after the <i>s1</i> stimuli is calculated only once. Each DI
+ * starts from a copy of this state, see
+ * <code>RDESolver.saveState()</code>, and the DIs are calculated in
+ * parallel.
+ *
+ * @author Mario Krapp
+ */
+public class Restitution {
+
+	private static Logger logger = getLogger(Restitution.class
+			.getSimpleName(), Level.ALL);
+
+	private SimulationConfig config;
+
+	private double strength;
+
+	private int width;
+
+	private double threshold;
+
+	private double bcl;
+
+	private double dt;
+
+	private int x1;
+
+	private int x2;
+
+	private double distance;
+
+	/**
+	 * Creates the protocol for a cable with the discretization of
+	 * <i>rde.config</i>.
+	 *
+	 * @param configFile
+	 *            the configuration of the model and the protocol.
+	 * @param RDEConfigFile
+	 *            the configuration of the solver. The dimension is always
+	 *            <b>1</b>.
+	 */
+	public Restitution(String configFile, String RDEConfigFile) {
+		config = SimulationConfig.load(configFile, SolverConfig.load(
+				RDEConfigFile).with("dimension", "1"));
+		strength = config.getStrength();
+		width = config.getWidth();
+		threshold = config.getThreshold();
+		bcl = config.getBcl();
+	}
+
+	/**
+	 * Runs the protocol.
+	 *
+	 * @return the table with the columns DI, APD and CV. The APD and CV are
+	 *         <i>NaN</i> if the last stimulus was blocked.
+	 */
+	public String run() throws Exception {
+		RDEController rc = new RDEController(config);
+		dt = rc.getRde().getDt();
+		int dimX = rc.getRde().getDimX();
+		x1 = dimX / 4;
+		x2 = 3 * dimX / 4;
+		distance = (x2 - x1) * rc.getRde().getDh();
+
+		int s1 = config.getS1();
+		final int s2 = config.getS2();
+		for (int b = 0; b < s1; b++) {
+			rc.stimulateLeft(width, strength);
+			rc.doTimeSteps(Math.round(bcl / dt));
+		}
+		if (s1 > 0) {
+			rc.stimulateLeft(width, strength);
+			stepUntil(rc, true, bcl);
+			stepUntil(rc, false, bcl);
+		}
+		final double[][][][] state = rc.getRde().saveState();
+		logger.info("Prepaced " + s1 + " beats.");
+
+		List<Double> intervals = new ArrayList<Double>();
+		double start = config.getDiStart();
+		double step = config.getStepSize();
+		// from the index, so fractional steps neither drift nor drop di_end
+		long n = Math.round((config.getDiEnd() - start) / step) + 1;
+		for (long i = 0; i < n; i++) {
+			intervals.add(start + i * step);
+		}
+		int threads = Math.min(intervals.size(), config.getThreads());
+		final BlockingQueue<RDEController> solvers = new ArrayBlockingQueue<RDEController>(
+				threads);
+		solvers.add(rc);
+		for (int t = 1; t < threads; t++) {
+			solvers.add(new RDEController(config));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<double[]>> results = new ArrayList<Future<double[]>>();
+		for (final double di : intervals) {
+			results.add(executor.submit(new Callable<double[]>() {
+				public double[] call() throws InterruptedException {
+					RDEController r = solvers.take();
+					try {
+						r.getRde().restoreState(state);
+						return interval(r, di, s2);
+					} finally {
+						solvers.add(r);
+					}
+				}
+			}));
+		}
+		StringBuilder sb = new StringBuilder();
+		try {
+			for (int i = 0; i < intervals.size(); i++) {
+				double[] apdCV = results.get(i).get();
+				sb.append(intervals.get(i) + "\t" + apdCV[0] + "\t" + apdCV[1]
+						+ "\n");
+			}
+		} finally {
+			executor.shutdown();
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Paces with a certain DI, starting at the repolarization of the
+	 * measuring point. Each DI is timed from the repolarization of the
+	 * measuring point, even if the wave reaches the second point later.
+	 *
+	 * @return the APD and the CV of the last stimulus.
+	 */
+	private double[] interval(RDEController r, double di, int beats) {
+		double apd = Double.NaN;
+		double cv = Double.NaN;
+		// the time since the last repolarization of the measuring point
+		double since = 0;
+		for (int b = 0; b < beats; b++) {
+			r.doTimeSteps(Math.max(0, Math.round((di - since) / dt)));
+			r.stimulateLeft(width, strength);
+			apd = Double.NaN;
+			cv = Double.NaN;
+			// the stimulus has to arrive within the DI
+			double wait = Math.max(di, 100 * dt);
+			double t1 = stepUntil(r, true, wait);
+			if (Double.isNaN(t1)) {
+				break;
+			}
+			double t2 = Double.NaN;
+			double down = Double.NaN;
+			double t = t1;
+			// the previous wave may not have left the second point yet
+			boolean rested = !r.isAbove(x2, 0, threshold);
+			while (Double.isNaN(down) || Double.isNaN(t2)) {
+				r.doTimeSteps(1);
+				t += dt;
+				if (!rested) {
+					rested = !r.isAbove(x2, 0, threshold);
+				} else if (Double.isNaN(t2) && r.isAbove(x2, 0, threshold)) {
+					t2 = t;
+				}
+				if (Double.isNaN(down) && !r.isAbove(x1, 0, threshold)) {
+					down = t;
+				}
+				if (t - t1 > wait + bcl) {
+					break;
+				}
+			}
+			apd = down - t1;
+			cv = distance / (t2 - t1);
+			if (Double.isNaN(down)) {
+				break;
+			}
+			since = t - down;
+		}
+		return new double[] { apd, cv };
+	}
+
+	/**
+	 * Calculates until the first variable at the measuring point rises above
+	 * or falls below the threshold.
+	 *
+	 * @return the time of the crossing or <i>NaN</i> after
+	 *         <code>maxTime</code>.
+	 */
+	private double stepUntil(RDEController r, boolean above, double maxTime) {
+		double t = 0;
+		while (r.isAbove(x1, 0, threshold) != above) {
+			if (t > maxTime) {
+				return Double.NaN;
+			}
+			r.doTimeSteps(1);
+			t += dt;
+		}
+		return t;
+	}
+
+	public static void main(String[] args) throws Exception {
+		String config = args.length > 0 ? args[0] : "tws.config";
+		String rdeConfig = args.length > 1 ? args[1] : "rde.config";
+		Restitution restitution = new Restitution(config, rdeConfig);
+		long start = System.currentTimeMillis();
+		String table = restitution.run();
+		String fileName = "restitution." + new File(config).getName() + ".dat";
+		write(fileName, "#DI\tAPD\tCV\n" + table);
+		print(table);
+		logger.info("Written " + fileName + " in "
+				+ (System.currentTimeMillis() - start) / 1000 + "s.");
+	}
+
+}
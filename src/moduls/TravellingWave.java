@@ -4,17 +4,24 @@ import static utils.MyLogger.getLogger;
 import static utils.Parser.getDouble;
 import static utils.Parser.getInteger;
 import static utils.Printer.print;
-import static utils.PropertiesManager.loadProperties;
-import static utils.PropertiesManager.storeProperties;
 import static utils.Writer.write;
 
 import java.io.File;
+import java.io.IOException;
 import java.text.DecimalFormat;
-import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import controlling.ControlServer;
+import controlling.FrameRenderer;
+import controlling.FrameRing;
+import controlling.FrameStreamer;
 import controlling.RDEController;
+import controlling.SimulationConfig;
+import controlling.StepObserver;
+import rdeapprox.CellEngine;
+import rdeapprox.StimulusSchedule;
+import rdeapprox.TravellingWaveSolver;
 
 public class TravellingWave {
 
@@ -24,25 +31,20 @@ public class TravellingWave {
 	private static RDEController rc = new RDEController("tws.config",
 			"rde.config");
 
-	private final static double STRENGTH = getDouble(rc.getProperties()
-			.getProperty("strength"));
-	private final static int WIDTH = getInteger(rc.getProperties().getProperty(
-			"width"));
-	private final static int SHOWSTEP = getInteger(rc.getProperties()
-			.getProperty("show_step"));
-	private final static int GRIDSTEP = getInteger(rc.getProperties()
-			.getProperty("gridstep"));
-	private final static double THRESHOLD = getDouble(rc.getProperties()
-			.getProperty("threshold"));
+	private final static double STRENGTH = rc.getConfig().getStrength();
+	private final static int WIDTH = rc.getConfig().getWidth();
+	private final static int SHOWSTEP = rc.getConfig().getShowStep();
+	private final static int GRIDSTEP = rc.getConfig().getGridStep();
+	private final static double THRESHOLD = rc.getConfig().getThreshold();
 
 	// Get some important quantities
 	private final static double DT = rc.getRde().getDt();
 	private final static int DIMX = rc.getRde().getDimX();
 	private final static int DIMY = rc.getRde().getDimY();
 
-	private final static String FOLDERNAME = rc.getRde().getModel().getClass()
-			.getSimpleName()
-			+ "." + DIMX + "." + DIMY;
+	private final static String FOLDERNAME = rc.getConfig().getOutput(
+			rc.getRde().getModel().getClass().getSimpleName() + "." + DIMX
+					+ "." + DIMY);
 	private final static File STOPFILE = new File(FOLDERNAME + "/stop");
 
 	private StringBuilder sb = new StringBuilder();
@@ -57,15 +59,13 @@ public class TravellingWave {
 	}
 
 	// Danke an Martin für diese Idee
-	private boolean stopMe() {
-		return STOPFILE.exists();
+	private void stopOnFile() {
+		rc.getRunControl().stopOnFile(STOPFILE);
 	}
 
 	private void spiralWave() {
-		Properties p = loadProperties("rde.config");
-		p.setProperty("dimension", "" + 1);
-		storeProperties(p, "rde.config");
-		RDEController r = new RDEController("tws.config", "rde.config");
+		RDEController r = new RDEController(rc.getConfig().with(
+				rc.getConfig().getSolver().with("dimension", "1")));
 		r.stimulate(0, 0, STRENGTH);
 		while (r.getData(0, (int) 5 * DIMX / 6, 0) < THRESHOLD) {
 			r.doTimeSteps(1);
@@ -73,71 +73,193 @@ public class TravellingWave {
 		for (int f = 0; f < rc.getRde().getModel().getFieldCount(); f++) {
 			for (int y = 0; y < DIMY / 2; y++) {
 				for (int x = 0; x < DIMX; x++) {
-					rc.getRde().getData()[rc.getRde().getActArray()][f][x][y] = r
-							.getData(f, x, 0);
+					rc.getRde().setValue(f, x, y, r.getData(f, x, 0));
 				}
 			}
 		}
-		p.setProperty("dimension", "" + 2);
-		storeProperties(p, "rde.config");
 		logger.info("Spiral wave initiated.");
 		writeData();
-		while (!stopMe()) {
-			rc.doTimeSteps(SHOWSTEP);
-			writeData();
-			logger.info("Data written for time: "
-					+ df.format(rc.getTimeElapsed()) + "s.");
-		}
+		writeDataEvery(SHOWSTEP);
 	}
 
 	private void planarWave(double period) {
-		for (int y = 0; y < DIMY; y++) {
-			rc.stimulate(0, y, STRENGTH);
-		}
-		double steps = period / DT;
-		while (!stopMe()) {
-			while (steps > 0) {
-				rc.doTimeSteps(1);
-				if ((int) steps % SHOWSTEP == 0) {
-					writeData();
-					logger.info("Data written for time: "
-							+ df.format(rc.getTimeElapsed()) + "s.");
+		StimulusSchedule schedule = new StimulusSchedule();
+		schedule.addRectangle(DIMX, DIMY, 0, 1, 0, DIMY, STRENGTH, 0, rc
+				.getConfig().getDuration(), period, 0);
+		rc.getRde().setStimulusSchedule(schedule);
+		writeDataEvery(SHOWSTEP);
+	}
+
+	private void targetWave(double period) {
+		int posX = (int) (rc.getRde().getDimX() / 3);
+		int posY = (int) (rc.getRde().getDimY() / 3);
+		StimulusSchedule schedule = new StimulusSchedule();
+		schedule.addRectangle(DIMX, DIMY, posX, posX + WIDTH, posY, posY
+				+ WIDTH + 1, STRENGTH, 0, rc.getConfig().getDuration(), period,
+				0);
+		rc.getRde().setStimulusSchedule(schedule);
+		writeDataEvery(SHOWSTEP);
+	}
+
+	/**
+	 * Writes the data every <i>steps</i> time steps until the stop file
+	 * exists.
+	 */
+	private void writeDataEvery(long steps) {
+		rc.addObserver(new StepObserver() {
+			public void observe(RDEController r, long step) {
+				writeData();
+				logger.info("Data written for time: "
+						+ df.format(r.getTimeElapsed()) + "s.");
+			}
+		}, steps);
+		stopOnFile();
+		ControlServer server = null;
+		FrameStreamer streamer = null;
+		FrameRing ring = null;
+		FrameRenderer renderer = null;
+		SimulationConfig c = rc.getConfig();
+		// the outputs are closed even if the calculation fails
+		try {
+			if (c.getHttpPort() > 0) {
+				try {
+					server = new ControlServer(rc, c.getHttpPort(), steps);
+					server.start();
+				} catch (IOException e) {
+					logger.log(Level.WARNING, "No control server", e);
+				}
+			}
+			if (c.getStreamPort() > 0) {
+				try {
+					streamer = new FrameStreamer(rc.getRde(), c.getStreamPort(),
+							0, GRIDSTEP, c.getStreamFps());
+					streamer.attach(rc);
+				} catch (IOException e) {
+					logger.log(Level.WARNING, "No frame streamer", e);
+				}
+			}
+			if (c.getRingFile() != null) {
+				try {
+					ring = new FrameRing(rc.getRde(), new File(c.getRingFile()),
+							0, GRIDSTEP, c.getRingSlots());
+					ring.attach(rc, steps);
+				} catch (IOException e) {
+					logger.log(Level.WARNING, "No frame ring", e);
+				}
+			}
+			if (c.getRenderDir() != null || c.getRenderGif() != null) {
+				renderer = new FrameRenderer(rc.getRde(),
+						c.getRenderDir() != null ? new File(c.getRenderDir())
+								: null, 0, GRIDSTEP, c.getRenderThreads(), c
+								.isAutoscale(), c.isShowScales());
+				try {
+					if (c.getRenderGif() != null) {
+						renderer.writeGif(new File(c.getRenderGif()), c
+								.getRenderFps());
+					}
+					renderer.attach(rc, steps);
+				} catch (IOException e) {
+					logger.log(Level.WARNING, "No frame renderer", e);
+				}
+			}
+			rc.run(Long.MAX_VALUE);
+		} finally {
+			if (renderer != null) {
+				try {
+					renderer.close();
+				} catch (IOException e) {
+					logger.log(Level.WARNING, "Exception occurred", e);
 				}
-				steps--;
 			}
-			steps = period / DT;
-			for (int y = 0; y < DIMY; y++) {
-				rc.stimulate(0, y, STRENGTH);
+			if (ring != null) {
+				try {
+					ring.close();
+				} catch (IOException e) {
+					logger.log(Level.WARNING, "Exception occurred", e);
+				}
+			}
+			if (server != null) {
+				server.stop();
+			}
+			if (streamer != null) {
+				streamer.close();
 			}
 		}
 	}
-	
-	private void stimulatePoint(int posX, int posY) {
-		for (int x = posX; x < posX + WIDTH; x++) {
-			for (int y = posY; y <= posY + WIDTH; y++) {
-				rc.stimulate(x, y, STRENGTH);
+
+	/**
+	 * Paces a single cell with <i>beats</i> stimuli of the given period and
+	 * writes the upstroke time and the action potential duration of each
+	 * beat, measured at <i>threshold</i>.
+	 */
+	private void pace(double bcl) {
+		CellEngine engine = rc.createCellEngine();
+		int beats = rc.getConfig().getBeats();
+		engine.addThreshold(0, THRESHOLD);
+		engine.pace(0, bcl, beats, rc.getConfig().getDuration(), STRENGTH);
+		engine.integrate(beats * bcl);
+		double upstroke = Double.NaN;
+		int beat = 0;
+		for (CellEngine.Crossing c : engine.getCrossings()) {
+			if (c.rising) {
+				upstroke = c.time;
+			} else if (!Double.isNaN(upstroke)) {
+				sb.append(beat++ + "\t" + upstroke + "\t" + (c.time - upstroke)
+						+ "\n");
+				upstroke = Double.NaN;
 			}
 		}
+		write(FOLDERNAME + "/pace." + bcl + ".dat", sb.toString());
+		sb.setLength(0);
+		logger.info(beat + " action potentials in " + engine.getStepCount()
+				+ " steps.");
 	}
 
-	private void targetWave(double period) {
-		int posX = (int) (rc.getRde().getDimX() / 3);
-		int posY = (int) (rc.getRde().getDimY() / 3);
-		stimulatePoint(posX, posY);
-		int steps = (int) (period / DT);
-		while (!stopMe()) {
-			while (steps > 0) {
-				rc.doTimeSteps(1);
-				if (steps % SHOWSTEP == 0) {
-					writeData();
-					logger.info("Data written for time: "
-							+ df.format(rc.getTimeElapsed()) + "s.");
-				}
-				steps--;
+	/**
+	 * Finds the speed and the profile of a travelling pulse between two
+	 * speeds and writes the profile.
+	 */
+	private void speed(double cMin, double cMax) {
+		TravellingWaveSolver tws = createSolver(rc.getRde().getModel()
+				.getDiffConsts()[0]);
+		double c = tws.speed(cMin, cMax);
+		for (double[] row : tws.profile(c, rc.getRde().getDh())) {
+			for (double v : row) {
+				sb.append(v + "\t");
 			}
-			steps = (int) (period / DT);
-			stimulatePoint(posX, posY);
+			sb.append("\n");
+		}
+		write(FOLDERNAME + "/speed." + c + ".dat", sb.toString());
+		sb.setLength(0);
+		logger.info("Speed of the pulse: " + c);
+	}
+
+	/**
+	 * Writes the speed of the pulse for <code>count</code> diffusion
+	 * constants from <code>dStart</code> to <code>dEnd</code>.
+	 */
+	private void sweep(double cMin, double cMax, double dStart, double dEnd,
+			int count) {
+		for (int i = 0; i < count; i++) {
+			double d = count > 1 ? dStart + (dEnd - dStart) * i / (count - 1)
+					: dStart;
+			double c = createSolver(d).speed(cMin, cMax);
+			sb.append(d + "\t" + c + "\n");
+			logger.info("D = " + d + ": c = " + c);
+		}
+		write(FOLDERNAME + "/sweep.dat", sb.toString());
+		sb.setLength(0);
+	}
+
+	private TravellingWaveSolver createSolver(double diffusion) {
+		double[] rest = new double[rc.getRde().getModel().getFieldCount()];
+		for (int f = 0; f < rest.length; f++) {
+			rest[f] = rc.getData(f, 0, 0);
 		}
+		TravellingWaveSolver tws = new TravellingWaveSolver(rc.getRde()
+				.getModel(), rest, diffusion);
+		tws.setThreads(rc.getConfig().getThreads());
+		return tws;
 	}
 
 	private void writeData() {
@@ -161,12 +283,21 @@ public class TravellingWave {
 				tw.planarWave(getDouble(args[1]));
 			} else if (args[0].equals("target")) {
 				tw.targetWave(getDouble(args[1]));
+			} else if (args[0].equals("pace")) {
+				tw.pace(getDouble(args[1]));
+			} else if (args[0].equals("speed")) {
+				tw.speed(getDouble(args[1]), getDouble(args[2]));
+			} else if (args[0].equals("sweep")) {
+				tw.sweep(getDouble(args[1]), getDouble(args[2]),
+						getDouble(args[3]), getDouble(args[4]),
+						getInteger(args[5]));
 			}
 		} else {
 			print("Usage:\n\tjava -jar TravellingWave.jar [options]");
 			print("");
-			print("Options are: spiral, planar <period>, target <period>");
-			print("<period> has to be the second argument for target and planar!");
+			print("Options are: spiral, planar <period>, target <period>, pace <period>,");
+			print("\tspeed <c_min> <c_max>, sweep <c_min> <c_max> <D_start> <D_end> <count>");
+			print("<period> has to be the second argument for target, planar and pace!");
 		}
 
 	}
@@ -0,0 +1,93 @@
+package rdeapprox;
+
+/**
+ * <p>
+ * The diffusion term <i>div(D grad u)</i> for a constant conductivity tensor
+ * <i>D</i> of tissue with fibers. Along the fibers the diffusion constant of
+ * the model is used, perpendicular to them it is scaled by
+ * <code>ratio</code>. The fibers are rotated by <code>angle</code> against
+ * the x-axis.
+ *
+ * <p>
+ * The mixed derivative is calculated from the diagonal neighbours of
+ * <code>{@link Geometry#getDiagX(int)}</code>.
+ *
+ * @author Mario Krapp
+ */
+public class AnisotropicLaplacian implements DiffusionOperator {
+
+    private double dxx, dyy, dxy;
+
+    private int[] xm, xp, ym, yp;
+
+    private int[] d0x, d0y, d1x, d1y, d2x, d2y, d3x, d3y;
+
+    /**
+     * The factor of the grid point itself, including the neighbours which
+     * are <b>zero</b> due to the boundary conditions.
+     */
+    private double[] center;
+
+    private double dh;
+
+    /**
+     * Creates a new <code>{@link AnisotropicLaplacian}</code> object.
+     *
+     * @param angle
+     *                angle of the fibers against the x-axis in degrees.
+     * @param ratio
+     *                ratio of the diffusion constant perpendicular to the
+     *                fibers and along the fibers.
+     */
+    public AnisotropicLaplacian(double angle, double ratio) {
+	double cos = Math.cos(Math.toRadians(angle));
+	double sin = Math.sin(Math.toRadians(angle));
+	dxx = cos * cos + ratio * sin * sin;
+	dyy = sin * sin + ratio * cos * cos;
+	dxy = (1 - ratio) * sin * cos;
+    }
+
+    public void connect(Geometry geometry, double dh) {
+	this.dh = dh;
+	xm = geometry.getXm();
+	xp = geometry.getXp();
+	ym = geometry.getYm();
+	yp = geometry.getYp();
+	d0x = geometry.getDiagX(0);
+	d0y = geometry.getDiagY(0);
+	d1x = geometry.getDiagX(1);
+	d1y = geometry.getDiagY(1);
+	d2x = geometry.getDiagX(2);
+	d2y = geometry.getDiagY(2);
+	d3x = geometry.getDiagX(3);
+	d3y = geometry.getDiagY(3);
+	byte[] open = geometry.getOpen();
+	byte[] openX = geometry.getOpenX();
+	byte[] openDiag = geometry.getOpenDiag();
+	center = new double[open.length];
+	for (int c = 0; c < open.length; c++) {
+	    // the diagonals (+1,+1) and (-1,-1) count positive in u_xy
+	    int mixed = (openDiag[c] & 1) - ((openDiag[c] >> 1) & 1)
+		    - ((openDiag[c] >> 2) & 1) + ((openDiag[c] >> 3) & 1);
+	    center[c] = dxx * (2 + openX[c]) + dyy * (2 + open[c] - openX[c])
+		    + dxy / 2 * mixed;
+	}
+    }
+
+    public void laplace(double[][] u, int x, int y, int from, int to,
+	    double[] out) {
+	double[] ux = u[x];
+	double h2 = dh * dh;
+	double dxy2 = dxy / 2;
+	for (int c = from; c < to; c++, y++) {
+	    double uxx = u[xm[c]][y] + u[xp[c]][y];
+	    double uyy = ux[ym[c]] + ux[yp[c]];
+	    double uxy = u[d0x[c]][d0y[c]] - u[d1x[c]][d1y[c]]
+		    - u[d2x[c]][d2y[c]] + u[d3x[c]][d3y[c]];
+	    out[c - from] = (dxx * uxx + dyy * uyy + dxy2 * uxy - center[c]
+		    * ux[y])
+		    / h2;
+	}
+    }
+
+}
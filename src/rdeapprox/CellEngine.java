@@ -0,0 +1,473 @@
+package rdeapprox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import models.CellParameters;
+import models.RDEModel;
+
+/**
+ * <p>
+ * The <code>{@link CellEngine}</code> integrates the equations of a
+ * <code>{@link RDEModel}</code> for a single cell without diffusion. The
+ * state is a flat vector and the time step is chosen adaptively by the
+ * <b>ROS2</b> Rosenbrock method (L-stable, order 2 with an embedded method of
+ * order 1), so stiff models take large steps between the action potentials
+ * and small steps during the upstroke.
+ *
+ * <p>
+ * One step with <i>W = I - &gamma; h J</i> and <i>&gamma; = 1 + 1/&radic;2</i>
+ * is
+ *
+ * <pre>
+ * W k1 = f(y)
+ * W k2 = f(y + h k1) - 2 k1
+ * y' = y + 3/2 h k1 + 1/2 h k2
+ * </pre>
+ *
+ * where the Jacobian <i>J</i> is calculated by finite differences. The error
+ * is estimated by the difference to the Euler step <i>y + h k1</i>.
+ *
+ * <p>
+ * Stimuli are either instantaneous kicks of the first variable (duration
+ * <b>0</b>, as <code>RDEController.stimulate</code>) or currents added to the
+ * first variable during a window. The integration stops exactly at the start
+ * and end of each stimulus. Crossings of thresholds are located within a step
+ * by cubic Hermite interpolation, see
+ * <code>{@link CellEngine#addThreshold(int, double)}</code>.
+ *
+ * @author Mario Krapp
+ */
+public class CellEngine {
+
+    private static final double GAMMA = 1 + 1 / Math.sqrt(2);
+
+    /**
+     * A crossing of a threshold.
+     */
+    public static class Crossing {
+
+	/**
+	 * The time of the crossing.
+	 */
+	public final double time;
+
+	/**
+	 * The variable which crossed its threshold.
+	 */
+	public final int field;
+
+	/**
+	 * <code>true</code> if the variable rose above the threshold.
+	 */
+	public final boolean rising;
+
+	Crossing(double time, int field, boolean rising) {
+	    this.time = time;
+	    this.field = field;
+	    this.rising = rising;
+	}
+
+    }
+
+    private RDEModel model;
+
+    private int n;
+
+    /**
+     * The state of the cell.
+     */
+    private double[] y;
+
+    private double t;
+
+    private double h;
+
+    private double rtol = 1e-4, atol = 1e-6;
+
+    private double maxStep = Double.POSITIVE_INFINITY;
+
+    /**
+     * Start, end and amplitude of the stimuli with a duration.
+     */
+    private List<double[]> windows = new ArrayList<double[]>();
+
+    /**
+     * Time and amplitude of the instantaneous stimuli, sorted by time.
+     */
+    private List<double[]> kicks = new ArrayList<double[]>();
+
+    /**
+     * The number of kicks which have been applied.
+     */
+    private int applied;
+
+    private List<Integer> thresholdFields = new ArrayList<Integer>();
+
+    private List<Double> thresholds = new ArrayList<Double>();
+
+    private List<Crossing> crossings = new ArrayList<Crossing>();
+
+    private int steps, rejected;
+
+    // work arrays
+    private double[][][] view;
+
+    private double[][] out;
+
+    private double[] f0, f1, k1, k2, y1, tmp, fp;
+
+    private double[][] w;
+
+    private int[] pivot;
+
+    /**
+     * Creates a new <code>{@link CellEngine}</code> object.
+     *
+     * @param model
+     *                the model of the cell. If it has
+     *                <code>{@link CellParameters}</code> those of grid point
+     *                <i>(0,0)</i> are used.
+     * @param state
+     *                the initial values of all variables.
+     */
+    public CellEngine(RDEModel model, double[] state) {
+	this.model = model;
+	n = model.getFieldCount();
+	if (state.length != n) {
+	    throw new IllegalArgumentException("State of length " + state.length
+		    + " for " + n + " variables");
+	}
+	if (model.getCellParameters() == null) {
+	    model.setCellParameters(new CellParameters(1, 1));
+	}
+	y = state.clone();
+	view = new double[n][1][1];
+	out = new double[n][1];
+	f0 = new double[n];
+	f1 = new double[n];
+	k1 = new double[n];
+	k2 = new double[n];
+	y1 = new double[n];
+	tmp = new double[n];
+	fp = new double[n];
+	w = new double[n][n];
+	pivot = new int[n];
+	h = 1e-3;
+    }
+
+    /**
+     * Sets the tolerances of the error of a step. The default is a relative
+     * tolerance of <b>1e-4</b> and an absolute one of <b>1e-6</b>.
+     *
+     * @param rtol
+     *                relative tolerance.
+     * @param atol
+     *                absolute tolerance.
+     */
+    public void setTolerances(double rtol, double atol) {
+	this.rtol = rtol;
+	this.atol = atol;
+    }
+
+    /**
+     * @param maxStep
+     *                the largest time step.
+     */
+    public void setMaxStep(double maxStep) {
+	this.maxStep = maxStep;
+    }
+
+    /**
+     * Adds a stimulus of the first variable.
+     *
+     * @param start
+     *                the time of the stimulus.
+     * @param duration
+     *                the duration, <b>0</b> for an instantaneous kick.
+     * @param amplitude
+     *                the kick or the current during the stimulus.
+     */
+    public void addStimulus(double start, double duration, double amplitude) {
+	if (start < t) {
+	    throw new IllegalArgumentException("Stimulus at " + start
+		    + " is before the current time " + t);
+	}
+	if (duration > 0) {
+	    windows.add(new double[] { start, start + duration, amplitude });
+	    return;
+	}
+	int i = kicks.size();
+	while (i > applied && kicks.get(i - 1)[0] > start) {
+	    i--;
+	}
+	kicks.add(i, new double[] { start, amplitude });
+    }
+
+    /**
+     * Adds a train of periodic stimuli.
+     *
+     * @param start
+     *                the time of the first stimulus.
+     * @param bcl
+     *                the basic cycle length.
+     * @param beats
+     *                the number of stimuli.
+     * @param duration
+     *                the duration of each stimulus, <b>0</b> for kicks.
+     * @param amplitude
+     *                the kick or the current during each stimulus.
+     */
+    public void pace(double start, double bcl, int beats, double duration,
+	    double amplitude) {
+	for (int b = 0; b < beats; b++) {
+	    addStimulus(start + b * bcl, duration, amplitude);
+	}
+    }
+
+    /**
+     * Records the crossings of a threshold by a variable.
+     *
+     * @param field
+     *                the variable.
+     * @param threshold
+     *                the threshold.
+     */
+    public void addThreshold(int field, double threshold) {
+	thresholdFields.add(field);
+	thresholds.add(threshold);
+    }
+
+    /**
+     * Integrates the equations up to a time.
+     *
+     * @param tEnd
+     *                the time to integrate to.
+     */
+    public void integrate(double tEnd) {
+	while (true) {
+	    applyKicks();
+	    if (t >= tEnd) {
+		return;
+	    }
+	    // the current and the next change of the stimuli
+	    double current = 0;
+	    double next = tEnd;
+	    for (double[] s : windows) {
+		if (s[0] <= t && t < s[1]) {
+		    current += s[2];
+		}
+		if (s[0] > t) {
+		    next = Math.min(next, s[0]);
+		}
+		if (s[1] > t) {
+		    next = Math.min(next, s[1]);
+		}
+	    }
+	    if (applied < kicks.size()) {
+		next = Math.min(next, kicks.get(applied)[0]);
+	    }
+	    segment(next, current);
+	}
+    }
+
+    private void applyKicks() {
+	while (applied < kicks.size() && kicks.get(applied)[0] <= t) {
+	    double before = y[0];
+	    y[0] += kicks.get(applied)[1];
+	    applied++;
+	    checkKick(before);
+	}
+    }
+
+    /**
+     * Integrates without a change of the stimuli.
+     */
+    private void segment(double tEnd, double current) {
+	rhs(y, current, f0);
+	while (t < tEnd) {
+	    h = Math.min(h, maxStep);
+	    boolean last = t + h >= tEnd;
+	    double step = last ? tEnd - t : h;
+
+	    jacobian(current, step);
+	    // k1
+	    System.arraycopy(f0, 0, k1, 0, n);
+	    solve(k1);
+	    // k2
+	    for (int i = 0; i < n; i++) {
+		tmp[i] = y[i] + step * k1[i];
+	    }
+	    rhs(tmp, current, k2);
+	    for (int i = 0; i < n; i++) {
+		k2[i] -= 2 * k1[i];
+	    }
+	    solve(k2);
+
+	    double err = 0;
+	    for (int i = 0; i < n; i++) {
+		y1[i] = y[i] + 1.5 * step * k1[i] + 0.5 * step * k2[i];
+		double sc = atol + rtol * Math.max(Math.abs(y[i]), Math.abs(y1[i]));
+		double e = 0.5 * step * (k1[i] + k2[i]) / sc;
+		err += e * e;
+	    }
+	    err = Math.sqrt(err / n);
+	    if (Double.isNaN(err)) {
+		err = Double.POSITIVE_INFINITY;
+	    }
+	    double factor = Math.min(5, Math.max(0.2, 0.9 / Math.sqrt(err)));
+
+	    if (err <= 1) {
+		rhs(y1, current, f1);
+		detect(step);
+		t = last ? tEnd : t + step;
+		double[] swap = y;
+		y = y1;
+		y1 = swap;
+		swap = f0;
+		f0 = f1;
+		f1 = swap;
+		steps++;
+		if (!last || factor < 1) {
+		    h = step * factor;
+		}
+	    } else {
+		rejected++;
+		h = step * factor;
+		if (h < 1e-12 * Math.max(1, Math.abs(t))) {
+		    throw new IllegalStateException("Step size too small at time "
+			    + t);
+		}
+	    }
+	}
+    }
+
+    private void rhs(double[] state, double current, double[] ret) {
+	for (int i = 0; i < n; i++) {
+	    view[i][0][0] = state[i];
+	}
+	model.react(view, 0, 0, 1, out);
+	for (int i = 0; i < n; i++) {
+	    ret[i] = out[i][0];
+	}
+	ret[0] += current;
+    }
+
+    /**
+     * Calculates <i>W = I - &gamma; h J</i> by forward differences and its LU
+     * decomposition.
+     */
+    private void jacobian(double current, double step) {
+	for (int j = 0; j < n; j++) {
+	    double yj = y[j];
+	    double delta = Math.sqrt(Math.ulp(1.0)) * Math.max(Math.abs(yj), 1e-3);
+	    y[j] = yj + delta;
+	    delta = y[j] - yj;
+	    rhs(y, current, fp);
+	    y[j] = yj;
+	    for (int i = 0; i < n; i++) {
+		w[i][j] = -GAMMA * step * (fp[i] - f0[i]) / delta;
+	    }
+	    w[j][j] += 1;
+	}
+	if (!LUDecomposition.decompose(w, pivot)) {
+	    throw new IllegalStateException("Singular matrix at time " + t);
+	}
+    }
+
+    /**
+     * Solves <i>W x = b</i> in place with the LU decomposition.
+     */
+    private void solve(double[] b) {
+	LUDecomposition.solve(w, pivot, b);
+    }
+
+    /**
+     * Looks for crossings of the thresholds in the accepted step from
+     * <code>y</code> to <code>y1</code>.
+     */
+    private void detect(double step) {
+	for (int k = 0; k < thresholds.size(); k++) {
+	    int f = thresholdFields.get(k);
+	    double th = thresholds.get(k);
+	    boolean before = y[f] >= th;
+	    boolean after = y1[f] >= th;
+	    if (before == after) {
+		continue;
+	    }
+	    // bisection of the cubic Hermite interpolant
+	    double lo = 0;
+	    double hi = 1;
+	    for (int i = 0; i < 50; i++) {
+		double s = (lo + hi) / 2;
+		if ((hermite(f, s, step) >= th) == before) {
+		    lo = s;
+		} else {
+		    hi = s;
+		}
+	    }
+	    crossings.add(new Crossing(t + (lo + hi) / 2 * step, f, after));
+	}
+    }
+
+    private double hermite(int f, double s, double step) {
+	double s2 = s * s;
+	double s3 = s2 * s;
+	return (2 * s3 - 3 * s2 + 1) * y[f] + (s3 - 2 * s2 + s) * step * f0[f]
+		+ (-2 * s3 + 3 * s2) * y1[f] + (s3 - s2) * step * f1[f];
+    }
+
+    private void checkKick(double before) {
+	for (int k = 0; k < thresholds.size(); k++) {
+	    double th = thresholds.get(k);
+	    if (thresholdFields.get(k) == 0 && (before >= th) != (y[0] >= th)) {
+		crossings.add(new Crossing(t, 0, y[0] >= th));
+	    }
+	}
+    }
+
+    /**
+     * @return the current time.
+     */
+    public double getTime() {
+	return t;
+    }
+
+    /**
+     * @return a copy of the current state.
+     */
+    public double[] getState() {
+	return y.clone();
+    }
+
+    /**
+     * @param field
+     *                the variable.
+     * @return the current value of a variable.
+     */
+    public double getValue(int field) {
+	return y[field];
+    }
+
+    /**
+     * @return the crossings of the thresholds in order of time.
+     */
+    public List<Crossing> getCrossings() {
+	return crossings;
+    }
+
+    /**
+     * @return the number of accepted steps.
+     */
+    public int getStepCount() {
+	return steps;
+    }
+
+    /**
+     * @return the number of rejected steps.
+     */
+    public int getRejectedCount() {
+	return rejected;
+    }
+
+}
@@ -0,0 +1,49 @@
+package rdeapprox;
+
+/**
+ * The five point laplacian for tissue in sparse storage. The neighbours are
+ * the compressed sparse rows of a <code>{@link SparseTissue}</code>, the data
+ * of each variable is a single row of packed cells.
+ *
+ * @author Mario Krapp
+ */
+public class CsrLaplacian implements DiffusionOperator {
+
+    private int[] rowStart;
+
+    private int[] neighbours;
+
+    private int[] degree;
+
+    private double dh;
+
+    /**
+     * Creates a new <code>{@link CsrLaplacian}</code> object.
+     *
+     * @param sparse
+     *                the packed tissue.
+     */
+    public CsrLaplacian(SparseTissue sparse) {
+	rowStart = sparse.getRowStart();
+	neighbours = sparse.getNeighbours();
+	degree = sparse.getDegree();
+    }
+
+    public void connect(Geometry geometry, double dh) {
+	this.dh = dh;
+    }
+
+    public void laplace(double[][] u, int x, int y, int from, int to,
+	    double[] out) {
+	double[] v = u[0];
+	double h2 = dh * dh;
+	for (int i = from; i < to; i++) {
+	    double sum = 0;
+	    for (int k = rowStart[i]; k < rowStart[i + 1]; k++) {
+		sum += v[neighbours[k]];
+	    }
+	    out[i - from] = (sum - degree[i] * v[i]) / h2;
+	}
+    }
+
+}
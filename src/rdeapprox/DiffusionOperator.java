@@ -0,0 +1,61 @@
+package rdeapprox;
+
+/**
+ * <p>
+ * A <code>{@link DiffusionOperator}</code> calculates the laplacian (or a more
+ * general diffusion term) of one variable for the tissue of a
+ * <code>{@link Geometry}</code>. The <code>{@link RDESolver}</code> calls it
+ * once per run of grid points, so an implementation is a tight loop over
+ * consecutive grid points in y-direction.
+ *
+ * <p>
+ * Implemented operators are
+ * <ul>
+ * <li><code>{@link FivePointLaplacian}</code> (default),</li>
+ * <li><code>{@link NinePointLaplacian}</code> (isotropic error),</li>
+ * <li><code>{@link AnisotropicLaplacian}</code> (conductivity tensor along
+ * fibers) and</li>
+ * <li><code>{@link CsrLaplacian}</code> (sparse storage, see
+ * <code>{@link SparseTissue}</code>).</li>
+ * </ul>
+ *
+ * @author Mario Krapp
+ */
+public interface DiffusionOperator {
+
+    /**
+     * Binds the operator to the neighbours of a <code>{@link Geometry}</code>.
+     * Called by the <code>{@link RDESolver}</code> whenever the
+     * <code>{@link Geometry}</code> changes.
+     *
+     * @param geometry
+     *                the <code>{@link Geometry}</code> whose neighbours have
+     *                been computed.
+     * @param dh
+     *                the spatial step.
+     */
+    public void connect(Geometry geometry, double dh);
+
+    /**
+     * Calculates the diffusion term for the grid points <i>(x,y)</i> to
+     * <i>(x,y+to-from-1)</i>, which are numbered <code>from</code> to
+     * <code>to - 1</code> in the <code>{@link Geometry}</code>.
+     *
+     * @param u
+     *                the values of one variable.
+     * @param x
+     *                x-coordinate of the grid points.
+     * @param y
+     *                y-coordinate of the first grid point.
+     * @param from
+     *                number of the first grid point.
+     * @param to
+     *                number of the first grid point which is not calculated.
+     * @param out
+     *                the diffusion term of grid point <code>from + k</code>
+     *                is stored in <code>out[k]</code>.
+     */
+    public void laplace(double[][] u, int x, int y, int from, int to,
+	    double[] out);
+
+}
@@ -0,0 +1,286 @@
+package rdeapprox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import models.CellParameters;
+import models.RDEModel;
+
+/**
+ * <p>
+ * An <code>{@link Ensemble}</code> advances many independent single cells of
+ * the same <code>{@link RDEModel}</code> with the Euler forward method, i.e.
+ * for parameter studies. The values are stored as one row per variable across
+ * all members (<i>[field][0][member]</i>), so
+ * <code>{@link RDEModel#react(double[][][], int, int, int, double[][])}</code>
+ * calculates a whole block of members at once.
+ *
+ * <p>
+ * Each member has its own <code>{@link CellParameters}</code> at grid point
+ * <i>(0,member)</i> and its own trains of stimuli. The members are divided
+ * into blocks which are calculated in parallel; since the members do not
+ * interact, each thread advances its block for all steps without waiting for
+ * the others. The results equal those of an <code>{@link RDESolver}</code>
+ * with <i>dimension=0</i> for each member.
+ *
+ * <p>
+ * The ensemble takes over its model: the
+ * <code>{@link CellParameters}</code> of the model are replaced by a set of
+ * <i>1 x size</i> grid points, one for each member. The model must therefore
+ * not be shared with an <code>{@link RDESolver}</code> or another ensemble;
+ * create a new model object for each of them.
+ *
+ * @author Mario Krapp
+ */
+public class Ensemble {
+
+    private RDEModel model;
+
+    private int size;
+
+    private int fieldCount;
+
+    private double dt;
+
+    /**
+     * The values of all members, <i>[field][0][member]</i>.
+     */
+    private double[][][] data;
+
+    /**
+     * The number of steps calculated so far.
+     */
+    private long step;
+
+    /**
+     * The stimuli of each member: start, period, count, amplitude and the
+     * number of stimuli applied so far.
+     */
+    private List<List<double[]>> stimuli = new ArrayList<List<double[]>>();
+
+    /**
+     * The time of the next stimulus of each member.
+     */
+    private double[] next;
+
+    private int threads;
+
+    private ExecutorService executor;
+
+    /**
+     * Creates a new <code>{@link Ensemble}</code> object where all values are
+     * <b>0</b>.
+     *
+     * @param model
+     *                the model, which belongs to the ensemble afterwards.
+     *                Its <code>{@link CellParameters}</code> are replaced by
+     *                those of the members.
+     * @param size
+     *                the number of members.
+     * @param dt
+     *                the time step.
+     */
+    public Ensemble(RDEModel model, int size, double dt) {
+	this.model = model;
+	this.size = size;
+	this.dt = dt;
+	fieldCount = model.getFieldCount();
+	data = new double[fieldCount][1][size];
+	model.setCellParameters(new CellParameters(1, size));
+	next = new double[size];
+	for (int m = 0; m < size; m++) {
+	    stimuli.add(new ArrayList<double[]>());
+	    next[m] = Double.POSITIVE_INFINITY;
+	}
+	threads = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @return the parameters of the members at grid points
+     *         <i>(0,member)</i>.
+     */
+    public CellParameters getCellParameters() {
+	return model.getCellParameters();
+    }
+
+    /**
+     * Sets the same values for all members, i.e. the steady state.
+     *
+     * @param field
+     *                the variable.
+     * @param value
+     *                the value.
+     */
+    public void setValue(int field, double value) {
+	Arrays.fill(data[field][0], value);
+    }
+
+    /**
+     * @param field
+     *                the variable.
+     * @param member
+     *                the member.
+     * @param value
+     *                the new value.
+     */
+    public void setValue(int field, int member, double value) {
+	data[field][0][member] = value;
+    }
+
+    /**
+     * @param field
+     *                the variable.
+     * @param member
+     *                the member.
+     * @return the current value.
+     */
+    public double getValue(int field, int member) {
+	return data[field][0][member];
+    }
+
+    /**
+     * @return the values of all members, <i>[field][0][member]</i>.
+     */
+    public double[][][] getData() {
+	return data;
+    }
+
+    /**
+     * Adds a train of stimuli to a member. A stimulus adds
+     * <code>amplitude</code> to the first variable before the time step, as
+     * <code>RDEController.stimulate</code>.
+     *
+     * @param member
+     *                the member.
+     * @param start
+     *                the time of the first stimulus.
+     * @param period
+     *                the time between the stimuli.
+     * @param count
+     *                the number of stimuli.
+     * @param amplitude
+     *                the amplitude of each stimulus.
+     */
+    public void addStimulus(int member, double start, double period,
+	    int count, double amplitude) {
+	if (count > 0) {
+	    stimuli.get(member).add(
+		    new double[] { start, period, count, amplitude, 0 });
+	    next[member] = Math.min(next[member], start);
+	}
+    }
+
+    /**
+     * @param threads
+     *                the number of threads, by default the number of
+     *                processors.
+     */
+    public void setThreads(int threads) {
+	shutdown();
+	this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @return the elapsed time.
+     */
+    public double getTime() {
+	return step * dt;
+    }
+
+    /**
+     * Advances all members.
+     *
+     * @param steps
+     *                the number of time steps.
+     */
+    public void run(final int steps) {
+	int blocks = Math.min(threads, size);
+	if (blocks <= 1) {
+	    advance(0, size, steps);
+	} else {
+	    if (executor == null) {
+		executor = Executors.newFixedThreadPool(threads);
+	    }
+	    List<Future<?>> futures = new ArrayList<Future<?>>();
+	    for (int b = 0; b < blocks; b++) {
+		final int from = (int) ((long) size * b / blocks);
+		final int to = (int) ((long) size * (b + 1) / blocks);
+		futures.add(executor.submit(new Runnable() {
+		    public void run() {
+			advance(from, to, steps);
+		    }
+		}));
+	    }
+	    try {
+		for (Future<?> f : futures) {
+		    f.get();
+		}
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+		throw new IllegalStateException(e);
+	    } catch (ExecutionException e) {
+		throw new IllegalStateException(e.getCause());
+	    }
+	}
+	step += steps;
+    }
+
+    /**
+     * Advances the members <code>from</code> to <code>to - 1</code>.
+     */
+    private void advance(int from, int to, int steps) {
+	int n = to - from;
+	double[][] react = new double[fieldCount][n];
+	for (int s = 0; s < steps; s++) {
+	    double t = (step + s) * dt;
+	    for (int m = from; m < to; m++) {
+		if (t >= next[m]) {
+		    stimulate(m, t);
+		}
+	    }
+	    GenericKernel.react(model, data, 0, from, n, react);
+	    for (int f = 0; f < fieldCount; f++) {
+		double[] u = data[f][0];
+		double[] r = react[f];
+		for (int k = 0; k < n; k++) {
+		    u[from + k] = u[from + k] + dt * r[k];
+		}
+	    }
+	}
+    }
+
+    /**
+     * Applies all stimuli of a member which are due.
+     */
+    private void stimulate(int m, double t) {
+	double earliest = Double.POSITIVE_INFINITY;
+	for (double[] train : stimuli.get(m)) {
+	    // from the number of the stimulus, so long trains do not drift
+	    while (train[4] < train[2] && train[0] + train[4] * train[1] <= t) {
+		data[0][0][m] += train[3];
+		train[4]++;
+	    }
+	    if (train[4] < train[2]) {
+		earliest = Math.min(earliest, train[0] + train[4] * train[1]);
+	    }
+	}
+	next[m] = earliest;
+    }
+
+    /**
+     * Stops the threads. They are started again by the next
+     * <code>{@link Ensemble#run(int)}</code>.
+     */
+    public void shutdown() {
+	if (executor != null) {
+	    executor.shutdown();
+	    executor = null;
+	}
+    }
+
+}
@@ -0,0 +1,279 @@
+package rdeapprox;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * The minimum, maximum, mean and the number of grid points above a threshold
+ * of each variable after a time step. The reductions are calculated by
+ * <code>{@link RDESolver#nextTimeSteps(int, boolean)}</code> inside the last
+ * time step, run by run while the new values are still in the cache, so the
+ * consumers do not need another pass over the grid. Only the grid points of
+ * the tissue are included.
+ *
+ * <p>
+ * If several grid points have the same extremum the one with the smallest
+ * number in the <code>{@link Geometry}</code>, i.e. the smallest
+ * <i>x</i>, is kept, as if the grid was scanned from <i>(0,0)</i>.
+ *
+ * @author Mario Krapp
+ */
+public class FieldStatistics {
+
+    private final int fieldCount;
+
+    private final double[] min, max, sum, threshold;
+
+    /**
+     * The indices of the grid points of the extrema, for sparse storage the
+     * packed cells.
+     */
+    private final int[] minIndex, maxIndex;
+
+    /**
+     * The number in the <code>{@link Geometry}</code> of each packed cell,
+     * <code>null</code> if the indices are the numbers.
+     */
+    private int[] number;
+
+    private final int[] minX, minY, maxX, maxY, above;
+
+    private int cells;
+
+    private long step = -1;
+
+    FieldStatistics(int fieldCount) {
+	this.fieldCount = fieldCount;
+	min = new double[fieldCount];
+	max = new double[fieldCount];
+	sum = new double[fieldCount];
+	threshold = new double[fieldCount];
+	Arrays.fill(threshold, Double.POSITIVE_INFINITY);
+	minIndex = new int[fieldCount];
+	maxIndex = new int[fieldCount];
+	minX = new int[fieldCount];
+	minY = new int[fieldCount];
+	maxX = new int[fieldCount];
+	maxY = new int[fieldCount];
+	above = new int[fieldCount];
+    }
+
+    /**
+     * @param sparse
+     *                the packed tissue or <code>null</code>.
+     */
+    void setStorage(SparseTissue sparse) {
+	number = sparse == null ? null : sparse.getCells();
+	step = -1;
+    }
+
+    void setThreshold(int field, double value) {
+	threshold[field] = value;
+    }
+
+    void reset() {
+	Arrays.fill(min, Double.POSITIVE_INFINITY);
+	Arrays.fill(max, Double.NEGATIVE_INFINITY);
+	Arrays.fill(sum, 0);
+	Arrays.fill(minIndex, Integer.MAX_VALUE);
+	Arrays.fill(maxIndex, Integer.MAX_VALUE);
+	Arrays.fill(above, 0);
+	cells = 0;
+	step = -1;
+    }
+
+    /**
+     * Adds the new values of a run of grid points, see
+     * <code>{@link StepKernel#step(double[][][], double[][][], int, int, int, int)}</code>.
+     */
+    void add(double[][][] values, int x, int y, int from, int to) {
+	int n = to - from;
+	for (int f = 0; f < fieldCount; f++) {
+	    double[] v = values[f][x];
+	    double lo = Double.POSITIVE_INFINITY, hi = Double.NEGATIVE_INFINITY;
+	    double s = 0, t = threshold[f];
+	    int count = 0;
+	    for (int k = y; k < y + n; k++) {
+		double u = v[k];
+		lo = u < lo ? u : lo;
+		hi = u > hi ? u : hi;
+		s += u;
+		count += u > t ? 1 : 0;
+	    }
+	    sum[f] += s;
+	    above[f] += count;
+	    // the positions only if the run reaches an extremum
+	    if (lo <= min[f]) {
+		int at = first(v, y, from, n, lo);
+		if (at >= 0 && (lo < min[f] || before(from + at, minIndex[f]))) {
+		    min[f] = lo;
+		    minIndex[f] = from + at;
+		    minX[f] = x;
+		    minY[f] = y + at;
+		}
+	    }
+	    if (hi >= max[f]) {
+		int at = first(v, y, from, n, hi);
+		if (at >= 0 && (hi > max[f] || before(from + at, maxIndex[f]))) {
+		    max[f] = hi;
+		    maxIndex[f] = from + at;
+		    maxX[f] = x;
+		    maxY[f] = y + at;
+		}
+	    }
+	}
+	cells += n;
+    }
+
+    /**
+     * @return the grid point of a run with the value which comes first in
+     *         the <code>{@link Geometry}</code>, <b>-1</b> if there is none.
+     */
+    private int first(double[] v, int y, int from, int n, double value) {
+	int at = -1;
+	for (int k = 0; k < n; k++) {
+	    if (v[y + k] == value) {
+		if (number == null) {
+		    return k;
+		}
+		if (at < 0 || number[from + k] < number[from + at]) {
+		    at = k;
+		}
+	    }
+	}
+	return at;
+    }
+
+    /**
+     * @return <code>true</code> if the grid point <i>i</i> comes before
+     *         <i>j</i> in the <code>{@link Geometry}</code>.
+     */
+    private boolean before(int i, int j) {
+	if (j == Integer.MAX_VALUE) {
+	    return true;
+	}
+	return number == null ? i < j : number[i] < number[j];
+    }
+
+    /**
+     * Completes the statistics of a time step.
+     *
+     * @param sparse
+     *                the packed tissue, whose cells are mapped to the grid,
+     *                or <code>null</code>.
+     */
+    void finish(long step, SparseTissue sparse) {
+	if (sparse != null) {
+	    int[] cellX = sparse.getCellX();
+	    int[] cellY = sparse.getCellY();
+	    for (int f = 0; f < fieldCount; f++) {
+		if (minIndex[f] != Integer.MAX_VALUE) {
+		    minX[f] = cellX[minIndex[f]];
+		    minY[f] = cellY[minIndex[f]];
+		}
+		if (maxIndex[f] != Integer.MAX_VALUE) {
+		    maxX[f] = cellX[maxIndex[f]];
+		    maxY[f] = cellY[maxIndex[f]];
+		}
+	    }
+	}
+	this.step = step;
+    }
+
+    /**
+     * Marks the statistics as outdated, i.e. after values were changed.
+     */
+    void invalidate() {
+	step = -1;
+    }
+
+    /**
+     * @return the time step of the statistics, see
+     *         <code>{@link RDESolver#getStepCount()}</code>.
+     */
+    public long getStep() {
+	return step;
+    }
+
+    /**
+     * @return the number of grid points of the tissue.
+     */
+    public int getCellCount() {
+	return cells;
+    }
+
+    /**
+     * @param field
+     *                the variable.
+     * @return the minimum.
+     */
+    public double getMin(int field) {
+	return min[field];
+    }
+
+    /**
+     * @param field
+     *                the variable.
+     * @return the maximum.
+     */
+    public double getMax(int field) {
+	return max[field];
+    }
+
+    /**
+     * @param field
+     *                the variable.
+     * @return x-coordinate of the minimum.
+     */
+    public int getMinX(int field) {
+	return minX[field];
+    }
+
+    /**
+     * @param field
+     *                the variable.
+     * @return y-coordinate of the minimum.
+     */
+    public int getMinY(int field) {
+	return minY[field];
+    }
+
+    /**
+     * @param field
+     *                the variable.
+     * @return x-coordinate of the maximum.
+     */
+    public int getMaxX(int field) {
+	return maxX[field];
+    }
+
+    /**
+     * @param field
+     *                the variable.
+     * @return y-coordinate of the maximum.
+     */
+    public int getMaxY(int field) {
+	return maxY[field];
+    }
+
+    /**
+     * @param field
+     *                the variable.
+     * @return the mean over the tissue.
+     */
+    public double getMean(int field) {
+	return sum[field] / cells;
+    }
+
+    /**
+     * @param field
+     *                the variable.
+     * @return the number of grid points above the threshold, i.e. the
+     *         excited area, see
+     *         <code>{@link RDESolver#setStatisticsThreshold(int, double)}</code>.
+     */
+    public int getCountAbove(int field) {
+	return above[field];
+    }
+
+}
@@ -0,0 +1,54 @@
+package rdeapprox;
+
+/**
+ * Base class of the <code>{@link StepKernel}</code>s which fuse the five
+ * point laplacian with the reaction terms of a certain model. Subclasses loop
+ * over the grid points of a run and call
+ * <code>{@link FivePointKernel#laplace(double[][], int, int, int)}</code>,
+ * which is identical to <code>{@link FivePointLaplacian}</code>.
+ *
+ * @author Mario Krapp
+ */
+public abstract class FivePointKernel implements StepKernel {
+
+    protected final int[] xm, xp, ym, yp;
+
+    protected final byte[] open;
+
+    protected final double[][] diffScale;
+
+    protected final double dt, dh;
+
+    /**
+     * @param geometry
+     *                the connected <code>{@link Geometry}</code>.
+     * @param diffScale
+     *                the scaling factors of the diffusion constants.
+     * @param dt
+     *                the time step.
+     * @param dh
+     *                the spatial step.
+     */
+    protected FivePointKernel(Geometry geometry, double[][] diffScale,
+	    double dt, double dh) {
+	xm = geometry.getXm();
+	xp = geometry.getXp();
+	ym = geometry.getYm();
+	yp = geometry.getYp();
+	open = geometry.getOpen();
+	this.diffScale = diffScale;
+	this.dt = dt;
+	this.dh = dh;
+    }
+
+    /**
+     * @return the laplacian of grid point <i>(x,y)</i> with number
+     *         <i>c</i>.
+     */
+    protected final double laplace(double[][] u, int c, int x, int y) {
+	return (u[xm[c]][y] + u[xp[c]][y] + u[x][ym[c]] + u[x][yp[c]] - (4 + open[c])
+		* u[x][y])
+		/ (dh * dh);
+    }
+
+}
@@ -0,0 +1,92 @@
+package rdeapprox;
+
+/**
+ * The standard laplacian with the five point stencil. Its error is of order
+ * <i>O(h<sup>2</sup>)</i> but not isotropic, which distorts spiral waves on
+ * coarse grids. Neighbours which are <b>zero</b> due to the boundary
+ * conditions point to the grid point itself and are subtracted again.
+ *
+ * @author Mario Krapp
+ */
+public class FivePointLaplacian implements DiffusionOperator {
+
+    private int[] xm, xp, ym, yp;
+
+    private byte[] open;
+
+    private double dh;
+
+    /**
+     * For each grid point the first grid point of its run from which on the
+     * neighbours are not the adjacent grid points anymore. Only needed for
+     * <code>{@link VectorKernels#laplace(double[][], int, int, int, double, double[], int)}</code>.
+     */
+    private int[] regularEnd;
+
+    public void connect(Geometry geometry, double dh) {
+	this.dh = dh;
+	xm = geometry.getXm();
+	xp = geometry.getXp();
+	ym = geometry.getYm();
+	yp = geometry.getYp();
+	open = geometry.getOpen();
+	if (Simd.ENABLED) {
+	    int[] runX = geometry.getRunX();
+	    int[] runY = geometry.getRunY();
+	    int[] runStart = geometry.getRunStart();
+	    regularEnd = new int[geometry.getCellCount()];
+	    for (int r = 0; r < runX.length; r++) {
+		int end = runStart[r + 1];
+		for (int c = end - 1; c >= runStart[r]; c--) {
+		    int x = runX[r];
+		    int y = runY[r] + c - runStart[r];
+		    boolean regular = xm[c] == x - 1 && xp[c] == x + 1
+			    && ym[c] == y - 1 && yp[c] == y + 1 && open[c] == 0;
+		    if (!regular) {
+			end = c;
+		    }
+		    regularEnd[c] = end;
+		}
+	    }
+	}
+    }
+
+    public void laplace(double[][] u, int x, int y, int from, int to,
+	    double[] out) {
+	if (regularEnd != null) {
+	    laplaceVector(u, x, y, from, to, out);
+	    return;
+	}
+	double[] ux = u[x];
+	for (int c = from; c < to; c++, y++) {
+	    out[c - from] = (u[xm[c]][y] + u[xp[c]][y] + ux[ym[c]] + ux[yp[c]] - (4 + open[c])
+		    * ux[y])
+		    / (dh * dh);
+	}
+    }
+
+    /**
+     * Calculates stretches of grid points with adjacent neighbours by
+     * <code>{@link VectorKernels}</code> and the other grid points one by one.
+     */
+    private void laplaceVector(double[][] u, int x, int y, int from, int to,
+	    double[] out) {
+	double[] ux = u[x];
+	int c = from;
+	while (c < to) {
+	    int end = Math.min(regularEnd[c], to);
+	    if (end > c) {
+		VectorKernels.laplace(u, x, y + c - from, end - c, dh * dh, out, c
+			- from);
+		c = end;
+	    } else {
+		int yc = y + c - from;
+		out[c - from] = (u[xm[c]][yc] + u[xp[c]][yc] + ux[ym[c]]
+			+ ux[yp[c]] - (4 + open[c]) * ux[yc])
+			/ (dh * dh);
+		c++;
+	    }
+	}
+    }
+
+}
@@ -0,0 +1,120 @@
+package rdeapprox;
+
+import models.FitzHughNagumoModel;
+import models.Oregonator;
+import models.RDEModel;
+
+/**
+ * The <code>{@link StepKernel}</code> for any model and
+ * <code>{@link DiffusionOperator}</code>. The laplacians and reaction terms of
+ * a run are calculated into buffers first, then all variables are updated,
+ * using <code>{@link VectorKernels}</code> if available. The reaction terms
+ * of the <code>{@link FitzHughNagumoModel}</code> and the
+ * <code>{@link Oregonator}</code> are then also calculated by the vector
+ * kernels, those of other models by
+ * <code>{@link RDEModel#react(double[][][], int, int, int, double[][])}</code>.
+ *
+ * @author Mario Krapp
+ */
+public class GenericKernel implements StepKernel {
+
+    private RDEModel model;
+
+    private DiffusionOperator operator;
+
+    private int fieldCount;
+
+    private double[][] diffScale;
+
+    private double dt;
+
+    /**
+     * The laplacians of all variables for the current run. They stay
+     * <b>0</b> for variables which do not diffuse.
+     */
+    private double[][] lap;
+
+    /**
+     * The reaction terms of all variables for the current run.
+     */
+    private double[][] react;
+
+    /**
+     * Creates a new <code>{@link GenericKernel}</code> object.
+     *
+     * @param model
+     *                the model.
+     * @param operator
+     *                the connected <code>{@link DiffusionOperator}</code>.
+     * @param diffScale
+     *                the scaling factors of the diffusion constants.
+     * @param dt
+     *                the time step.
+     * @param maxRun
+     *                the maximal number of grid points of a run.
+     */
+    public GenericKernel(RDEModel model, DiffusionOperator operator,
+	    double[][] diffScale, double dt, int maxRun) {
+	this.model = model;
+	this.operator = operator;
+	this.diffScale = diffScale;
+	this.dt = dt;
+	fieldCount = model.getFieldCount();
+	lap = new double[fieldCount][maxRun];
+	react = new double[fieldCount][maxRun];
+    }
+
+    public void step(double[][][] in, double[][][] out, int x, int y,
+	    int from, int to) {
+	// calc laplace for the whole run
+	for (int f = 0; f < fieldCount; f++) {
+	    if (model.diffConsts[f] != 0) {
+		operator.laplace(in[f], x, y, from, to, lap[f]);
+	    }
+	}
+	int n = to - from;
+	// calculate new values
+	react(model, in, x, y, n, react);
+	// loop through dynamical variables
+	for (int f = 0; f < fieldCount; f++) {
+	    // diffusion coefficient for current dynamical variable
+	    double diffCoeff = model.diffConsts[f];
+	    double[] oldValues = in[f][x];
+	    double[] newValues = out[f][x];
+	    double[] scale = diffScale[x];
+	    double[] laplace = lap[f];
+	    if (Simd.ENABLED) {
+		VectorKernels.update(oldValues, newValues, y, n, laplace,
+			react[f], scale, diffCoeff, dt);
+		continue;
+	    }
+	    for (int k = 0; k < n; k++) {
+		newValues[y + k] = oldValues[y + k] + dt
+			* (diffCoeff * scale[y + k] * laplace[k] + react[f][k]);
+	    }
+	}
+    }
+
+    /**
+     * Calculates the reaction terms of a run, see
+     * <code>{@link RDEModel#react(double[][][], int, int, int, double[][])}</code>,
+     * with the <code>{@link VectorKernels}</code> if they are available and
+     * have a kernel for the model.
+     */
+    static void react(RDEModel model, double[][][] in, int x, int y, int n,
+	    double[][] out) {
+	// exactly these classes, subclasses may change the reaction terms
+	if (Simd.ENABLED && model.getClass() == FitzHughNagumoModel.class) {
+	    VectorKernels.fitzHughNagumo(in[0][x], in[1][x], y, n,
+		    FitzHughNagumoModel.a, FitzHughNagumoModel.b,
+		    FitzHughNagumoModel.eps, ((FitzHughNagumoModel) model)
+			    .getIExt(), out[0], out[1]);
+	} else if (Simd.ENABLED && model.getClass() == Oregonator.class) {
+	    VectorKernels.oregonator(in[0][x], in[1][x], y, n, Oregonator.eps,
+		    Oregonator.phi, Oregonator.q, Oregonator.f, out[0], out[1]);
+	} else {
+	    model.react(in, x, y, n, out);
+	}
+    }
+
+}
@@ -0,0 +1,549 @@
+package rdeapprox;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+/**
+ * <p>
+ * The <code>{@link Geometry}</code> class describes which grid points of the
+ * <code>{@link RDESolver}</code> belong to the tissue. Grid points which do
+ * not belong to the tissue (obstacles, scars, the outside of a ring, ...) are
+ * never calculated.
+ *
+ * <p>
+ * The tissue is stored as <i>runs</i> of consecutive grid points in
+ * y-direction. The grid points of all runs are numbered consecutively, and for
+ * each of these points the coordinates of its four neighbours are computed in
+ * advance by <code>{@link Geometry#connect(int, int)}</code>. A neighbour
+ * which is not part of the tissue is replaced by the grid point itself, which
+ * gives <b>noflux</b> boundary conditions at every edge of the tissue. At the
+ * edges of the grid the boundary condition of the
+ * <code>{@link RDESolver}</code> is used.
+ *
+ * <p>
+ * A <code>{@link Geometry}</code> can be loaded from an image (bright pixels
+ * are tissue) or from a binary file (one byte per grid point, x-direction
+ * first, non-zero bytes are tissue) using
+ * <code>{@link Geometry#load(String, int, int)}</code>.
+ *
+ * @author Mario Krapp
+ */
+public class Geometry {
+
+    /**
+     * The number of data points for the x-direction.
+     */
+    private int dimX;
+
+    /**
+     * The number of data points for the y-direction.
+     */
+    private int dimY;
+
+    /**
+     * <code>true</code> for every grid point which belongs to the tissue.
+     */
+    private boolean[][] tissue;
+
+    /**
+     * The number of grid points which belong to the tissue.
+     */
+    private int cellCount;
+
+    /**
+     * The x-coordinate and the first y-coordinate of each run.
+     */
+    private int[] runX, runY;
+
+    /**
+     * The number of the first grid point of each run. The last entry is the
+     * number of grid points which belong to the tissue.
+     */
+    private int[] runStart;
+
+    /**
+     * The number of the first run of each row in x-direction. The last entry
+     * is the number of runs.
+     */
+    private int[] rowRun;
+
+    /**
+     * The x-coordinates of the left and right and the y-coordinates of the
+     * lower and upper neighbour of each grid point of the tissue.
+     */
+    private int[] xm, xp, ym, yp;
+
+    /**
+     * The number of neighbours of each grid point which lie outside of the
+     * grid and are <b>zero</b> due to the boundary conditions.
+     */
+    private byte[] open;
+
+    /**
+     * The number of neighbours in x-direction of each grid point which are
+     * <b>zero</b> due to the boundary conditions.
+     */
+    private byte[] openX;
+
+    /**
+     * The coordinates of the four diagonal neighbours of each grid point in
+     * the order <i>(+1,+1)</i>, <i>(-1,+1)</i>, <i>(+1,-1)</i>,
+     * <i>(-1,-1)</i>. Computed on first access.
+     */
+    private int[][] diagX, diagY;
+
+    /**
+     * One bit for each diagonal neighbour which is <b>zero</b> due to the
+     * boundary conditions.
+     */
+    private byte[] openDiag;
+
+    /**
+     * The boundary condition and dimension used by the last call of
+     * <code>{@link Geometry#connect(int, int)}</code>.
+     */
+    private int bc, dimension;
+
+    /**
+     * Creates a new <code>{@link Geometry}</code> object where all grid
+     * points belong to the tissue.
+     *
+     * @param dimX
+     *                the number of grid points in x-direction.
+     * @param dimY
+     *                the number of grid points in y-direction.
+     */
+    public Geometry(int dimX, int dimY) {
+	this.dimX = dimX;
+	this.dimY = dimY;
+	tissue = new boolean[dimX][dimY];
+	for (int x = 0; x < dimX; x++) {
+	    Arrays.fill(tissue[x], true);
+	}
+    }
+
+    /**
+     * Loads a <code>{@link Geometry}</code> from a file. Files ending with
+     * <i>.png</i>, <i>.gif</i>, <i>.bmp</i> or <i>.jpg</i> are read as image
+     * and scaled to the size of the grid, where pixels with a brightness of
+     * more than 50% belong to the tissue. All other files are read as binary
+     * file with one byte per grid point.
+     *
+     * @param fileName
+     *                name of the file.
+     * @param dimX
+     *                the number of grid points in x-direction.
+     * @param dimY
+     *                the number of grid points in y-direction.
+     * @return a new <code>{@link Geometry}</code> object.
+     */
+    public static Geometry load(String fileName, int dimX, int dimY) {
+	Geometry g = new Geometry(dimX, dimY);
+	File file = new File(fileName);
+	try {
+	    if (fileName.toLowerCase().matches(".*\\.(png|gif|bmp|jpg)")) {
+		BufferedImage img = ImageIO.read(file);
+		if (img == null) {
+		    throw new IllegalArgumentException("Unknown image format: "
+			    + fileName);
+		}
+		for (int x = 0; x < dimX; x++) {
+		    for (int y = 0; y < dimY; y++) {
+			int rgb = img.getRGB(x * img.getWidth() / dimX, y
+				* img.getHeight() / dimY);
+			int brightness = ((rgb >> 16) & 0xff)
+				+ ((rgb >> 8) & 0xff) + (rgb & 0xff);
+			g.tissue[x][y] = brightness > 3 * 127;
+		    }
+		}
+	    } else {
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		if (bytes.length != dimX * dimY) {
+		    throw new IllegalArgumentException(fileName + " has "
+			    + bytes.length + " bytes instead of " + dimX * dimY);
+		}
+		for (int x = 0; x < dimX; x++) {
+		    for (int y = 0; y < dimY; y++) {
+			g.tissue[x][y] = bytes[x * dimY + y] != 0;
+		    }
+		}
+	    }
+	} catch (IOException e) {
+	    throw new RuntimeException(e);
+	}
+	return g;
+    }
+
+    /**
+     * Removes a rectangular obstacle from the tissue.
+     *
+     * @param rect
+     *                the obstacle. It is clipped to the grid.
+     */
+    public void addObstacle(Rectangle rect) {
+	Rectangle r = rect.intersection(new Rectangle(0, 0, dimX, dimY));
+	for (int x = r.x; x < r.x + r.width; x++) {
+	    for (int y = r.y; y < r.y + r.height; y++) {
+		tissue[x][y] = false;
+	    }
+	}
+    }
+
+    /**
+     * Removes several square obstacles at random positions from the tissue.
+     *
+     * @param number
+     *                number of obstacles.
+     * @param size
+     *                edge length of the obstacles.
+     * @param r
+     *                the random number generator.
+     */
+    public void addRandomObstacles(int number, int size, Random r) {
+	for (int i = 0; i < number; i++) {
+	    addObstacle(new Rectangle(r.nextInt(dimX - size), r.nextInt(dimY
+		    - size), size, size));
+	}
+    }
+
+    /**
+     * Computes the runs and the neighbours of all grid points of the tissue.
+     * Has to be called again after the tissue was changed.
+     *
+     * @param bc
+     *                the boundary condition at the edges of the grid.
+     * @param dimension
+     *                the dimension of the grid. In one dimension there are no
+     *                neighbours in y-direction.
+     */
+    public void connect(int bc, int dimension) {
+	this.bc = bc;
+	this.dimension = dimension;
+	diagX = null;
+	diagY = null;
+	openDiag = null;
+	// count runs and grid points
+	int runs = 0;
+	cellCount = 0;
+	for (int x = 0; x < dimX; x++) {
+	    for (int y = 0; y < dimY; y++) {
+		if (tissue[x][y]) {
+		    cellCount++;
+		    if (y == 0 || !tissue[x][y - 1]) {
+			runs++;
+		    }
+		}
+	    }
+	}
+	runX = new int[runs];
+	runY = new int[runs];
+	runStart = new int[runs + 1];
+	rowRun = new int[dimX + 1];
+	xm = new int[cellCount];
+	xp = new int[cellCount];
+	ym = new int[cellCount];
+	yp = new int[cellCount];
+	open = new byte[cellCount];
+	openX = new byte[cellCount];
+
+	int r = 0;
+	int c = 0;
+	for (int x = 0; x < dimX; x++) {
+	    rowRun[x] = r;
+	    for (int y = 0; y < dimY; y++) {
+		if (!tissue[x][y]) {
+		    continue;
+		}
+		if (y == 0 || !tissue[x][y - 1]) {
+		    runX[r] = x;
+		    runY[r] = y;
+		    runStart[r] = c;
+		    r++;
+		}
+		xm[c] = neighbour(x, x - 1, dimX, y, true, bc, c);
+		xp[c] = neighbour(x, x + 1, dimX, y, true, bc, c);
+		if (dimension == 1) {
+		    ym[c] = y;
+		    yp[c] = y;
+		} else {
+		    ym[c] = neighbour(y, y - 1, dimY, x, false, bc, c);
+		    yp[c] = neighbour(y, y + 1, dimY, x, false, bc, c);
+		}
+		c++;
+	    }
+	}
+	runStart[runs] = cellCount;
+	rowRun[dimX] = runs;
+    }
+
+    /**
+     * Computes the diagonal neighbours of all grid points of the tissue. A
+     * diagonal neighbour is the combination of the neighbours in x- and
+     * y-direction, so at straight edges it is the neighbour along the edge. At
+     * inner corners of the tissue it is replaced by the grid point itself.
+     */
+    private void connectDiagonals() {
+	int[][] dX = new int[4][cellCount];
+	int[][] dY = new int[4][cellCount];
+	byte[] oD = new byte[cellCount];
+	for (int r = 0; r < runX.length; r++) {
+	    int x = runX[r];
+	    int y = runY[r];
+	    for (int c = runStart[r]; c < runStart[r + 1]; c++, y++) {
+		for (int d = 0; d < 4; d++) {
+		    int ox = (d % 2 == 0) ? 1 : -1;
+		    int oy = (d < 2) ? 1 : -1;
+		    int nx = (ox > 0) ? xp[c] : xm[c];
+		    int ny = (oy > 0) ? yp[c] : ym[c];
+		    boolean outside = x + ox < 0 || x + ox >= dimX
+			    || (dimension == 2 && (y + oy < 0 || y + oy >= dimY));
+		    if (outside && bc == RDESolver.ZERO) {
+			oD[c] |= 1 << d;
+			nx = x;
+			ny = y;
+		    } else if (nx != x && ny != y && !tissue[nx][ny]) {
+			nx = x;
+			ny = y;
+		    }
+		    dX[d][c] = nx;
+		    dY[d][c] = ny;
+		}
+	    }
+	}
+	diagX = dX;
+	diagY = dY;
+	openDiag = oD;
+    }
+
+    /**
+     * Determines the coordinate of a neighbour in one direction.
+     *
+     * @param pos
+     *                coordinate of the grid point itself.
+     * @param next
+     *                coordinate of the neighbour, possibly outside the grid.
+     * @param dim
+     *                the number of grid points in this direction.
+     * @param other
+     *                the coordinate in the other direction.
+     * @param inX
+     *                <code>true</code> if the neighbour is in x-direction.
+     * @param bc
+     *                the boundary condition at the edges of the grid.
+     * @param c
+     *                the number of the grid point.
+     * @return the coordinate of the neighbour.
+     */
+    private int neighbour(int pos, int next, int dim, int other, boolean inX,
+	    int bc, int c) {
+	if (next < 0 || next >= dim) {
+	    if (bc == RDESolver.PERIODIC) {
+		next = (next + dim) % dim;
+	    } else {
+		if (bc == RDESolver.ZERO) {
+		    open[c]++;
+		    if (inX) {
+			openX[c]++;
+		    }
+		}
+		return pos;
+	    }
+	}
+	boolean isTissue = inX ? tissue[next][other] : tissue[other][next];
+	return isTissue ? next : pos;
+    }
+
+    /**
+     * @return the number of grid points in x-direction.
+     */
+    public int getDimX() {
+	return dimX;
+    }
+
+    /**
+     * @return the number of grid points in y-direction.
+     */
+    public int getDimY() {
+	return dimY;
+    }
+
+    /**
+     * @param x
+     *                x-coordinate of the grid point.
+     * @param y
+     *                y-coordinate of the grid point.
+     * @return <code>true</code> if the grid point belongs to the tissue.
+     */
+    public boolean isTissue(int x, int y) {
+	return tissue[x][y];
+    }
+
+    /**
+     * Determines the number of a grid point of the tissue by searching the
+     * runs of its row.
+     * 
+     * @param x
+     *                x-coordinate of the grid point.
+     * @param y
+     *                y-coordinate of the grid point.
+     * @return the number of the grid point or <b>-1</b> if it does not belong
+     *         to the tissue.
+     */
+    public int getCell(int x, int y) {
+	for (int r = rowRun[x]; r < rowRun[x + 1]; r++) {
+	    int c = runStart[r] + y - runY[r];
+	    if (y >= runY[r] && c < runStart[r + 1]) {
+		return c;
+	    }
+	}
+	return -1;
+    }
+
+    /**
+     * @return the number of grid points which belong to the tissue.
+     */
+    public int getCellCount() {
+	return cellCount;
+    }
+
+    /**
+     * @return the number of runs.
+     */
+    public int getRunCount() {
+	return runX.length;
+    }
+
+    /**
+     * @return the x-coordinate of each run.
+     */
+    public int[] getRunX() {
+	return runX;
+    }
+
+    /**
+     * @return the first y-coordinate of each run.
+     */
+    public int[] getRunY() {
+	return runY;
+    }
+
+    /**
+     * @return the number of the first grid point of each run, followed by
+     *         the number of grid points of the tissue.
+     */
+    public int[] getRunStart() {
+	return runStart;
+    }
+
+    /**
+     * @return the number of the first run of each row in x-direction, followed
+     *         by the number of runs.
+     */
+    public int[] getRowRun() {
+	return rowRun;
+    }
+
+    /**
+     * @return the x-coordinate of the left neighbour of each grid point.
+     */
+    public int[] getXm() {
+	return xm;
+    }
+
+    /**
+     * @return the x-coordinate of the right neighbour of each grid point.
+     */
+    public int[] getXp() {
+	return xp;
+    }
+
+    /**
+     * @return the y-coordinate of the lower neighbour of each grid point.
+     */
+    public int[] getYm() {
+	return ym;
+    }
+
+    /**
+     * @return the y-coordinate of the upper neighbour of each grid point.
+     */
+    public int[] getYp() {
+	return yp;
+    }
+
+    /**
+     * @return the number of neighbours of each grid point which are
+     *         <b>zero</b> due to the boundary conditions.
+     */
+    public byte[] getOpen() {
+	return open;
+    }
+
+    /**
+     * @return the number of neighbours in x-direction of each grid point
+     *         which are <b>zero</b> due to the boundary conditions.
+     */
+    public byte[] getOpenX() {
+	return openX;
+    }
+
+    /**
+     * @param d
+     *                the diagonal: <b>0</b> for <i>(+1,+1)</i>, <b>1</b> for
+     *                <i>(-1,+1)</i>, <b>2</b> for <i>(+1,-1)</i> and
+     *                <b>3</b> for <i>(-1,-1)</i>.
+     * @return the x-coordinate of this diagonal neighbour of each grid point.
+     */
+    public int[] getDiagX(int d) {
+	if (diagX == null) {
+	    connectDiagonals();
+	}
+	return diagX[d];
+    }
+
+    /**
+     * @param d
+     *                the diagonal, see <code>{@link Geometry#getDiagX(int)}</code>.
+     * @return the y-coordinate of this diagonal neighbour of each grid point.
+     */
+    public int[] getDiagY(int d) {
+	if (diagY == null) {
+	    connectDiagonals();
+	}
+	return diagY[d];
+    }
+
+    /**
+     * @return one bit for each diagonal neighbour of each grid point which is
+     *         <b>zero</b> due to the boundary conditions, see
+     *         <code>{@link Geometry#getDiagX(int)}</code>.
+     */
+    public byte[] getOpenDiag() {
+	if (openDiag == null) {
+	    connectDiagonals();
+	}
+	return openDiag;
+    }
+
+    /**
+     * @return the boundary condition at the edges of the grid.
+     */
+    public int getBoundaryCondition() {
+	return bc;
+    }
+
+    /**
+     * @return the dimension of the grid.
+     */
+    public int getDimension() {
+	return dimension;
+    }
+
+}
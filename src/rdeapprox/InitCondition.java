@@ -21,8 +21,6 @@ public class InitCondition {
          * conditions will be set.
          */
     private RDESolver rde;
-    
-    private double[][][][] data;
 
     /**
          * Creates an new <code>{@link InitCondition}</code> object.
@@ -33,7 +31,6 @@ public class InitCondition {
          */
     public InitCondition(RDESolver rde) {
 	this.rde = rde;
-	data = rde.getData();
     }
 
     /**
@@ -72,16 +69,16 @@ public class InitCondition {
 	if (dimension == 2) {
 	    for (int i = posX - rad; i < posX + rad; i++) {
 		for (int j = posY - rad; j < posY + rad; j++) {
-		    data[rde.getActArray()][field][i][j] = value;
+		    rde.setValue(field, i, j, value);
 		}
 	    }
 	}
 	if (dimension == 1) {
 	    for (int i = posX - rad; i < posX + rad; i++)
-		data[rde.getActArray()][field][i][0] = value;
+		rde.setValue(field, i, 0, value);
 	}
 	if (dimension == 0) {
-	    data[rde.getActArray()][field][0][0] = value;
+	    rde.setValue(field, 0, 0, value);
 	}
     }
 
@@ -106,12 +103,12 @@ public class InitCondition {
 	    targetPattern(0, 0, 0, field, value);
 	} else if (dimension == 1) {
 	    for (int i = offsetX; i < offsetX + width; i++) {
-		data[rde.getActArray()][field][i][0] = value;
+		rde.setValue(field, i, 0, value);
 	    }
 	} else if (dimension == 2) {
 	    for (int i = offsetX; i < offsetX + width; i++) {
 		for (int j = 0; j < length; j++) {
-		    data[rde.getActArray()][field][i][j] = value;
+		    rde.setValue(field, i, j, value);
 		}
 	    }
 	}
@@ -129,22 +126,21 @@ public class InitCondition {
          */
     public void steadyState(int field, double value) {
 		int dimension = rde.getDimension();
-		int act = rde.getActArray();
 		int dimX = -1;
 		int dimY = -1;
 		if (dimension == 0) {
-			data[act][field][0][0] = value;
+			rde.setValue(field, 0, 0, value);
 		} else if (dimension == 1) {
 			dimX = rde.getDimX();
 			for (int i = 0; i < dimX; i++) {
-				data[act][field][i][0] = value;
+				rde.setValue(field, i, 0, value);
 			}
 		} else if (dimension == 2) {
 			dimX = rde.getDimX();
 			dimY = rde.getDimY();
 			for (int i = 0; i < dimX; i++) {
 				for (int j = 0; j < dimY; j++) {
-					data[act][field][i][j] = value;
+					rde.setValue(field, i, j, value);
 				}
 			}
 		}
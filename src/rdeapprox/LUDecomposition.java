@@ -0,0 +1,80 @@
+package rdeapprox;
+
+/**
+ * The LU decomposition with partial pivoting of the small dense matrices of
+ * the single cell solvers, see <code>{@link CellEngine}</code> and
+ * <code>{@link RestingState}</code>.
+ *
+ * @author Mario Krapp
+ */
+class LUDecomposition {
+
+    /**
+     * Decomposes a matrix in place. The rows are swapped, so
+     * <code>w</code> contains <i>L</i> below and <i>U</i> on and above the
+     * diagonal afterwards.
+     *
+     * @param w
+     *                the matrix.
+     * @param pivot
+     *                the row which was swapped with each row.
+     * @return <code>false</code> if the matrix is singular.
+     */
+    static boolean decompose(double[][] w, int[] pivot) {
+	int n = w.length;
+	for (int c = 0; c < n; c++) {
+	    int p = c;
+	    for (int r = c + 1; r < n; r++) {
+		if (Math.abs(w[r][c]) > Math.abs(w[p][c])) {
+		    p = r;
+		}
+	    }
+	    pivot[c] = p;
+	    double[] row = w[p];
+	    w[p] = w[c];
+	    w[c] = row;
+	    if (w[c][c] == 0) {
+		return false;
+	    }
+	    for (int r = c + 1; r < n; r++) {
+		double l = w[r][c] / w[c][c];
+		w[r][c] = l;
+		for (int k = c + 1; k < n; k++) {
+		    w[r][k] -= l * w[c][k];
+		}
+	    }
+	}
+	return true;
+    }
+
+    /**
+     * Solves <i>W x = b</i> in place.
+     *
+     * @param w
+     *                the decomposed matrix.
+     * @param pivot
+     *                the pivots of the decomposition.
+     * @param b
+     *                the right hand side, replaced by the solution.
+     */
+    static void solve(double[][] w, int[] pivot, double[] b) {
+	int n = w.length;
+	for (int c = 0; c < n; c++) {
+	    double v = b[pivot[c]];
+	    b[pivot[c]] = b[c];
+	    b[c] = v;
+	}
+	for (int r = 0; r < n; r++) {
+	    for (int k = 0; k < r; k++) {
+		b[r] -= w[r][k] * b[k];
+	    }
+	}
+	for (int r = n - 1; r >= 0; r--) {
+	    for (int k = r + 1; k < n; k++) {
+		b[r] -= w[r][k] * b[k];
+	    }
+	    b[r] /= w[r][r];
+	}
+    }
+
+}
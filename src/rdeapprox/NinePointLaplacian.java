@@ -0,0 +1,61 @@
+package rdeapprox;
+
+/**
+ * The laplacian with the isotropic nine point stencil
+ * <i>(4 (E + W + N + S) + NE + NW + SE + SW - 20 u) / (6 h<sup>2</sup>)</i>.
+ * Its leading error term does not depend on the direction, so spiral waves
+ * keep their shape on coarser grids than with the
+ * <code>{@link FivePointLaplacian}</code>. The diagonal neighbours are taken
+ * from <code>{@link Geometry#getDiagX(int)}</code>.
+ *
+ * @author Mario Krapp
+ */
+public class NinePointLaplacian implements DiffusionOperator {
+
+    private int[] xm, xp, ym, yp;
+
+    private int[] d0x, d0y, d1x, d1y, d2x, d2y, d3x, d3y;
+
+    /**
+     * The factor of the grid point itself, including the neighbours which
+     * are <b>zero</b> due to the boundary conditions.
+     */
+    private double[] center;
+
+    private double dh;
+
+    public void connect(Geometry geometry, double dh) {
+	this.dh = dh;
+	xm = geometry.getXm();
+	xp = geometry.getXp();
+	ym = geometry.getYm();
+	yp = geometry.getYp();
+	d0x = geometry.getDiagX(0);
+	d0y = geometry.getDiagY(0);
+	d1x = geometry.getDiagX(1);
+	d1y = geometry.getDiagY(1);
+	d2x = geometry.getDiagX(2);
+	d2y = geometry.getDiagY(2);
+	d3x = geometry.getDiagX(3);
+	d3y = geometry.getDiagY(3);
+	byte[] open = geometry.getOpen();
+	byte[] openDiag = geometry.getOpenDiag();
+	center = new double[open.length];
+	for (int c = 0; c < open.length; c++) {
+	    center[c] = 20 + 4 * open[c] + Integer.bitCount(openDiag[c]);
+	}
+    }
+
+    public void laplace(double[][] u, int x, int y, int from, int to,
+	    double[] out) {
+	double[] ux = u[x];
+	double h2 = 6 * dh * dh;
+	for (int c = from; c < to; c++, y++) {
+	    double edges = u[xm[c]][y] + u[xp[c]][y] + ux[ym[c]] + ux[yp[c]];
+	    double corners = u[d0x[c]][d0y[c]] + u[d1x[c]][d1y[c]]
+		    + u[d2x[c]][d2y[c]] + u[d3x[c]][d3y[c]];
+	    out[c - from] = (4 * edges + corners - center[c] * ux[y]) / h2;
+	}
+    }
+
+}
@@ -0,0 +1,52 @@
+package rdeapprox;
+
+import models.Oregonator;
+
+/**
+ * The fused <code>{@link StepKernel}</code> of the
+ * <code>{@link Oregonator}</code>.
+ *
+ * @author Mario Krapp
+ */
+public class OregonatorKernel extends FivePointKernel {
+
+    private final Oregonator model;
+
+    public OregonatorKernel(Oregonator model, Geometry geometry,
+	    double[][] diffScale, double dt, double dh) {
+	super(geometry, diffScale, dt, dh);
+	this.model = model;
+    }
+
+    public void step(double[][][] in, double[][][] out, int x, int y,
+	    int from, int to) {
+	final double eps = Oregonator.eps;
+	final double phi = Oregonator.phi;
+	final double q = Oregonator.q;
+	final double f = Oregonator.f;
+	double du = model.diffConsts[0];
+	double dv = model.diffConsts[1];
+	double[] u = in[0][x];
+	double[] v = in[1][x];
+	double[] uOut = out[0][x];
+	double[] vOut = out[1][x];
+	double[] scale = diffScale[x];
+	for (int c = from; c < to; c++, y++) {
+	    double uc = u[y];
+	    double vc = v[y];
+	    double lapU = 0;
+	    if (du != 0) {
+		lapU = laplace(in[0], c, x, y);
+	    }
+	    double lapV = 0;
+	    if (dv != 0) {
+		lapV = laplace(in[1], c, x, y);
+	    }
+	    double ru = eps * (uc - (uc * uc) - (f * vc + phi) * (uc - q) / (uc + q));
+	    double rv = uc - vc;
+	    uOut[y] = uc + dt * (du * scale[y] * lapU + ru);
+	    vOut[y] = vc + dt * (dv * scale[y] * lapV + rv);
+	}
+    }
+
+}
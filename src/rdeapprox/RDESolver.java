@@ -1,14 +1,9 @@
 package rdeapprox;
 
-import static utils.Parser.getDouble;
-import static utils.Parser.getInteger;
-import static utils.PropertiesManager.loadProperties;
-
-import java.awt.Rectangle;
 import java.util.Arrays;
-import java.util.Properties;
-import java.util.Random;
 
+import models.CellParameters;
+import models.Oregonator;
 import models.RDEModel;
 
 /**
@@ -24,8 +19,8 @@ import models.RDEModel;
  * fields represent the x- and y-position of the data value.
  * 
  * <p>
- * <code>{@link RDESolver}</code> uses the <code>Properties</code> class
- * which contains the parameter sets for solving the nonlinear PDEs
+ * <code>{@link RDESolver}</code> uses the <code>{@link SolverConfig}</code>
+ * class which contains the parameter sets for solving the nonlinear PDEs
  * 
  * @author Stefan Zeller
  * @author Mario Krapp
@@ -66,11 +61,11 @@ public class RDESolver {
      */
     private int bc;
 
-    private final static int ZERO = 0;
+    final static int ZERO = 0;
 
-    private final static int NOFLUX = 1;
+    final static int NOFLUX = 1;
 
-    private final static int PERIODIC = 2;
+    final static int PERIODIC = 2;
 
     /**
      * The <code>Array</code> storing the values for all variables at each
@@ -97,949 +92,782 @@ public class RDESolver {
 
     private int fieldCount;
 
-    private Rectangle[] rect;
+    /**
+     * The grid points which belong to the tissue. See
+     * <code>{@link Geometry}</code>.
+     */
+    private Geometry geometry;
+
+    /**
+     * The operator which calculates the laplacian for the tissue. See
+     * <code>{@link DiffusionOperator}</code>.
+     */
+    private DiffusionOperator operator = new FivePointLaplacian();
+
+    /**
+     * The runs of grid points which are calculated together: x- and
+     * y-coordinate of the first grid point, its number and the number of the
+     * first grid point after the run. See <code>{@link Geometry#getRunX()}</code>.
+     */
+    private int[] runX, runY, runFrom, runTo;
+
+    /**
+     * The height of the tiles in y-direction, <b>0</b> if the grid is not
+     * tiled. See <code>{@link RDESolver#setTileSize(int)}</code>.
+     */
+    private int tileSize;
+
+    /**
+     * The kernel which calculates a time step for a run of grid points. See
+     * <code>{@link RDESolver#createKernel()}</code>.
+     */
+    private StepKernel kernel;
+
+    /**
+     * <code>false</code> if always the <code>{@link GenericKernel}</code> is
+     * used.
+     */
+    private boolean specialize = true;
+
+    /**
+     * The maximal number of grid points of a run.
+     */
+    private int maxRun;
+
+    /**
+     * The number of time steps which are calculated together and the width
+     * of the strips. See <code>{@link RDESolver#setTimeBlock(int, int)}</code>.
+     */
+    private int timeBlock = 1, stripWidth = 32;
+
+    /**
+     * The buffers for the intermediate time steps of a strip.
+     */
+    private double[][][][] block;
+
+    /**
+     * The rows of the grid with the buffers of a strip mapped into them, see
+     * <code>{@link RDESolver#nextTimeBlock(int, FieldStatistics)}</code>.
+     */
+    private double[][][][] view;
+
+    /**
+     * The number of packed cells calculated together for sparse storage.
+     */
+    private static final int SPARSE_RUN = 256;
+
+    /**
+     * The packed tissue if the data is stored in sparse form, otherwise
+     * <code>null</code>. See <code>{@link RDESolver#useSparseStorage()}</code>.
+     */
+    private SparseTissue sparse;
+
+    /**
+     * The factor by which the diffusion constants are scaled at each grid
+     * point. See <code>{@link CellParameters#getDiffusionScale()}</code>.
+     */
+    private double[][] diffScale;
+
+    /**
+     * The compiled stimuli or <code>null</code>. See
+     * <code>{@link RDESolver#setStimulusSchedule(StimulusSchedule)}</code>.
+     */
+    private StimulusSchedule.Compiled stimuli;
+
+    /**
+     * The current of the stimuli in the time step which is calculated, or
+     * <code>null</code>.
+     */
+    private double[][] current;
+
+    /**
+     * The number of time steps calculated since the start.
+     */
+    private long stepCount;
+
+    /**
+     * The statistics of the variables, see
+     * <code>{@link RDESolver#getStatistics()}</code>.
+     */
+    private FieldStatistics statistics;
 
     /**
      * Creates an new <code>{@link RDESolver}</code> object with the
-     * parameters given by <code>Properties</code> and the equations submitted
-     * by <code>{@link RDEModel}</code>. Afterwards the <code>Array</code>
-     * <i>{@link RDESolver#data}</i> will be initialized.
+     * parameters given by a configuration file, see
+     * <code>{@link SolverConfig}</code>.
      * 
-     * @param p
-     *                the properties which contain the parameters for solving
-     *                the PDEs given by <code>{@link RDEModel}</code>.
      * @param model
      *                contain the nonlinear PDEs to be solved.
+     * @param RDEConfigFile
+     *                name of the configuration file.
      */
     public RDESolver(RDEModel model, String RDEConfigFile) {
+	this(model, SolverConfig.load(RDEConfigFile));
+    }
+
+    /**
+     * Creates an new <code>{@link RDESolver}</code> object with the
+     * parameters given by a <code>{@link SolverConfig}</code> and the
+     * equations submitted by <code>{@link RDEModel}</code>. Afterwards the
+     * <code>Array</code> <i>{@link RDESolver#data}</i> will be initialized.
+     * 
+     * @param model
+     *                contain the nonlinear PDEs to be solved.
+     * @param config
+     *                the parameters for solving the PDEs given by
+     *                <code>{@link RDEModel}</code>.
+     */
+    public RDESolver(RDEModel model, SolverConfig config) {
 	this.model = model;
 	fieldCount = model.getFieldCount();
-	Properties p = loadProperties(RDEConfigFile);
-
-	dt = getDouble(p, "time_step");
-	dimension = getInteger(p, "dimension");
-
-	if (dimension != 0) {
-	    if (p.getProperty("boundary_condition").equals("zero")) {
-		bc = ZERO;
-	    } else if (p.getProperty("boundary_condition").equals("noflux")) {
-		bc = NOFLUX;
-	    } else if (p.getProperty("boundary_condition").equals("periodic")) {
-		bc = PERIODIC;
-	    }
+
+	dt = config.getDt();
+	dimension = config.getDimension();
+	bc = config.getBoundaryCondition();
+	dimX = config.getDimX();
+	dimY = config.getDimY();
+	dh = config.getDh();
+	statistics = new FieldStatistics(fieldCount);
+
+	// initialize array
+	data = new double[EULER_FORWARD_MEMORY][fieldCount][dimX][dimY];
+
+	// parameters which differ from grid point to grid point
+	if (model.getCellParameters() == null) {
+	    model.setCellParameters(new CellParameters(dimX, dimY));
 	}
+	diffScale = model.getCellParameters().getDiffusionScale();
+
+	specialize = config.isSpecialize();
 
-	// Settings for the chosen dimension
-	if (dimension == 2) {
-	    dimX = getInteger(p, "x_dimension");
-	    dimY = getInteger(p, "y_dimension");
-	    dh = getDouble(p, "spatial_step");
-	    rect = randomRect(100, 5);
+	// the operator for the laplacian
+	if (config.getLaplacian().equals("9point")) {
+	    operator = new NinePointLaplacian();
+	} else if (config.getLaplacian().equals("anisotropic")) {
+	    operator = new AnisotropicLaplacian(config.getFiberAngle(), config
+		    .getFiberRatio());
 	}
-	if (dimension == 1) {
-	    dimX = getInteger(p, "x_dimension");
-	    dimY = 1;
-	    dh = getDouble(p, "spatial_step");
+
+	// the tissue, optionally loaded from a bitmap or binary file
+	if (config.getGeometry() != null) {
+	    setGeometry(Geometry.load(config.getGeometry(), dimX, dimY));
+	} else {
+	    setGeometry(new Geometry(dimX, dimY));
 	}
-	if (dimension == 0) {
-	    dimX = 1;
-	    dimY = 1;
+	if (config.isSparse()) {
+	    useSparseStorage();
 	}
 
-	// initialize array
-	data = new double[EULER_FORWARD_MEMORY][fieldCount][dimX][dimY];
+	// time steps which are calculated together
+	setTimeBlock(config.getTimeBlock(), config.getStripWidth());
+
+	// tiles of the grid which are calculated together
+	if (config.isAutoTileSize()) {
+	    if (dimension != 0) {
+		setTileSize(TileCalibration.tileSize(this));
+	    }
+	} else if (config.getTileSize() > 0) {
+	    setTileSize(config.getTileSize());
+	}
 
     }
 
     /**
-     * Calculates one time step using the Euler forward method, dependent on the
-     * boundary conditions, given by <code>Properties</code>.
+     * Calculates one time step using the Euler forward method. Only the grid
+     * points of the tissue given by <code>{@link Geometry}</code> are
+     * calculated, the boundary conditions are part of the precomputed
+     * neighbours.
      */
     public void nextTimeStep() {
-	// TODO mir fällt auf, dass zu oft nach der Dimension geprüft wird. in
-	// laplace() kann man das besser lösen. Dasselbe gilt für die
-	// Randbedingungen. Das würde den Code sehr verkürzen. Also nur noch im
-	// Lplace nach "dimension" testen
+	step(null);
+    }
 
+    /**
+     * Calculates one time step.
+     * 
+     * @param stats
+     *                the statistics which are calculated in the sweep, or
+     *                <code>null</code>.
+     */
+    private void step(FieldStatistics stats) {
 	// switch index
 	act = (act == 0) ? 1 : 0;
 	// set actual index to old index
 	old = (act == 0) ? 1 : 0;
 
-	int y = 0;
-	int x = 0;
-	int f = 0;
-	double[] newValues = model.function(data[old], x, y);
+	current = stimuli != null ? stimuli.current(stepCount) : null;
+	stepCount++;
+	statistics.invalidate();
 
-	switch (dimension) {
-	case 0:
-	    // calculate new values
+	if (dimension == 0) {
+	    double[] newValues = model.function(data[old], 0, 0);
 	    // loop through dynamical variables
-	    for (f = 0; f < fieldCount; f++) {
-		// old value
-		double oldValues = data[old][f][x][y];
-		data[act][f][x][y] = oldValues + dt * newValues[f];
-	    }
-	    break;
-	case 1:
-	    switch (bc) {
-	    case 0:
-		zeroBC();
-		break;
-	    case 1:
-		noFluxBC();
-		break;
-	    case 2:
-		periodicBC();
-		break;
+	    for (int f = 0; f < fieldCount; f++) {
+		data[act][f][0][0] = data[old][f][0][0] + dt * newValues[f];
 	    }
-	    y = 0;
-	    for (x = 1; x < dimX - 1; x++) {
-		// calculate new values
-		newValues = model.function(data[old], x, y);
-		// loop through dynamical variables
-		for (f = 0; f < fieldCount; f++) {
-		    // old value
-		    double oldValues = data[old][f][x][y];
-		    // diffusion coefficient for current dynamical variable
-		    double diffCoeff = model.diffConsts[f];
-		    // calc laplace
-		    double laplace = 0;
-		    if (diffCoeff != 0) {
-			laplace = laplace(0, data[old][f][x - 1][y],
-				data[old][f][x][y], data[old][f][x + 1][y], 0);
-		    }
-
-		    data[act][f][x][y] = oldValues + dt
-			    * (diffCoeff * laplace + newValues[f]);
-		}
+	    if (current != null) {
+		data[act][0][0][0] += dt * current[0][0];
 	    }
-	    break;
-	case 2:
-	    switch (bc) {
-	    case 0:
-		zeroBC();
-		break;
-	    case 1:
-		noFluxBC();
-		break;
-	    case 2:
-		periodicBC();
-		break;
+	    if (stats != null) {
+		stats.reset();
+		stats.add(data[act], 0, 0, 0, 1);
+		stats.finish(stepCount, null);
 	    }
-	    for (x = 1; x < dimX - 1; x++) {
-		for (y = 1; y < dimY - 1; y++) {
-		    // calculate new values
-		    newValues = model.function(data[old], x, y);
-		    // loop through dynamical variables
-		    for (f = 0; f < fieldCount; f++) {
-			// old value
-			double oldValues = data[old][f][x][y];
-			// diffusion coefficient for current dynamical variable
-			double diffCoeff = model.diffConsts[f];
-			// calc laplace
-			double laplace = 0;
-			if (diffCoeff != 0) {
-			    laplace = laplace(data[old][f][x][y - 1],
-				    data[old][f][x - 1][y], data[old][f][x][y],
-				    data[old][f][x + 1][y],
-				    data[old][f][x][y + 1]);
-			}
-
-			data[act][f][x][y] = oldValues + dt
-				* (diffCoeff * laplace + newValues[f]);
-
-		    }
-		}
-	    }
-	    break;
-
+	    return;
 	}
 
-	// for (int i = 0; i < rect.length; i++) {
-	// rectangularObstacle(rect[i]);
-	// }
-
+	if (stats != null) {
+	    stats.reset();
+	}
+	sweep(data[old], data[act], runX, runY, runFrom, runTo, 0, runX.length,
+		stats);
+	if (stats != null) {
+	    stats.finish(stepCount, sparse);
+	}
     }
 
     /**
-     * Sets the boundray conditions to <b>periodic</b>.
-     */
-    private void periodicBC() {
-
-	int oldIdx = (act == 0) ? 1 : 0;
-	int x = -1;
-	int y = -1;
-	int f = -1;
-	double[] newFieldValues = null;
-	double old = -1;
-	double diffCoeff = -1;
-	double laplace = -1;
-
-	switch (dimension) {
-	case 1:
-	    /*
-	     * left boundary
-	     */
-	    x = 0;
-	    y = 0;
-	    // calculate new values
-	    newFieldValues = model.function(data[oldIdx], x, y);
-	    // loop through dynamical variables
-	    for (f = 0; f < fieldCount; f++) {
-		// old value
-		old = data[oldIdx][f][x][y];
-		// diffusion coefficient for current dynamical variable
-		diffCoeff = model.diffConsts[f];
-		// calc laplace
-		laplace = 0;
-		if (diffCoeff != 0) {
-		    laplace = laplace(0, data[oldIdx][f][dimX - 1][y],
-			    data[oldIdx][f][x][y], data[oldIdx][f][x + 1][y], 0);
-		}
-		data[act][f][x][y] = old + dt
-			* (diffCoeff * laplace + newFieldValues[f]);
-	    }
-	    /*
-	     * right boundary
-	     */
-	    x = dimX - 1;
-	    // calculate new values
-	    newFieldValues = model.function(data[oldIdx], x, y);
-	    // loop through dynamical variables
-	    for (f = 0; f < fieldCount; f++) {
-		// old value
-		old = data[oldIdx][f][x][y];
-		// diffusion coefficient for current dynamical variable
-		diffCoeff = model.diffConsts[f];
-		// calc laplace
-		laplace = 0;
-		if (diffCoeff != 0) {
-		    laplace = laplace(0, data[oldIdx][f][x - 1][y],
-			    data[oldIdx][f][x][y], data[oldIdx][f][0][y], 0);
-		}
-		data[act][f][x][y] = old + dt
-			* (diffCoeff * laplace + newFieldValues[f]);
-	    }
-	    break;
-	case 2:
-
-	    /*
-	     * the corners
-	     */
-	    // upper left
-	    x = 0;
-	    y = 0;
-	    newFieldValues = model.function(data[oldIdx], x, y);
-	    for (f = 0; f < fieldCount; f++) {
-		// old value
-		old = data[oldIdx][f][x][y];
-		// diffusion coefficient for current dynamical variable
-		diffCoeff = model.diffConsts[f];
-		// calc laplace
-		laplace = 0;
-		if (diffCoeff != 0) {
-		    laplace = laplace(data[oldIdx][f][0][dimY - 1],
-			    data[oldIdx][f][dimX - 1][0],
-			    data[oldIdx][f][x][y], data[oldIdx][f][x + 1][y],
-			    data[oldIdx][f][x][y + 1]);
-		}
-		data[act][f][x][y] = old + dt
-			* (diffCoeff * laplace + newFieldValues[f]);
-	    }
-	    // upper right
-	    x = dimX - 1;
-	    y = 0;
-	    newFieldValues = model.function(data[oldIdx], x, y);
-	    for (f = 0; f < fieldCount; f++) {
-		// old value
-		old = data[oldIdx][f][x][y];
-		// diffusion coefficient for current dynamical variable
-		diffCoeff = model.diffConsts[f];
-		// calc laplace
-		laplace = 0;
-		if (diffCoeff != 0) {
-		    laplace = laplace(data[oldIdx][f][dimX - 1][dimY - 1],
-			    data[oldIdx][f][x - 1][y], data[oldIdx][f][x][y],
-			    data[oldIdx][f][0][0], data[oldIdx][f][x][y + 1]);
-		}
-		data[act][f][x][y] = old + dt
-			* (diffCoeff * laplace + newFieldValues[f]);
-	    }
-	    // lower right
-	    x = dimX - 1;
-	    y = dimY - 1;
-	    newFieldValues = model.function(data[oldIdx], x, y);
-	    for (f = 0; f < fieldCount; f++) {
-		// old value
-		old = data[oldIdx][f][x][y];
-		// diffusion coefficient for current dynamical variable
-		diffCoeff = model.diffConsts[f];
-		// calc laplace
-		laplace = 0;
-		if (diffCoeff != 0) {
-		    laplace = laplace(data[oldIdx][f][x][y - 1],
-			    data[oldIdx][f][x - 1][y], data[oldIdx][f][x][y],
-			    data[oldIdx][f][0][dimY - 1],
-			    data[oldIdx][f][dimX - 1][0]);
-		}
-		data[act][f][x][y] = old + dt
-			* (diffCoeff * laplace + newFieldValues[f]);
-	    }
-	    // lower left
-	    x = 0;
-	    y = dimY - 1;
-	    newFieldValues = model.function(data[oldIdx], x, y);
-	    for (f = 0; f < fieldCount; f++) {
-		// old value
-		old = data[oldIdx][f][x][y];
-		// diffusion coefficient for current dynamical variable
-		diffCoeff = model.diffConsts[f];
-		// calc laplace
-		laplace = 0;
-		if (diffCoeff != 0) {
-		    laplace = laplace(data[oldIdx][f][x][y - 1],
-			    data[oldIdx][f][dimX - 1][dimY - 1],
-			    data[oldIdx][f][x][y], data[oldIdx][f][x + 1][y],
-			    data[oldIdx][f][0][0]);
-		}
-		data[act][f][x][y] = old + dt
-			* (diffCoeff * laplace + newFieldValues[f]);
-	    }
-	    /*
-	     * left boundary
-	     */
-	    x = 0;
-	    for (y = 1; y < dimY - 1; y++) {
-		// calculate new values
-		newFieldValues = model.function(data[oldIdx], x, y);
-		// loop through dynamical variables
-		for (f = 0; f < fieldCount; f++) {
-		    // old value
-		    old = data[oldIdx][f][x][y];
-		    // diffusion coefficient for current dynamical variable
-		    diffCoeff = model.diffConsts[f];
-		    // calc laplace
-		    laplace = 0;
-		    if (diffCoeff != 0) {
-			laplace = laplace(data[oldIdx][f][x][y - 1],
-				data[oldIdx][f][dimX - 1][y],
-				data[oldIdx][f][x][y],
-				data[oldIdx][f][x + 1][y],
-				data[oldIdx][f][x][y + 1]);
-		    }
-		    data[act][f][x][y] = old + dt
-			    * (diffCoeff * laplace + newFieldValues[f]);
-		}
-	    }
-	    /*
-	     * right boundary
-	     */
-	    x = dimX - 1;
-	    for (y = 1; y < dimY - 1; y++) {
-		// calculate new values
-		newFieldValues = model.function(data[oldIdx], x, y);
-		// loop through dynamical variables
-		for (f = 0; f < fieldCount; f++) {
-		    // old value
-		    old = data[oldIdx][f][x][y];
-		    // diffusion coefficient for current dynamical variable
-		    diffCoeff = model.diffConsts[f];
-		    // calc laplace
-		    laplace = 0;
-		    if (diffCoeff != 0) {
-			laplace = laplace(data[oldIdx][f][x][y - 1],
-				data[oldIdx][f][x - 1][y],
-				data[oldIdx][f][x][y], data[oldIdx][f][0][y],
-				data[oldIdx][f][x][y + 1]);
-		    }
-		    data[act][f][x][y] = old + dt
-			    * (diffCoeff * laplace + newFieldValues[f]);
-		}
+     * Calculates one time step for some runs of grid points.
+     * 
+     * @param in
+     *                the old values of all variables.
+     * @param out
+     *                the new values of all variables.
+     * @param runX
+     *                x-coordinate of each run.
+     * @param runY
+     *                first y-coordinate of each run.
+     * @param runFrom
+     *                number of the first grid point of each run.
+     * @param runTo
+     *                number of the first grid point after each run.
+     * @param first
+     *                the first run which is calculated.
+     * @param last
+     *                the first run which is not calculated anymore.
+     * @param stats
+     *                the statistics to which the new values are added, or
+     *                <code>null</code>.
+     */
+    private void sweep(double[][][] in, double[][][] out, int[] runX,
+	    int[] runY, int[] runFrom, int[] runTo, int first, int last,
+	    FieldStatistics stats) {
+	if (current == null && stats == null) {
+	    for (int r = first; r < last; r++) {
+		kernel.step(in, out, runX[r], runY[r], runFrom[r], runTo[r]);
 	    }
-	    /*
-	     * lower boundary
-	     */
-	    y = dimY - 1;
-	    for (x = 1; x < dimX - 1; x++) {
-		// calculate new values
-		newFieldValues = model.function(data[oldIdx], x, y);
-		// loop through dynamical variables
-		for (f = 0; f < fieldCount; f++) {
-		    // old value
-		    old = data[oldIdx][f][x][y];
-		    // diffusion coefficient for current dynamical variable
-		    diffCoeff = model.diffConsts[f];
-		    // calc laplace
-		    laplace = 0;
-		    if (diffCoeff != 0) {
-			laplace = laplace(data[oldIdx][f][x][y - 1],
-				data[oldIdx][f][x - 1][y],
-				data[oldIdx][f][x][y],
-				data[oldIdx][f][x + 1][y],
-				data[oldIdx][f][x][0]);
-		    }
-		    data[act][f][x][y] = old + dt
-			    * (diffCoeff * laplace + newFieldValues[f]);
+	    return;
+	}
+	for (int r = first; r < last; r++) {
+	    kernel.step(in, out, runX[r], runY[r], runFrom[r], runTo[r]);
+	    // the stimulus and the statistics while the run is still in the
+	    // cache
+	    if (current != null) {
+		double[] v = out[0][runX[r]];
+		double[] c = current[runX[r]];
+		int y = runY[r];
+		for (int k = 0; k < runTo[r] - runFrom[r]; k++) {
+		    v[y + k] += dt * c[y + k];
 		}
 	    }
-	    /*
-	     * upper boundary
-	     */
-	    y = 0;
-	    for (x = 1; x < dimX - 1; x++) {
-		// calculate new values
-		newFieldValues = model.function(data[oldIdx], x, y);
-		// loop through dynamical variables
-		for (f = 0; f < fieldCount; f++) {
-		    // old value
-		    old = data[oldIdx][f][x][y];
-		    // diffusion coefficient for current dynamical variable
-		    diffCoeff = model.diffConsts[f];
-		    // calc laplace
-		    laplace = 0;
-		    if (diffCoeff != 0) {
-			laplace = laplace(data[oldIdx][f][x][dimY - 1],
-				data[oldIdx][f][x - 1][y],
-				data[oldIdx][f][x][y],
-				data[oldIdx][f][x + 1][y],
-				data[oldIdx][f][x][y + 1]);
-		    }
-		    data[act][f][x][y] = old + dt
-			    * (diffCoeff * laplace + newFieldValues[f]);
-		}
+	    if (stats != null) {
+		stats.add(out, runX[r], runY[r], runFrom[r], runTo[r]);
 	    }
-	    break;
 	}
     }
 
     /**
-     * Sets the boundray conditions to <b>zero</b>.
-     */
-    private void zeroBC() {
-
-	int oldIdx = (act == 0) ? 1 : 0;
-	int x = -1;
-	int y = -1;
-	int f = -1;
-	double[] newFieldValues = null;
-	double old = -1;
-	double diffCoeff = -1;
-	double laplace = -1;
-
-	switch (dimension) {
-	case 1:
-	    /*
-	     * left boundary
-	     */
-	    x = 0;
-	    y = 0;
-	    // calculate new values
-	    newFieldValues = model.function(data[oldIdx], x, y);
-	    // loop through dynamical variables
-	    for (f = 0; f < fieldCount; f++) {
-		// old value
-		old = data[oldIdx][f][x][y];
-		// diffusion coefficient for current dynamical variable
-		diffCoeff = model.diffConsts[f];
-		// calc laplace
-		laplace = 0;
-		if (diffCoeff != 0) {
-		    laplace = laplace(0, 0, data[oldIdx][f][x][y],
-			    data[oldIdx][f][x + 1][y], 0);
-		}
-		data[act][f][x][y] = old + dt
-			* (diffCoeff * laplace + newFieldValues[f]);
-	    }
-	    /*
-	     * right boundary
-	     */
-	    x = dimX - 1;
-	    // calculate new values
-	    newFieldValues = model.function(data[oldIdx], x, y);
-	    // loop through dynamical variables
-	    for (f = 0; f < fieldCount; f++) {
-		// old value
-		old = data[oldIdx][f][x][y];
-		// diffusion coefficient for current dynamical variable
-		diffCoeff = model.diffConsts[f];
-		// calc laplace
-		laplace = 0;
-		if (diffCoeff != 0) {
-		    laplace = laplace(0, data[oldIdx][f][x - 1][y],
-			    data[oldIdx][f][x][y], 0, 0);
-		}
-		data[act][f][x][y] = old + dt
-			* (diffCoeff * laplace + newFieldValues[f]);
-	    }
-	    break;
-	case 2:
-	    /*
-	     * the corners
-	     */
-	    // upper left
-	    x = 0;
-	    y = 0;
-	    // calculate new values
-	    newFieldValues = model.function(data[oldIdx], x, y);
-	    for (f = 0; f < fieldCount; f++) {
-		// old value
-		old = data[oldIdx][f][x][y];
-		// diffusion coefficient for current dynamical variable
-		diffCoeff = model.diffConsts[f];
-		// calc laplace
-		laplace = 0;
-		if (diffCoeff != 0) {
-		    laplace = laplace(0, 0, data[oldIdx][f][x][y],
-			    data[oldIdx][f][x + 1][y],
-			    data[oldIdx][f][x][y + 1]);
-		}
-		data[act][f][x][y] = old + dt
-			* (diffCoeff * laplace + newFieldValues[f]);
-	    }
-	    // upper right
-	    x = dimX - 1;
-	    y = 0;
-	    newFieldValues = model.function(data[oldIdx], x, y);
-	    for (f = 0; f < fieldCount; f++) {
-		// old value
-		old = data[oldIdx][f][x][y];
-		// diffusion coefficient for current dynamical variable
-		diffCoeff = model.diffConsts[f];
-		// calc laplace
-		laplace = 0;
-		if (diffCoeff != 0) {
-		    laplace = laplace(0, data[oldIdx][f][x - 1][y],
-			    data[oldIdx][f][x][y], 0, data[oldIdx][f][x][y + 1]);
-		}
-		data[act][f][x][y] = old + dt
-			* (diffCoeff * laplace + newFieldValues[f]);
-	    }
-	    // lower right
-	    x = dimX - 1;
-	    y = dimY - 1;
-	    newFieldValues = model.function(data[oldIdx], x, y);
-	    for (f = 0; f < fieldCount; f++) {
-		// old value
-		old = data[oldIdx][f][x][y];
-		// diffusion coefficient for current dynamical variable
-		diffCoeff = model.diffConsts[f];
-		// calc laplace
-		laplace = 0;
-		if (diffCoeff != 0) {
-		    laplace = laplace(data[oldIdx][f][x][y - 1],
-			    data[oldIdx][f][x - 1][y], data[oldIdx][f][x][y],
-			    0, 0);
-		}
-		data[act][f][x][y] = old + dt
-			* (diffCoeff * laplace + newFieldValues[f]);
+     * Calculates several time steps. The grid is divided into strips of
+     * <code>{@link RDESolver#setTimeBlock(int, int)}</code> grid points in
+     * x-direction and each strip is advanced by up to <i>timeBlock</i> time
+     * steps before the next strip is calculated. The results are identical to
+     * calling <code>{@link RDESolver#nextTimeStep()}</code> <i>steps</i>
+     * times, only the values before the last time step are not kept.
+     * 
+     * @param steps
+     *                the number of time steps.
+     */
+    public void nextTimeSteps(int steps) {
+	nextTimeSteps(steps, false);
+    }
+
+    /**
+     * Calculates several time steps, see
+     * <code>{@link RDESolver#nextTimeSteps(int)}</code>, and optionally the
+     * <code>{@link FieldStatistics}</code> inside the sweep of the last time
+     * step. They are then available from
+     * <code>{@link RDESolver#getStatistics()}</code> without another pass
+     * over the grid.
+     * 
+     * @param steps
+     *                the number of time steps.
+     * @param statistics
+     *                <code>true</code> to calculate the statistics.
+     */
+    public void nextTimeSteps(int steps, boolean statistics) {
+	while (steps > 0) {
+	    int k = Math.min(steps, timeBlock);
+	    if (k == 1 || dimension == 0 || sparse != null
+		    || (bc == PERIODIC && stripWidth + 2 * k > dimX)) {
+		k = 1;
 	    }
-	    // lower left
-	    x = 0;
-	    y = dimY - 1;
-	    newFieldValues = model.function(data[oldIdx], x, y);
-	    for (f = 0; f < fieldCount; f++) {
-		// old value
-		old = data[oldIdx][f][x][y];
-		// diffusion coefficient for current dynamical variable
-		diffCoeff = model.diffConsts[f];
-		// calc laplace
-		laplace = 0;
-		if (diffCoeff != 0) {
-		    laplace = laplace(data[oldIdx][f][x][y - 1], 0,
-			    data[oldIdx][f][x][y], data[oldIdx][f][x + 1][y], 0);
-		}
-		data[act][f][x][y] = old + dt
-			* (diffCoeff * laplace + newFieldValues[f]);
+	    FieldStatistics stats = statistics && k == steps ? this.statistics
+		    : null;
+	    if (k == 1) {
+		step(stats);
+	    } else {
+		nextTimeBlock(k, stats);
 	    }
-	    /*
-	     * left boundary
-	     */
-	    x = 0;
-	    for (y = 1; y < dimY - 1; y++) {
-		// calculate new values
-		newFieldValues = model.function(data[oldIdx], x, y);
-		// loop through dynamical variables
-		for (f = 0; f < fieldCount; f++) {
-		    // old value
-		    old = data[oldIdx][f][x][y];
-		    // diffusion coefficient for current dynamical variable
-		    diffCoeff = model.diffConsts[f];
-		    // calc laplace
-		    laplace = 0;
-		    if (diffCoeff != 0) {
-			laplace = laplace(data[oldIdx][f][x][y - 1], 0,
-				data[oldIdx][f][x][y],
-				data[oldIdx][f][x + 1][y],
-				data[oldIdx][f][x][y + 1]);
-		    }
-		    data[act][f][x][y] = old + dt
-			    * (diffCoeff * laplace + newFieldValues[f]);
+	    steps -= k;
+	}
+    }
+
+    /**
+     * <p>
+     * Calculates <i>k</i> time steps strip by strip. A grid point only depends
+     * on its neighbours in x-direction, so after <i>s</i> time steps the strip
+     * is still correct if it was widened by <i>k - s</i> grid points on both
+     * sides. These halos are calculated again for each strip.
+     * 
+     * <p>
+     * The intermediate time steps are stored in two small buffers which are
+     * mapped to the grid rows of the strip, so the
+     * <code>{@link DiffusionOperator}</code> and the model are called with
+     * the usual coordinates. The last time step is written to the grid.
+     * 
+     * @param k
+     *                the number of time steps.
+     * @param stats
+     *                the statistics which are calculated in the last time
+     *                step, or <code>null</code>.
+     */
+    private void nextTimeBlock(int k, FieldStatistics stats) {
+	int in = act;
+	int out = (act == 0) ? 1 : 0;
+	int rows = stripWidth + 2 * k;
+	if (block == null || block[0][0].length < rows
+		|| block[0][0][0].length != dimY) {
+	    block = new double[2][fieldCount][rows][dimY];
+	}
+	if (view == null || view[0].length != fieldCount
+		|| view[0][0].length != dimX) {
+	    view = new double[2][fieldCount][dimX][];
+	}
+	statistics.invalidate();
+	if (stats != null) {
+	    stats.reset();
+	}
+
+	int[] rowRun = geometry.getRowRun();
+	int[] gx = geometry.getRunX();
+	int[] gy = geometry.getRunY();
+	int[] gStart = geometry.getRunStart();
+	int[] from = Arrays.copyOf(gStart, gx.length);
+	int[] to = Arrays.copyOfRange(gStart, 1, gx.length + 1);
+
+	for (int x0 = 0; x0 < dimX; x0 += stripWidth) {
+	    int x1 = Math.min(x0 + stripWidth, dimX);
+	    // map the buffers to the rows of the strip and its halos
+	    for (int o = 0; o < x1 - x0 + 2 * k; o++) {
+		int x = x0 - k + o;
+		if (bc == PERIODIC) {
+		    x = (x + dimX) % dimX;
+		} else if (x < 0 || x >= dimX) {
+		    continue;
 		}
-	    }
-	    /*
-	     * right boundary
-	     */
-	    x = dimX - 1;
-	    for (y = 1; y < dimY - 1; y++) {
-		// calculate new values
-		newFieldValues = model.function(data[oldIdx], x, y);
-		// loop through dynamical variables
-		for (f = 0; f < fieldCount; f++) {
-		    // old value
-		    old = data[oldIdx][f][x][y];
-		    // diffusion coefficient for current dynamical variable
-		    diffCoeff = model.diffConsts[f];
-		    // calc laplace
-		    laplace = 0;
-		    if (diffCoeff != 0) {
-			laplace = laplace(data[oldIdx][f][x][y - 1],
-				data[oldIdx][f][x - 1][y],
-				data[oldIdx][f][x][y], 0,
-				data[oldIdx][f][x][y + 1]);
+		for (int b = 0; b < 2; b++) {
+		    for (int f = 0; f < fieldCount; f++) {
+			view[b][f][x] = block[b][f][o];
 		    }
-		    data[act][f][x][y] = old + dt
-			    * (diffCoeff * laplace + newFieldValues[f]);
 		}
 	    }
-	    /*
-	     * lower boundary
-	     */
-	    y = dimY - 1;
-	    for (x = 1; x < dimX - 1; x++) {
-		// calculate new values
-		newFieldValues = model.function(data[oldIdx], x, y);
-		// loop through dynamical variables
-		for (f = 0; f < fieldCount; f++) {
-		    // old value
-		    old = data[oldIdx][f][x][y];
-		    // diffusion coefficient for current dynamical variable
-		    diffCoeff = model.diffConsts[f];
-		    // calc laplace
-		    laplace = 0;
-		    if (diffCoeff != 0) {
-			laplace = laplace(data[oldIdx][f][x][y - 1],
-				data[oldIdx][f][x - 1][y],
-				data[oldIdx][f][x][y],
-				data[oldIdx][f][x + 1][y], 0);
+	    for (int s = 1; s <= k; s++) {
+		current = stimuli != null ? stimuli.current(stepCount + s - 1)
+			: null;
+		double[][][] src = (s == 1) ? data[in] : view[(s - 1) % 2];
+		double[][][] dst = (s == k) ? data[out] : view[s % 2];
+		FieldStatistics last = (s == k) ? stats : null;
+		// rows which are still needed by the following time steps
+		int a = x0 - (k - s);
+		int b = x1 + (k - s);
+		if (bc == PERIODIC) {
+		    if (a < 0) {
+			sweep(src, dst, gx, gy, from, to, rowRun[a + dimX],
+				rowRun[dimX], last);
+			a = 0;
 		    }
-		    data[act][f][x][y] = old + dt
-			    * (diffCoeff * laplace + newFieldValues[f]);
-		}
-	    }
-	    /*
-	     * upper boundary
-	     */
-	    y = 0;
-	    for (x = 1; x < dimX - 1; x++) {
-		// calculate new values
-		newFieldValues = model.function(data[oldIdx], x, y);
-		// loop through dynamical variables
-		for (f = 0; f < fieldCount; f++) {
-		    // old value
-		    old = data[oldIdx][f][x][y];
-		    // diffusion coefficient for current dynamical variable
-		    diffCoeff = model.diffConsts[f];
-		    // calc laplace
-		    laplace = 0;
-		    if (diffCoeff != 0) {
-			laplace = laplace(0, data[oldIdx][f][x - 1][y],
-				data[oldIdx][f][x][y],
-				data[oldIdx][f][x + 1][y],
-				data[oldIdx][f][x][y + 1]);
+		    if (b > dimX) {
+			sweep(src, dst, gx, gy, from, to, 0, rowRun[b - dimX],
+				last);
+			b = dimX;
 		    }
-		    data[act][f][x][y] = old + dt
-			    * (diffCoeff * laplace + newFieldValues[f]);
 		}
+		a = Math.max(a, 0);
+		b = Math.min(b, dimX);
+		sweep(src, dst, gx, gy, from, to, rowRun[a], rowRun[b], last);
 	    }
-	    break;
 	}
+	stepCount += k;
+	if (stats != null) {
+	    stats.finish(stepCount, null);
+	}
+	if (k % 2 == 0) {
+	    // same current array as after k single time steps
+	    double[][][] t = data[in];
+	    data[in] = data[out];
+	    data[out] = t;
+	    act = in;
+	    old = out;
+	} else {
+	    act = out;
+	    old = in;
+	}
+    }
 
+    /**
+     * @return the <code>{@link Geometry}</code> of the tissue.
+     */
+    public Geometry getGeometry() {
+	return geometry;
     }
 
     /**
-     * Sets the boundray conditions to <b>noflux</b>.
-     */
-    private void noFluxBC() {
-
-	int oldIdx = (act == 0) ? 1 : 0;
-	int x = -1;
-	int y = -1;
-	int f = -1;
-	double[] newFieldValues = null;
-	double old = -1;
-	double diffCoeff = -1;
-	double laplace = -1;
-
-	switch (dimension) {
-	case 1:
-	    /*
-	     * left boundary
-	     */
-	    x = 0;
-	    y = 0;
-	    // calculate new values
-	    newFieldValues = model.function(data[oldIdx], x, y);
-	    // loop through dynamical variables
-	    for (f = 0; f < fieldCount; f++) {
-		// old value
-		old = data[oldIdx][f][x][y];
-		// diffusion coefficient for current dynamical variable
-		diffCoeff = model.diffConsts[f];
-		// calc laplace
-		laplace = 0;
-		if (diffCoeff != 0) {
-		    laplace = laplace(0, data[oldIdx][f][x][y],
-			    data[oldIdx][f][x][y], data[oldIdx][f][x + 1][y], 0);
-		}
-		data[act][f][x][y] = old + dt
-			* (diffCoeff * laplace + newFieldValues[f]);
-	    }
-	    /*
-	     * right boundary
-	     */
-	    x = dimX - 1;
-	    // calculate new values
-	    newFieldValues = model.function(data[oldIdx], x, y);
-	    // loop through dynamical variables
-	    for (f = 0; f < fieldCount; f++) {
-		// old value
-		old = data[oldIdx][f][x][y];
-		// diffusion coefficient for current dynamical variable
-		diffCoeff = model.diffConsts[f];
-		// calc laplace
-		laplace = 0;
-		if (diffCoeff != 0) {
-		    laplace = laplace(0, data[oldIdx][f][x - 1][y],
-			    data[oldIdx][f][x][y], data[oldIdx][f][x][y], 0);
-		}
-		data[act][f][x][y] = old + dt
-			* (diffCoeff * laplace + newFieldValues[f]);
-	    }
-	    break;
-	case 2:
-	    /*
-	     * the corners
-	     */
-	    // upper left
-	    x = 0;
-	    y = 0;
-	    // calculate new values
-	    newFieldValues = model.function(data[oldIdx], x, y);
-	    for (f = 0; f < fieldCount; f++) {
-		// old value
-		old = data[oldIdx][f][x][y];
-		// diffusion coefficient for current dynamical variable
-		diffCoeff = model.diffConsts[f];
-		// calc laplace
-		laplace = 0;
-		if (diffCoeff != 0) {
-		    laplace = laplace(data[oldIdx][f][x][y],
-			    data[oldIdx][f][x][y], data[oldIdx][f][x][y],
-			    data[oldIdx][f][x + 1][y],
-			    data[oldIdx][f][x][y + 1]);
-		}
-		data[act][f][x][y] = old + dt
-			* (diffCoeff * laplace + newFieldValues[f]);
-	    }
-	    // upper right
-	    x = dimX - 1;
-	    y = 0;
-	    newFieldValues = model.function(data[oldIdx], x, y);
-	    for (f = 0; f < fieldCount; f++) {
-		// old value
-		old = data[oldIdx][f][x][y];
-		// diffusion coefficient for current dynamical variable
-		diffCoeff = model.diffConsts[f];
-		// calc laplace
-		laplace = 0;
-		if (diffCoeff != 0) {
-		    laplace = laplace(
-			    data[oldIdx][f][x][y], // ---
-			    data[oldIdx][f][x - 1][y], data[oldIdx][f][x][y],
-			    data[oldIdx][f][x][y], // ---
-			    data[oldIdx][f][x][y + 1]);
-		}
-		data[act][f][x][y] = old + dt
-			* (diffCoeff * laplace + newFieldValues[f]);
-	    }
-	    // lower right
-	    x = dimX - 1;
-	    y = dimY - 1;
-	    newFieldValues = model.function(data[oldIdx], x, y);
-	    for (f = 0; f < fieldCount; f++) {
-		// old value
-		old = data[oldIdx][f][x][y];
-		// diffusion coefficient for current dynamical variable
-		diffCoeff = model.diffConsts[f];
-		// calc laplace
-		laplace = 0;
-		if (diffCoeff != 0) {
-		    laplace = laplace(data[oldIdx][f][x][y - 1],
-			    data[oldIdx][f][x - 1][y], data[oldIdx][f][x][y],
-			    data[oldIdx][f][x][y], // ---
-			    data[oldIdx][f][x][y]); // ---
-		}
-		data[act][f][x][y] = old + dt
-			* (diffCoeff * laplace + newFieldValues[f]);
-	    }
-	    // lower left
-	    x = 0;
-	    y = dimY - 1;
-	    newFieldValues = model.function(data[oldIdx], x, y);
-	    for (f = 0; f < fieldCount; f++) {
-		// old value
-		old = data[oldIdx][f][x][y];
-		// diffusion coefficient for current dynamical variable
-		diffCoeff = model.diffConsts[f];
-		// calc laplace
-		laplace = 0;
-		if (diffCoeff != 0) {
-		    laplace = laplace(
-			    data[oldIdx][f][x][y - 1],
-			    data[oldIdx][f][x][y], // ---
-			    data[oldIdx][f][x][y], data[oldIdx][f][x + 1][y],
-			    data[oldIdx][f][x][y]); // ---
-		}
-		data[act][f][x][y] = old + dt
-			* (diffCoeff * laplace + newFieldValues[f]);
-	    }
-	    /*
-	     * left boundary
-	     */
-	    x = 0;
-	    for (y = 1; y < dimY - 1; y++) {
-		// calculate new values
-		newFieldValues = model.function(data[oldIdx], x, y);
-		// loop through dynamical variables
-		for (f = 0; f < fieldCount; f++) {
-		    // old value
-		    old = data[oldIdx][f][x][y];
-		    // diffusion coefficient for current dynamical variable
-		    diffCoeff = model.diffConsts[f];
-		    // calc laplace
-		    laplace = 0;
-		    if (diffCoeff != 0) {
-			laplace = laplace(
-				data[oldIdx][f][x][y - 1],
-				data[oldIdx][f][x][y], // ---
-				data[oldIdx][f][x][y],
-				data[oldIdx][f][x + 1][y],
-				data[oldIdx][f][x][y + 1]);
-		    }
-		    data[act][f][x][y] = old + dt
-			    * (diffCoeff * laplace + newFieldValues[f]);
-		}
+     * Sets a new <code>{@link Geometry}</code> and computes the neighbours of
+     * its grid points. Has to be called again after the tissue of the
+     * <code>{@link Geometry}</code> was changed.
+     * 
+     * @param geometry
+     *                the new <code>{@link Geometry}</code>. Its size has to
+     *                match the grid.
+     */
+    public void setGeometry(Geometry geometry) {
+	checkDense();
+	if (geometry.getDimX() != dimX || geometry.getDimY() != dimY) {
+	    throw new IllegalArgumentException("Geometry of size "
+		    + geometry.getDimX() + "x" + geometry.getDimY()
+		    + " does not match grid of size " + dimX + "x" + dimY);
+	}
+	geometry.connect(bc, dimension);
+	this.geometry = geometry;
+	operator.connect(geometry, dh);
+	tile();
+    }
+
+    /**
+     * @return the height of the tiles in y-direction, <b>0</b> if the grid is
+     *         not tiled.
+     */
+    public int getTileSize() {
+	return tileSize;
+    }
+
+    /**
+     * <p>
+     * Sets the height of the tiles in which the grid is calculated. The runs
+     * of the <code>{@link Geometry}</code> are cut into bands of
+     * <code>tileSize</code> grid points in y-direction, which are calculated
+     * one after another. The neighbours of a band and all its variables then
+     * stay in the cache while the band is swept in x-direction. The results
+     * do not depend on the tile size.
+     * 
+     * <p>
+     * For sparse storage the tile size is the number of packed cells which are
+     * calculated together. The tile size can be calibrated with
+     * <i>tile_size=auto</i> in the configuration file.
+     * 
+     * @param tileSize
+     *                the height of the tiles, <b>0</b> for whole runs.
+     */
+    public void setTileSize(int tileSize) {
+	this.tileSize = tileSize;
+	tile();
+    }
+
+    /**
+     * Cuts the runs of the <code>{@link Geometry}</code> or the packed cells
+     * into tiles.
+     */
+    private void tile() {
+	if (sparse != null) {
+	    int n = sparse.getCellCount();
+	    int size = tileSize > 0 ? tileSize : SPARSE_RUN;
+	    int runs = (n + size - 1) / size;
+	    int[] from = new int[runs];
+	    int[] to = new int[runs];
+	    for (int r = 0; r < runs; r++) {
+		from[r] = r * size;
+		to[r] = Math.min(n, from[r] + size);
 	    }
-	    /*
-	     * right boundary
-	     */
-	    x = dimX - 1;
-	    for (y = 1; y < dimY - 1; y++) {
-		// calculate new values
-		newFieldValues = model.function(data[oldIdx], x, y);
-		// loop through dynamical variables
-		for (f = 0; f < fieldCount; f++) {
-		    // old value
-		    old = data[oldIdx][f][x][y];
-		    // diffusion coefficient for current dynamical variable
-		    diffCoeff = model.diffConsts[f];
-		    // calc laplace
-		    laplace = 0;
-		    if (diffCoeff != 0) {
-			laplace = laplace(data[oldIdx][f][x][y - 1],
-				data[oldIdx][f][x - 1][y],
-				data[oldIdx][f][x][y], data[oldIdx][f][x][y], // ---
-				data[oldIdx][f][x][y + 1]);
-		    }
-		    data[act][f][x][y] = old + dt
-			    * (diffCoeff * laplace + newFieldValues[f]);
+	    setRuns(new int[runs], from, from, to);
+	    return;
+	}
+	int[] gx = geometry.getRunX();
+	int[] gy = geometry.getRunY();
+	int[] gStart = geometry.getRunStart();
+	if (tileSize <= 0 || tileSize >= dimY) {
+	    setRuns(gx, gy, Arrays.copyOf(gStart, gx.length), Arrays.copyOfRange(
+		    gStart, 1, gx.length + 1));
+	    return;
+	}
+	int bands = (dimY + tileSize - 1) / tileSize;
+	int[] x = new int[gx.length + bands * dimX];
+	int[] y = new int[x.length];
+	int[] from = new int[x.length];
+	int[] to = new int[x.length];
+	int n = 0;
+	for (int b = 0; b < bands; b++) {
+	    for (int r = 0; r < gx.length; r++) {
+		int y0 = Math.max(gy[r], b * tileSize);
+		int y1 = Math.min(gy[r] + gStart[r + 1] - gStart[r], (b + 1)
+			* tileSize);
+		if (y0 < y1) {
+		    x[n] = gx[r];
+		    y[n] = y0;
+		    from[n] = gStart[r] + y0 - gy[r];
+		    to[n] = gStart[r] + y1 - gy[r];
+		    n++;
 		}
 	    }
-	    /*
-	     * lower boundary
-	     */
-	    y = dimY - 1;
-	    for (x = 1; x < dimX - 1; x++) {
-		// calculate new values
-		newFieldValues = model.function(data[oldIdx], x, y);
-		// loop through dynamical variables
-		for (f = 0; f < fieldCount; f++) {
-		    // old value
-		    old = data[oldIdx][f][x][y];
-		    // diffusion coefficient for current dynamical variable
-		    diffCoeff = model.diffConsts[f];
-		    // calc laplace
-		    laplace = 0;
-		    if (diffCoeff != 0) {
-			laplace = laplace(data[oldIdx][f][x][y - 1],
-				data[oldIdx][f][x - 1][y],
-				data[oldIdx][f][x][y],
-				data[oldIdx][f][x + 1][y],
-				data[oldIdx][f][x][y]); // ---
-		    }
-		    data[act][f][x][y] = old + dt
-			    * (diffCoeff * laplace + newFieldValues[f]);
-		}
+	}
+	setRuns(Arrays.copyOf(x, n), Arrays.copyOf(y, n),
+		Arrays.copyOf(from, n), Arrays.copyOf(to, n));
+    }
+
+    private void setRuns(int[] runX, int[] runY, int[] runFrom, int[] runTo) {
+	this.runX = runX;
+	this.runY = runY;
+	this.runFrom = runFrom;
+	this.runTo = runTo;
+	statistics.invalidate();
+	maxRun = 0;
+	for (int r = 0; r < runX.length; r++) {
+	    maxRun = Math.max(maxRun, runTo[r] - runFrom[r]);
+	}
+	if (sparse == null) {
+	    // whole runs for nextTimeBlock(int, FieldStatistics)
+	    int[] gStart = geometry.getRunStart();
+	    for (int r = 0; r < geometry.getRunCount(); r++) {
+		maxRun = Math.max(maxRun, gStart[r + 1] - gStart[r]);
 	    }
-	    /*
-	     * upper boundary
-	     */
-	    y = 0;
-	    for (x = 1; x < dimX - 1; x++) {
-		// calculate new values
-		newFieldValues = model.function(data[oldIdx], x, y);
-		// loop through dynamical variables
-		for (f = 0; f < fieldCount; f++) {
-		    // old value
-		    old = data[oldIdx][f][x][y];
-		    // diffusion coefficient for current dynamical variable
-		    diffCoeff = model.diffConsts[f];
-		    // calc laplace
-		    laplace = 0;
-		    if (diffCoeff != 0) {
-			laplace = laplace(
-				data[oldIdx][f][x][y], // ---
-				data[oldIdx][f][x - 1][y],
-				data[oldIdx][f][x][y],
-				data[oldIdx][f][x + 1][y],
-				data[oldIdx][f][x][y + 1]);
-		    }
-		    data[act][f][x][y] = old + dt
-			    * (diffCoeff * laplace + newFieldValues[f]);
-		}
+	}
+	createKernel();
+    }
+
+    /**
+     * Selects the <code>{@link StepKernel}</code> for the model, the
+     * <code>{@link DiffusionOperator}</code> and the storage. The fused
+     * kernel of the <code>{@link Oregonator}</code> is used with the
+     * <code>{@link FivePointLaplacian}</code> on the full grid storage if the
+     * <code>{@link VectorKernels}</code> are not available, otherwise the
+     * <code>{@link GenericKernel}</code>. See <code>moduls.Benchmark</code>.
+     */
+    private void createKernel() {
+	boolean fused = specialize && !Simd.ENABLED && sparse == null
+		&& operator.getClass() == FivePointLaplacian.class;
+	if (fused && model.getClass() == Oregonator.class) {
+	    kernel = new OregonatorKernel((Oregonator) model, geometry,
+		    diffScale, dt, dh);
+	} else {
+	    kernel = new GenericKernel(model, operator, diffScale, dt, maxRun);
+	}
+    }
+
+    /**
+     * @return the kernel which calculates a time step for a run of grid
+     *         points.
+     */
+    public StepKernel getStepKernel() {
+	return kernel;
+    }
+
+    /**
+     * Selects whether the fused kernels of simple models may be used.
+     * 
+     * @param specialize
+     *                <code>false</code> to always use the
+     *                <code>{@link GenericKernel}</code>.
+     */
+    public void setSpecializedKernels(boolean specialize) {
+	this.specialize = specialize;
+	createKernel();
+    }
+
+    /**
+     * @return the number of time steps which are calculated together by
+     *         <code>{@link RDESolver#nextTimeSteps(int)}</code>.
+     */
+    public int getTimeBlock() {
+	return timeBlock;
+    }
+
+    /**
+     * Sets the number of time steps which are calculated together by
+     * <code>{@link RDESolver#nextTimeSteps(int)}</code>. Each strip of the grid
+     * additionally calculates <i>timeBlock - 1</i> grid points on both sides,
+     * so the strips should be considerably wider than the time block while
+     * still fitting into the cache.
+     * 
+     * @param timeBlock
+     *                the number of time steps, <b>1</b> for single steps.
+     * @param stripWidth
+     *                the width of the strips in x-direction.
+     */
+    public void setTimeBlock(int timeBlock, int stripWidth) {
+	if (timeBlock < 1 || stripWidth < 1) {
+	    throw new IllegalArgumentException("Invalid time block " + timeBlock
+		    + " with strip width " + stripWidth);
+	}
+	this.timeBlock = timeBlock;
+	this.stripWidth = stripWidth;
+	block = null;
+    }
+
+    /**
+     * @return the operator which calculates the laplacian.
+     */
+    public DiffusionOperator getDiffusionOperator() {
+	return operator;
+    }
+
+    /**
+     * Sets the operator which calculates the laplacian, i.e. a
+     * <code>{@link NinePointLaplacian}</code> for coarser grids.
+     * 
+     * @param operator
+     *                the new <code>{@link DiffusionOperator}</code>.
+     */
+    public void setDiffusionOperator(DiffusionOperator operator) {
+	checkDense();
+	operator.connect(geometry, dh);
+	this.operator = operator;
+	createKernel();
+    }
+
+    /**
+     * <p>
+     * Switches to sparse storage: only the tissue cells of the
+     * <code>{@link Geometry}</code> are kept, packed by
+     * <code>{@link SparseTissue}</code> into a single row per variable. Memory
+     * and calculation time then scale with the number of tissue cells. The
+     * <code>{@link CellParameters}</code> of the model are packed as well.
+     * 
+     * <p>
+     * Afterwards <code>{@link RDESolver#getData()}</code> has the layout
+     * <i>[memory][fields][0][cell]</i>, so grid points should be accessed by
+     * <code>{@link RDESolver#getValue(int, int, int)}</code> and
+     * <code>{@link RDESolver#setValue(int, int, int, double)}</code>. The
+     * grid can not be changed anymore.
+     */
+    public void useSparseStorage() {
+	if (dimension == 0 || sparse != null) {
+	    return;
+	}
+	if (!(operator instanceof FivePointLaplacian)) {
+	    throw new IllegalStateException(
+		    "Sparse storage supports the five point laplacian only");
+	}
+	sparse = new SparseTissue(geometry);
+	double[][][][] packed = new double[EULER_FORWARD_MEMORY][fieldCount][1][];
+	for (int m = 0; m < EULER_FORWARD_MEMORY; m++) {
+	    for (int f = 0; f < fieldCount; f++) {
+		packed[m][f][0] = sparse.pack(data[m][f]);
 	    }
 	}
+	data = packed;
+	model.setCellParameters(sparse.pack(model.getCellParameters()));
+	diffScale = model.getCellParameters().getDiffusionScale();
+
+	// the packed cells are calculated in runs on a single row
+	operator = new CsrLaplacian(sparse);
+	operator.connect(geometry, dh);
+	statistics.setStorage(sparse);
+	tile();
+	if (stimuli != null) {
+	    setStimulusSchedule(stimuli.getSchedule());
+	}
     }
 
     /**
-     * Calculates the laplacian for the current grid point <i>(x,y)</i>.
-     * Capable for one or two dimensions. In one dimension the upper and lower
-     * neighbour has to be set to <b>0</b>.
+     * @return the packed tissue or <code>null</code> if the data is not
+     *         stored in sparse form.
+     */
+    public SparseTissue getSparseTissue() {
+	return sparse;
+    }
+
+    private void checkDense() {
+	if (sparse != null) {
+	    throw new IllegalStateException(
+		    "The grid can not be changed with sparse storage");
+	}
+    }
+
+    /**
+     * @param field
+     *                the variable.
+     * @param x
+     *                x-coordinate of the grid point.
+     * @param y
+     *                y-coordinate of the grid point.
+     * @return the current value of a variable at grid point <i>(x,y)</i>. For
+     *         sparse storage grid points outside the tissue are <b>0</b>.
+     */
+    public double getValue(int field, int x, int y) {
+	if (sparse == null) {
+	    return data[act][field][x][y];
+	}
+	int i = sparse.index(x, y);
+	return i < 0 ? 0 : data[act][field][0][i];
+    }
+
+    /**
+     * Sets the current value of a variable at grid point <i>(x,y)</i>. Grid
+     * points outside the tissue keep their value in all time steps, for
+     * sparse storage they are ignored.
      * 
-     * @param xym
-     *                lower neighbour of <i>(x,y)</i>.
-     * @param xmy
-     *                left neighbour of <i>(x,y)</i>.
-     * @param xy
-     *                <i>(x,y)</i> itself.
-     * @param xpy
-     *                right neighbour of <i>(x,y)</i>.
-     * @param xyp
-     *                upper neighbour of <i>(x,y)</i>.
-     * @return
-     */
-    private double laplace(double xym, double xmy, double xy, double xpy,
-	    double xyp) {
-	if (dimension == 1) {
-	    return (xmy + xpy + xym + xyp - 2 * xy) / (dh * dh);
+     * @param field
+     *                the variable.
+     * @param x
+     *                x-coordinate of the grid point.
+     * @param y
+     *                y-coordinate of the grid point.
+     * @param value
+     *                the new value.
+     */
+    public void setValue(int field, int x, int y, double value) {
+	statistics.invalidate();
+	if (sparse == null) {
+	    data[act][field][x][y] = value;
+	    if (!geometry.isTissue(x, y)) {
+		// not calculated, so the value is kept in both arrays
+		data[(act == 0) ? 1 : 0][field][x][y] = value;
+	    }
+	    return;
+	}
+	int i = sparse.index(x, y);
+	if (i >= 0) {
+	    data[act][field][0][i] = value;
 	}
-	if (dimension == 2) {
-	    return (xmy + xpy + xym + xyp - 4 * xy) / (dh * dh);
-	} else
-	    return 0;
     }
 
+    /**
+     * Adds a value to the current value of a variable at grid point
+     * <i>(x,y)</i>, see <code>{@link RDESolver#setValue(int, int, int, double)}</code>.
+     * 
+     * @param field
+     *                the variable.
+     * @param x
+     *                x-coordinate of the grid point.
+     * @param y
+     *                y-coordinate of the grid point.
+     * @param value
+     *                the value to add.
+     */
+    public void addValue(int field, int x, int y, double value) {
+	setValue(field, x, y, getValue(field, x, y) + value);
+    }
+
+
     /**
      * 
      * @return current index of the calculation.
@@ -1098,6 +926,7 @@ public class RDESolver {
      *                the new number of grid points.
      */
     public void setDimX(int newDimX) {
+	checkDense();
 	int oldDimX = getDimX();
 	this.dimX = newDimX;
 	double[][][][] data2 = new double[EULER_FORWARD_MEMORY][model
@@ -1117,6 +946,22 @@ public class RDESolver {
 	    }
 	}
 	setData(data2);
+	resizeCellParameters();
+	// the masks do not fit anymore
+	stimuli = null;
+	setGeometry(new Geometry(dimX, dimY));
+    }
+
+    /**
+     * Replaces the <code>{@link CellParameters}</code> of the model by
+     * homogeneous ones if they do not fit to the grid anymore.
+     */
+    private void resizeCellParameters() {
+	CellParameters cp = model.getCellParameters();
+	if (cp.getDimX() != dimX || cp.getDimY() != dimY) {
+	    model.setCellParameters(new CellParameters(dimX, dimY));
+	    diffScale = model.getCellParameters().getDiffusionScale();
+	}
     }
 
     /**
@@ -1136,6 +981,7 @@ public class RDESolver {
      *                the new number of grid points.
      */
     public void setDimY(int newDimY) {
+	checkDense();
 	int oldDimY = getDimY();
 	this.dimY = newDimY;
 	double[][][][] data2 = new double[EULER_FORWARD_MEMORY][model
@@ -1159,12 +1005,18 @@ public class RDESolver {
 	    }
 	}
 	setData(data2);
+	resizeCellParameters();
+	// the masks do not fit anymore
+	stimuli = null;
+	setGeometry(new Geometry(dimX, dimY));
     }
 
     /**
      * @return an <code>Array</code> of <code>{@link RDESolver#data}</code>.
      */
     public double[][][][] getData() {
+	// the values may be changed
+	statistics.invalidate();
 	return data;
     }
 
@@ -1176,6 +1028,127 @@ public class RDESolver {
      */
     public void setData(double[][][][] data) {
 	this.data = data;
+	statistics.invalidate();
+    }
+
+    /**
+     * Copies the values of all variables, i.e. to continue several
+     * simulations from the same state. The current values are always stored
+     * first, so the copy can be restored in any solver with the same grid.
+     *
+     * @return a copy of <code>{@link RDESolver#data}</code>.
+     *
+     * @see RDESolver#restoreState(double[][][][])
+     */
+    public double[][][][] saveState() {
+	double[][][][] ret = new double[2][][][];
+	ret[0] = copy(data[act]);
+	ret[1] = copy(data[(act == 0) ? 1 : 0]);
+	return ret;
+    }
+
+    private static double[][][] copy(double[][][] values) {
+	double[][][] ret = new double[values.length][][];
+	for (int f = 0; f < values.length; f++) {
+	    ret[f] = new double[values[f].length][];
+	    for (int x = 0; x < values[f].length; x++) {
+		ret[f][x] = values[f][x].clone();
+	    }
+	}
+	return ret;
+    }
+
+    /**
+     * Restores the values of all variables without allocating new arrays.
+     *
+     * @param state
+     *                a copy created by
+     *                <code>{@link RDESolver#saveState()}</code>.
+     */
+    public void restoreState(double[][][][] state) {
+	statistics.invalidate();
+	for (int m = 0; m < 2; m++) {
+	    double[][][] to = data[(m == 0) ? act : (act == 0) ? 1 : 0];
+	    for (int f = 0; f < to.length; f++) {
+		for (int x = 0; x < to[f].length; x++) {
+		    System.arraycopy(state[m][f][x], 0, to[f][x], 0,
+			    to[f][x].length);
+		}
+	    }
+	}
+    }
+
+    /**
+     * Sets the stimuli which are applied during the following time steps.
+     * The times of the schedule are counted from the start of the solver,
+     * see <code>{@link RDESolver#getStepCount()}</code>. The schedule is
+     * removed if the grid is resized.
+     * 
+     * @param schedule
+     *                the stimuli, <code>null</code> for none.
+     */
+    public void setStimulusSchedule(StimulusSchedule schedule) {
+	stimuli = schedule == null || schedule.size() == 0 ? null : schedule
+		.compile(dt, dimX, dimY, sparse);
+    }
+
+    /**
+     * Returns the <code>{@link FieldStatistics}</code> of the current values.
+     * They are calculated by
+     * <code>{@link RDESolver#nextTimeSteps(int, boolean)}</code> inside the
+     * last time step, otherwise, i.e. after values were set, by a pass over
+     * the grid. The object is reused and only valid until the next time step.
+     * 
+     * @return the statistics of all variables.
+     */
+    public FieldStatistics getStatistics() {
+	if (statistics.getStep() != stepCount) {
+	    statistics.reset();
+	    if (dimension == 0) {
+		statistics.add(data[act], 0, 0, 0, 1);
+	    } else {
+		for (int r = 0; r < runX.length; r++) {
+		    statistics.add(data[act], runX[r], runY[r], runFrom[r],
+			    runTo[r]);
+		}
+	    }
+	    statistics.finish(stepCount, sparse);
+	}
+	return statistics;
+    }
+
+    /**
+     * Sets the threshold above which a grid point counts as excited in the
+     * <code>{@link FieldStatistics}</code>. By default no grid point is
+     * counted.
+     * 
+     * @param field
+     *                the variable.
+     * @param threshold
+     *                the threshold.
+     */
+    public void setStatisticsThreshold(int field, double threshold) {
+	statistics.setThreshold(field, threshold);
+	statistics.invalidate();
+    }
+
+    /**
+     * @return the number of time steps calculated since the start.
+     */
+    public long getStepCount() {
+	return stepCount;
+    }
+
+    /**
+     * Sets the number of time steps, i.e. after time steps which only
+     * measured the solver.
+     * 
+     * @param stepCount
+     *                the number of time steps.
+     */
+    void setStepCount(long stepCount) {
+	this.stepCount = stepCount;
+	statistics.invalidate();
     }
 
     /**
@@ -1201,208 +1174,7 @@ public class RDESolver {
      */
     public void setBoundaryCondition(int boundaryCondition) {
 	this.bc = boundaryCondition;
-    }
-
-    private void rectangularObstacle(Rectangle rect) {
-
-	/*
-	 * the corners
-	 */
-	// upper left
-	int oldIdx = (act == 0) ? 1 : 0;
-	int x = (int) rect.getMinX();
-	int y = (int) rect.getMinY();
-	double[] newFieldValues = model.function(data[oldIdx], x, y);
-	for (int f = 0; f < fieldCount; f++) {
-	    // old value
-	    double old = data[oldIdx][f][x][y];
-	    // diffusion coefficient for current dynamical variable
-	    double diffCoeff = model.diffConsts[f];
-	    // calc laplace
-	    double laplace = 0;
-	    if (diffCoeff != 0) {
-		laplace = laplace(
-			data[oldIdx][f][x][y], // ---
-			data[oldIdx][f][x][y], // ---
-			data[oldIdx][f][x][y], data[oldIdx][f][x + 1][y],
-			data[oldIdx][f][x][y + 1]);
-	    }
-	    data[act][f][x][y] = old + dt
-		    * (diffCoeff * laplace + newFieldValues[f]);
-	}
-	// upper right
-	x = (int) rect.getMaxX();
-	y = (int) rect.getMinY();
-	newFieldValues = model.function(data[oldIdx], x, y);
-	for (int f = 0; f < fieldCount; f++) {
-	    // old value
-	    double old = data[oldIdx][f][x][y];
-	    // diffusion coefficient for current dynamical variable
-	    double diffCoeff = model.diffConsts[f];
-	    // calc laplace
-	    double laplace = 0;
-	    if (diffCoeff != 0) {
-		laplace = laplace(
-			data[oldIdx][f][x][y], // ---
-			data[oldIdx][f][x - 1][y], data[oldIdx][f][x][y],
-			data[oldIdx][f][x][y], // ---
-			data[oldIdx][f][x][y + 1]);
-	    }
-	    data[act][f][x][y] = old + dt
-		    * (diffCoeff * laplace + newFieldValues[f]);
-	}
-	// lower right
-	x = (int) rect.getMaxX();
-	y = (int) rect.getMaxY();
-	newFieldValues = model.function(data[oldIdx], x, y);
-	for (int f = 0; f < fieldCount; f++) {
-	    // old value
-	    double old = data[oldIdx][f][x][y];
-	    // diffusion coefficient for current dynamical variable
-	    double diffCoeff = model.diffConsts[f];
-	    // calc laplace
-	    double laplace = 0;
-	    if (diffCoeff != 0) {
-		laplace = laplace(data[oldIdx][f][x][y - 1],
-			data[oldIdx][f][x - 1][y], data[oldIdx][f][x][y],
-			data[oldIdx][f][x][y], // ---
-			data[oldIdx][f][x][y]); // ---
-	    }
-	    data[act][f][x][y] = old + dt
-		    * (diffCoeff * laplace + newFieldValues[f]);
-	}
-	// lower left
-	x = (int) rect.getMinX();
-	y = (int) rect.getMaxY();
-	newFieldValues = model.function(data[oldIdx], x, y);
-	for (int f = 0; f < fieldCount; f++) {
-	    // old value
-	    double old = data[oldIdx][f][x][y];
-	    // diffusion coefficient for current dynamical variable
-	    double diffCoeff = model.diffConsts[f];
-	    // calc laplace
-	    double laplace = 0;
-	    if (diffCoeff != 0) {
-		laplace = laplace(
-			data[oldIdx][f][x][y - 1],
-			data[oldIdx][f][x][y], // ---
-			data[oldIdx][f][x][y], data[oldIdx][f][x + 1][y],
-			data[oldIdx][f][x][y]); // ---
-	    }
-	    data[act][f][x][y] = old + dt
-		    * (diffCoeff * laplace + newFieldValues[f]);
-	}
-	/*
-	 * left boundary
-	 */
-	x = (int) rect.getMinX();
-	for (y = (int) rect.getMinY() + 1; y < (int) rect.getMaxY(); y++) {
-	    // calculate new values
-	    newFieldValues = model.function(data[oldIdx], x, y);
-	    // loop through dynamical variables
-	    for (int f = 0; f < fieldCount; f++) {
-		// old value
-		double old = data[oldIdx][f][x][y];
-		// diffusion coefficient for current dynamical variable
-		double diffCoeff = model.diffConsts[f];
-		// calc laplace
-		double laplace = 0;
-		if (diffCoeff != 0) {
-		    laplace = laplace(
-			    data[oldIdx][f][x][y - 1],
-			    data[oldIdx][f][x][y], // ---
-			    data[oldIdx][f][x][y], data[oldIdx][f][x + 1][y],
-			    data[oldIdx][f][x][y + 1]);
-		}
-		data[act][f][x][y] = old + dt
-			* (diffCoeff * laplace + newFieldValues[f]);
-	    }
-	}
-	/*
-	 * right boundary
-	 */
-	x = (int) rect.getMaxX();
-	for (y = (int) rect.getMinY() + 1; y < (int) rect.getMaxY(); y++) {
-	    // calculate new values
-	    newFieldValues = model.function(data[oldIdx], x, y);
-	    // loop through dynamical variables
-	    for (int f = 0; f < fieldCount; f++) {
-		// old value
-		double old = data[oldIdx][f][x][y];
-		// diffusion coefficient for current dynamical variable
-		double diffCoeff = model.diffConsts[f];
-		// calc laplace
-		double laplace = 0;
-		if (diffCoeff != 0) {
-		    laplace = laplace(data[oldIdx][f][x][y - 1],
-			    data[oldIdx][f][x - 1][y], data[oldIdx][f][x][y],
-			    data[oldIdx][f][x][y], // ---
-			    data[oldIdx][f][x][y + 1]);
-		}
-		data[act][f][x][y] = old + dt
-			* (diffCoeff * laplace + newFieldValues[f]);
-	    }
-	}
-	/*
-	 * lower boundary
-	 */
-	y = (int) rect.getMaxY();
-	for (x = (int) rect.getMinX() + 1; x < (int) rect.getMaxX(); x++) {
-	    // calculate new values
-	    newFieldValues = model.function(data[oldIdx], x, y);
-	    // loop through dynamical variables
-	    for (int f = 0; f < fieldCount; f++) {
-		// old value
-		double old = data[oldIdx][f][x][y];
-		// diffusion coefficient for current dynamical variable
-		double diffCoeff = model.diffConsts[f];
-		// calc laplace
-		double laplace = 0;
-		if (diffCoeff != 0) {
-		    laplace = laplace(data[oldIdx][f][x][y - 1],
-			    data[oldIdx][f][x - 1][y], data[oldIdx][f][x][y],
-			    data[oldIdx][f][x + 1][y], data[oldIdx][f][x][y]); // ---
-		}
-		data[act][f][x][y] = old + dt
-			* (diffCoeff * laplace + newFieldValues[f]);
-	    }
-	}
-	/*
-	 * upper boundary
-	 */
-	y = (int) rect.getMinY();
-	for (x = (int) rect.getMinX() + 1; x < (int) rect.getMaxX(); x++) {
-	    // calculate new values
-	    newFieldValues = model.function(data[oldIdx], x, y);
-	    // loop through dynamical variables
-	    for (int f = 0; f < fieldCount; f++) {
-		// old value
-		double old = data[oldIdx][f][x][y];
-		// diffusion coefficient for current dynamical variable
-		double diffCoeff = model.diffConsts[f];
-		// calc laplace
-		double laplace = 0;
-		if (diffCoeff != 0) {
-		    laplace = laplace(
-			    data[oldIdx][f][x][y], // ---
-			    data[oldIdx][f][x - 1][y], data[oldIdx][f][x][y],
-			    data[oldIdx][f][x + 1][y],
-			    data[oldIdx][f][x][y + 1]);
-		}
-		data[act][f][x][y] = old + dt
-			* (diffCoeff * laplace + newFieldValues[f]);
-	    }
-	}
-    }
-
-    private Rectangle[] randomRect(int number, int size) {
-	Rectangle[] rect = new Rectangle[number];
-	Random r = new Random();
-	for (int i = 0; i < number; i++) {
-	    rect[i] = new Rectangle(r.nextInt(dimX - size), r.nextInt(dimY
-		    - size), size, size);
-	}
-	return rect;
+	setGeometry(geometry);
     }
 
 }
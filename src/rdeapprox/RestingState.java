@@ -0,0 +1,189 @@
+package rdeapprox;
+
+import java.util.logging.Logger;
+
+import models.CellParameters;
+import models.RDEModel;
+
+/**
+ * <p>
+ * Calculates the resting state of a single cell, where all equations of a
+ * <code>{@link RDEModel}</code> are <b>0</b>, with Newton's method. The
+ * Jacobian is given by the model, see
+ * <code>{@link RDEModel#jacobian(double[][][], int, int, double[][])}</code>,
+ * or calculated by finite differences.
+ *
+ * <p>
+ * Far away from the resting state the plain Newton step may end at another
+ * (unstable) fixed point or diverge. Therefore each step solves
+ * <i>(I/h - J) dx = f(x)</i>, which is an implicit Euler step of size
+ * <i>h</i>. <i>h</i> grows as long as the equations get smaller, so the
+ * first steps follow the dynamics of the cell into the resting state and the
+ * last steps are Newton steps (<i>h &rarr; &infin;</i>).
+ *
+ * @author Mario Krapp
+ */
+public class RestingState {
+
+    private static Logger logger = Logger.getLogger(RestingState.class
+	    .getName());
+
+    private static final int MAX_ITERATIONS = 500;
+
+    /**
+     * The step size from which on the steps are Newton steps.
+     */
+    private static final double NEWTON = 1e10;
+
+    private static final double TOLERANCE = 1e-12;
+
+    private RDEModel model;
+
+    private int n;
+
+    private double[][][] view;
+
+    private double[][] out;
+
+    private double[][] w;
+
+    private int[] pivot;
+
+    private RestingState(RDEModel model) {
+	this.model = model;
+	n = model.getFieldCount();
+	if (model.getCellParameters() == null) {
+	    model.setCellParameters(new CellParameters(1, 1));
+	}
+	view = new double[n][1][1];
+	out = new double[n][1];
+	w = new double[n][n];
+	pivot = new int[n];
+    }
+
+    /**
+     * Calculates the resting state.
+     *
+     * @param model
+     *                the model of the cell. If it has
+     *                <code>{@link CellParameters}</code> those of grid point
+     *                <i>(0,0)</i> are used.
+     * @param guess
+     *                values near the resting state.
+     * @return the resting state.
+     * @throws IllegalStateException
+     *                 if the iteration does not converge.
+     */
+    public static double[] solve(RDEModel model, double[] guess) {
+	return new RestingState(model).iterate(guess);
+    }
+
+    private double[] iterate(double[] guess) {
+	if (guess.length != n) {
+	    throw new IllegalArgumentException("Guess of length " + guess.length
+		    + " for " + n + " variables");
+	}
+	double[] x = guess.clone();
+	double[] f = new double[n];
+	double[] dx = new double[n];
+	double[] xn = new double[n];
+	double[] fn = new double[n];
+	rhs(x, f);
+	double norm = norm(f);
+	if (Double.isNaN(norm) || Double.isInfinite(norm)) {
+	    throw new IllegalArgumentException(
+		    "The equations are not defined at the guess");
+	}
+	double h = 1;
+	for (int it = 0; it < MAX_ITERATIONS; it++) {
+	    if (norm == 0) {
+		return x;
+	    }
+	    jacobian(x, f, h);
+	    System.arraycopy(f, 0, dx, 0, n);
+	    if (LUDecomposition.decompose(w, pivot)) {
+		LUDecomposition.solve(w, pivot, dx);
+	    } else {
+		h /= 10;
+		continue;
+	    }
+	    for (int i = 0; i < n; i++) {
+		xn[i] = x[i] + dx[i];
+	    }
+	    rhs(xn, fn);
+	    double normN = norm(fn);
+	    if (Double.isNaN(normN) || Double.isInfinite(normN)
+		    || normN > 2 * norm) {
+		// too far for the linearization
+		h /= 10;
+		continue;
+	    }
+	    boolean converged = h >= NEWTON;
+	    for (int i = 0; i < n; i++) {
+		if (Math.abs(dx[i]) > TOLERANCE * Math.max(1, Math.abs(x[i]))) {
+		    converged = false;
+		}
+	    }
+	    System.arraycopy(xn, 0, x, 0, n);
+	    System.arraycopy(fn, 0, f, 0, n);
+	    if (converged) {
+		logger.fine("Resting state after " + (it + 1) + " iterations");
+		return x;
+	    }
+	    h = Math.min(2 * NEWTON, h
+		    * Math.max(2, Math.min(10, norm / normN)));
+	    norm = normN;
+	}
+	throw new IllegalStateException("No resting state found for "
+		+ model.getClass().getSimpleName());
+    }
+
+    private void rhs(double[] state, double[] ret) {
+	for (int i = 0; i < n; i++) {
+	    view[i][0][0] = state[i];
+	}
+	model.react(view, 0, 0, 1, out);
+	for (int i = 0; i < n; i++) {
+	    ret[i] = out[i][0];
+	}
+    }
+
+    private static double norm(double[] f) {
+	double sum = 0;
+	for (double v : f) {
+	    sum += v * v;
+	}
+	return Math.sqrt(sum);
+    }
+
+    /**
+     * Calculates <i>W = I/h - J</i>.
+     */
+    private void jacobian(double[] x, double[] f, double h) {
+	for (int i = 0; i < n; i++) {
+	    view[i][0][0] = x[i];
+	}
+	if (!model.jacobian(view, 0, 0, w)) {
+	    double[] fp = new double[n];
+	    double[] xp = x.clone();
+	    for (int j = 0; j < n; j++) {
+		double delta = Math.sqrt(Math.ulp(1.0))
+			* Math.max(Math.abs(x[j]), 1e-3);
+		xp[j] = x[j] + delta;
+		delta = xp[j] - x[j];
+		rhs(xp, fp);
+		xp[j] = x[j];
+		for (int i = 0; i < n; i++) {
+		    w[i][j] = (fp[i] - f[i]) / delta;
+		}
+	    }
+	}
+	for (int i = 0; i < n; i++) {
+	    for (int j = 0; j < n; j++) {
+		w[i][j] = -w[i][j];
+	    }
+	    w[i][i] += 1 / h;
+	}
+    }
+
+}
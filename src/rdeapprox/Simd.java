@@ -0,0 +1,28 @@
+package rdeapprox;
+
+/**
+ * <p>
+ * Decides once whether the kernels of <code>{@link VectorKernels}</code> are
+ * used. They need the incubator module <i>jdk.incubator.vector</i>, which has
+ * to be added when starting the JVM with
+ * <code>--add-modules jdk.incubator.vector</code>. Otherwise the scalar loops
+ * are used, which give the same results.
+ *
+ * <p>
+ * The vector kernels can be switched off with <code>-Drde.simd=false</code>.
+ *
+ * @author Mario Krapp
+ */
+public class Simd {
+
+    /**
+     * <code>true</code> if the vector kernels are used.
+     */
+    public static final boolean ENABLED = ModuleLayer.boot().findModule(
+	    "jdk.incubator.vector").isPresent()
+	    && !"false".equals(System.getProperty("rde.simd"));
+
+    private Simd() {
+    }
+
+}
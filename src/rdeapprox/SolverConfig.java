@@ -0,0 +1,294 @@
+package rdeapprox;
+
+import static utils.PropertiesManager.loadProperties;
+
+import java.util.Properties;
+
+/**
+ * <p>
+ * The numerical parameters of a <code>{@link RDESolver}</code> as in
+ * <i>rde.config</i>. A <code>{@link SolverConfig}</code> is immutable, the
+ * values are parsed once when it is created. Variations of a configuration
+ * are created in memory with
+ * <code>{@link SolverConfig#with(String, String)}</code>, so several solvers
+ * with different parameters can be created in one process without writing
+ * configuration files.
+ *
+ * @author Mario Krapp
+ */
+public final class SolverConfig {
+
+    private final Properties properties;
+
+    private final int dimension;
+
+    private final double dt;
+
+    private final double dh;
+
+    private final int dimX;
+
+    private final int dimY;
+
+    private final int boundaryCondition;
+
+    private final String laplacian;
+
+    private final double fiberAngle;
+
+    private final double fiberRatio;
+
+    private final String geometry;
+
+    private final boolean sparse;
+
+    private final boolean specialize;
+
+    private final int timeBlock;
+
+    private final int stripWidth;
+
+    private final boolean autoTileSize;
+
+    private final int tileSize;
+
+    /**
+     * Creates a new <code>{@link SolverConfig}</code> object.
+     *
+     * @param p
+     *                the parameters, which are copied.
+     * @throws IllegalArgumentException
+     *                 if a parameter is missing or invalid.
+     */
+    public SolverConfig(Properties p) {
+	properties = new Properties();
+	properties.putAll(p);
+
+	dt = getDouble("time_step", Double.NaN);
+	dimension = getInt("dimension", -1);
+	if (dimension < 0 || dimension > 2) {
+	    throw new IllegalArgumentException("Invalid dimension: "
+		    + p.getProperty("dimension"));
+	}
+	if (dimension == 0) {
+	    boundaryCondition = RDESolver.ZERO;
+	    dimX = 1;
+	    dimY = 1;
+	    dh = 0;
+	} else {
+	    String bc = p.getProperty("boundary_condition", "");
+	    if (bc.equals("zero")) {
+		boundaryCondition = RDESolver.ZERO;
+	    } else if (bc.equals("noflux")) {
+		boundaryCondition = RDESolver.NOFLUX;
+	    } else if (bc.equals("periodic")) {
+		boundaryCondition = RDESolver.PERIODIC;
+	    } else {
+		throw new IllegalArgumentException("Unknown boundary condition: "
+			+ bc);
+	    }
+	    dimX = getInt("x_dimension", -1);
+	    dimY = dimension == 2 ? getInt("y_dimension", -1) : 1;
+	    dh = getDouble("spatial_step", Double.NaN);
+	}
+
+	laplacian = p.getProperty("laplacian", "5point");
+	if (laplacian.equals("anisotropic")) {
+	    fiberAngle = getDouble("fiber_angle", Double.NaN);
+	    fiberRatio = getDouble("fiber_ratio", Double.NaN);
+	} else if (laplacian.equals("5point") || laplacian.equals("9point")) {
+	    fiberAngle = 0;
+	    fiberRatio = 1;
+	} else {
+	    throw new IllegalArgumentException("Unknown laplacian: " + laplacian);
+	}
+	geometry = p.getProperty("geometry");
+	sparse = "sparse".equals(p.getProperty("storage"));
+	specialize = !"generic".equals(p.getProperty("kernel"));
+	timeBlock = getInt("time_block", 1);
+	stripWidth = getInt("strip_width", 32);
+	autoTileSize = "auto".equals(p.getProperty("tile_size"));
+	tileSize = autoTileSize ? 0 : getInt("tile_size", 0);
+    }
+
+    /**
+     * Loads a configuration file.
+     *
+     * @param fileName
+     *                name of the file, i.e. <i>rde.config</i>.
+     * @return the configuration.
+     */
+    public static SolverConfig load(String fileName) {
+	return new SolverConfig(loadProperties(fileName));
+    }
+
+    /**
+     * Creates a copy with one parameter changed, i.e.
+     * <code>config.with("dimension", "1")</code>.
+     *
+     * @param key
+     *                the parameter as in <i>rde.config</i>.
+     * @param value
+     *                the new value.
+     * @return the new configuration.
+     */
+    public SolverConfig with(String key, String value) {
+	Properties p = getProperties();
+	p.setProperty(key, value);
+	return new SolverConfig(p);
+    }
+
+    /**
+     * @return a copy of the parameters.
+     */
+    public Properties getProperties() {
+	Properties p = new Properties();
+	p.putAll(properties);
+	return p;
+    }
+
+    private double getDouble(String key, double def) {
+	String s = properties.getProperty(key);
+	if (s == null) {
+	    if (Double.isNaN(def)) {
+		throw new IllegalArgumentException("Missing parameter: " + key);
+	    }
+	    return def;
+	}
+	try {
+	    return Double.parseDouble(s.trim());
+	} catch (NumberFormatException e) {
+	    throw new IllegalArgumentException("Invalid " + key + ": " + s);
+	}
+    }
+
+    private int getInt(String key, int def) {
+	String s = properties.getProperty(key);
+	if (s == null) {
+	    if (def < 0) {
+		throw new IllegalArgumentException("Missing parameter: " + key);
+	    }
+	    return def;
+	}
+	try {
+	    return Integer.parseInt(s.trim());
+	} catch (NumberFormatException e) {
+	    throw new IllegalArgumentException("Invalid " + key + ": " + s);
+	}
+    }
+
+    /**
+     * @return <b>0</b>, <b>1</b> or <b>2</b>.
+     */
+    public int getDimension() {
+	return dimension;
+    }
+
+    /**
+     * @return the time step.
+     */
+    public double getDt() {
+	return dt;
+    }
+
+    /**
+     * @return the spatial step, <b>0</b> for a single cell.
+     */
+    public double getDh() {
+	return dh;
+    }
+
+    /**
+     * @return the number of grid points in x-direction.
+     */
+    public int getDimX() {
+	return dimX;
+    }
+
+    /**
+     * @return the number of grid points in y-direction.
+     */
+    public int getDimY() {
+	return dimY;
+    }
+
+    /**
+     * @return the boundary condition, see <code>{@link RDESolver}</code>.
+     */
+    public int getBoundaryCondition() {
+	return boundaryCondition;
+    }
+
+    /**
+     * @return <i>5point</i>, <i>9point</i> or <i>anisotropic</i>.
+     */
+    public String getLaplacian() {
+	return laplacian;
+    }
+
+    /**
+     * @return the angle of the fibers in degrees for the anisotropic
+     *         laplacian.
+     */
+    public double getFiberAngle() {
+	return fiberAngle;
+    }
+
+    /**
+     * @return the ratio of the diffusion across and along the fibers.
+     */
+    public double getFiberRatio() {
+	return fiberRatio;
+    }
+
+    /**
+     * @return the file of the <code>{@link Geometry}</code> or
+     *         <code>null</code> for a rectangle.
+     */
+    public String getGeometry() {
+	return geometry;
+    }
+
+    /**
+     * @return <code>true</code> for sparse storage.
+     */
+    public boolean isSparse() {
+	return sparse;
+    }
+
+    /**
+     * @return <code>false</code> if only the generic kernel is used.
+     */
+    public boolean isSpecialize() {
+	return specialize;
+    }
+
+    /**
+     * @return the number of time steps calculated together.
+     */
+    public int getTimeBlock() {
+	return timeBlock;
+    }
+
+    /**
+     * @return the width of the strips of a time block.
+     */
+    public int getStripWidth() {
+	return stripWidth;
+    }
+
+    /**
+     * @return <code>true</code> if the tile size is calibrated.
+     */
+    public boolean isAutoTileSize() {
+	return autoTileSize;
+    }
+
+    /**
+     * @return the tile size, <b>0</b> for whole runs.
+     */
+    public int getTileSize() {
+	return tileSize;
+    }
+
+}
@@ -0,0 +1,307 @@
+package rdeapprox;
+
+import models.CellParameters;
+
+/**
+ * <p>
+ * The <code>{@link SparseTissue}</code> class packs the grid points of a
+ * <code>{@link Geometry}</code> into one-dimensional <code>Array</code>s which
+ * contain the tissue only. Rings, slabs and other sparse geometries therefore
+ * need memory and calculation time proportional to the number of tissue cells
+ * instead of the size of the grid.
+ *
+ * <p>
+ * The neighbours of the packed cells are stored as <i>compressed sparse
+ * rows</i> (CSR): the neighbours of cell <i>i</i> are
+ * <code>neighbours[rowStart[i]]</code> to
+ * <code>neighbours[rowStart[i + 1] - 1]</code>. Neighbours which are the cell
+ * itself (<b>noflux</b> edges) are left out since they do not contribute to the
+ * laplacian.
+ *
+ * <p>
+ * The cells are numbered in <i>reverse Cuthill-McKee</i> order, which keeps
+ * the indices of neighbouring cells close together and the calculation cache
+ * friendly.
+ *
+ * @author Mario Krapp
+ */
+public class SparseTissue {
+
+    /**
+     * The <code>{@link Geometry}</code> which has been packed.
+     */
+    private Geometry geometry;
+
+    /**
+     * The number of tissue cells.
+     */
+    private int cellCount;
+
+    /**
+     * The packed index of each cell of the <code>{@link Geometry}</code>.
+     */
+    private int[] packed;
+
+    /**
+     * The cell of the <code>{@link Geometry}</code> for each packed index.
+     */
+    private int[] cell;
+
+    /**
+     * The grid coordinates of each packed cell.
+     */
+    private int[] cellX, cellY;
+
+    /**
+     * The first entry in <code>{@link SparseTissue#neighbours}</code> for
+     * each packed cell. The last entry is the number of neighbour entries.
+     */
+    private int[] rowStart;
+
+    /**
+     * The packed indices of the neighbours of all cells.
+     */
+    private int[] neighbours;
+
+    /**
+     * The factor of the cell itself in the laplacian: the number of its
+     * neighbours plus the number of neighbours which are <b>zero</b> due to
+     * the boundary conditions.
+     */
+    private int[] degree;
+
+    /**
+     * Packs the tissue of a <code>{@link Geometry}</code> whose neighbours
+     * have been computed.
+     *
+     * @param geometry
+     *                the <code>{@link Geometry}</code>, see
+     *                <code>{@link RDESolver#setGeometry(Geometry)}</code>.
+     */
+    public SparseTissue(Geometry geometry) {
+	this.geometry = geometry;
+	cellCount = geometry.getCellCount();
+
+	// grid coordinates and neighbours of each cell of the geometry
+	int[] gx = new int[cellCount];
+	int[] gy = new int[cellCount];
+	int[] runX = geometry.getRunX();
+	int[] runY = geometry.getRunY();
+	int[] runStart = geometry.getRunStart();
+	for (int r = 0; r < runX.length; r++) {
+	    for (int c = runStart[r]; c < runStart[r + 1]; c++) {
+		gx[c] = runX[r];
+		gy[c] = runY[r] + c - runStart[r];
+	    }
+	}
+	int[] xm = geometry.getXm();
+	int[] xp = geometry.getXp();
+	int[] ym = geometry.getYm();
+	int[] yp = geometry.getYp();
+	int[] gStart = new int[cellCount + 1];
+	int[] gNeighbours = new int[4 * cellCount];
+	int n = 0;
+	for (int c = 0; c < cellCount; c++) {
+	    gStart[c] = n;
+	    n = addNeighbour(gNeighbours, n, c, geometry.getCell(xm[c], gy[c]));
+	    n = addNeighbour(gNeighbours, n, c, geometry.getCell(xp[c], gy[c]));
+	    n = addNeighbour(gNeighbours, n, c, geometry.getCell(gx[c], ym[c]));
+	    n = addNeighbour(gNeighbours, n, c, geometry.getCell(gx[c], yp[c]));
+	}
+	gStart[cellCount] = n;
+
+	// reverse Cuthill-McKee ordering
+	int[] order = cuthillMcKee(gStart, gNeighbours);
+	packed = new int[cellCount];
+	cell = new int[cellCount];
+	for (int k = 0; k < cellCount; k++) {
+	    packed[order[k]] = cellCount - 1 - k;
+	    cell[cellCount - 1 - k] = order[k];
+	}
+
+	// compressed sparse rows in packed order
+	byte[] open = geometry.getOpen();
+	cellX = new int[cellCount];
+	cellY = new int[cellCount];
+	rowStart = new int[cellCount + 1];
+	neighbours = new int[n];
+	degree = new int[cellCount];
+	n = 0;
+	for (int i = 0; i < cellCount; i++) {
+	    int c = cell[i];
+	    cellX[i] = gx[c];
+	    cellY[i] = gy[c];
+	    rowStart[i] = n;
+	    for (int k = gStart[c]; k < gStart[c + 1]; k++) {
+		neighbours[n++] = packed[gNeighbours[k]];
+	    }
+	    degree[i] = gStart[c + 1] - gStart[c] + open[c];
+	}
+	rowStart[cellCount] = n;
+    }
+
+    private int addNeighbour(int[] nb, int n, int c, int neighbour) {
+	if (neighbour != c) {
+	    nb[n++] = neighbour;
+	}
+	return n;
+    }
+
+    /**
+     * Orders the cells by a breadth first search, starting in each connected
+     * part of the tissue with a cell of minimal degree and visiting
+     * neighbours with lower degree first.
+     *
+     * @return the cells of the <code>{@link Geometry}</code> in Cuthill-McKee
+     *         order.
+     */
+    private int[] cuthillMcKee(int[] start, int[] nb) {
+	int[] order = new int[cellCount];
+	boolean[] visited = new boolean[cellCount];
+	// all cells sorted by degree, as candidates to start from
+	int[] byDegree = new int[cellCount];
+	int k = 0;
+	for (int d = 0; d <= 4; d++) {
+	    for (int c = 0; c < cellCount; c++) {
+		if (start[c + 1] - start[c] == d) {
+		    byDegree[k++] = c;
+		}
+	    }
+	}
+	int next = 0;
+	int head = 0;
+	int tail = 0;
+	while (tail < cellCount) {
+	    // start of the next connected part
+	    while (visited[byDegree[next]]) {
+		next++;
+	    }
+	    int first = byDegree[next];
+	    visited[first] = true;
+	    order[tail++] = first;
+	    while (head < tail) {
+		int c = order[head++];
+		int from = tail;
+		for (k = start[c]; k < start[c + 1]; k++) {
+		    if (!visited[nb[k]]) {
+			visited[nb[k]] = true;
+			order[tail++] = nb[k];
+		    }
+		}
+		// sort new cells by degree (at most four of them)
+		for (int i = from + 1; i < tail; i++) {
+		    int v = order[i];
+		    int j = i - 1;
+		    while (j >= from
+			    && start[order[j] + 1] - start[order[j]] > start[v + 1]
+				    - start[v]) {
+			order[j + 1] = order[j];
+			j--;
+		    }
+		    order[j + 1] = v;
+		}
+	    }
+	}
+	return order;
+    }
+
+    /**
+     * Packs the tissue cells of a grid.
+     *
+     * @param grid
+     *                the values of one variable on the grid.
+     * @return the packed values.
+     */
+    public double[] pack(double[][] grid) {
+	double[] ret = new double[cellCount];
+	for (int i = 0; i < cellCount; i++) {
+	    ret[i] = grid[cellX[i]][cellY[i]];
+	}
+	return ret;
+    }
+
+    /**
+     * Packs <code>{@link CellParameters}</code> of the grid into
+     * <code>{@link CellParameters}</code> with one row of packed cells.
+     *
+     * @param cp
+     *                the parameters of the grid.
+     * @return the packed parameters.
+     */
+    public CellParameters pack(CellParameters cp) {
+	CellParameters ret = new CellParameters(1, cellCount);
+	byte[][] type = cp.getCellType();
+	for (int i = 0; i < cellCount; i++) {
+	    ret.getCellType()[0][i] = type[cellX[i]][cellY[i]];
+	}
+	ret.getDiffusionScale()[0] = pack(cp.getDiffusionScale());
+	for (int g = 0; g < cp.getConductanceCount(); g++) {
+	    ret.getConductance(g)[0] = pack(cp.getConductance(g));
+	}
+	return ret;
+    }
+
+    /**
+     * @param x
+     *                x-coordinate of the grid point.
+     * @param y
+     *                y-coordinate of the grid point.
+     * @return the packed index of the grid point or <b>-1</b> if it does not
+     *         belong to the tissue.
+     */
+    public int index(int x, int y) {
+	int c = geometry.getCell(x, y);
+	return c < 0 ? -1 : packed[c];
+    }
+
+    /**
+     * @return the number of tissue cells.
+     */
+    public int getCellCount() {
+	return cellCount;
+    }
+
+    /**
+     * @return the number of each packed cell in the
+     *         <code>{@link Geometry}</code>.
+     */
+    public int[] getCells() {
+	return cell;
+    }
+
+    /**
+     * @return the x-coordinate of each packed cell.
+     */
+    public int[] getCellX() {
+	return cellX;
+    }
+
+    /**
+     * @return the y-coordinate of each packed cell.
+     */
+    public int[] getCellY() {
+	return cellY;
+    }
+
+    /**
+     * @return the first neighbour entry of each packed cell.
+     */
+    public int[] getRowStart() {
+	return rowStart;
+    }
+
+    /**
+     * @return the packed indices of the neighbours.
+     */
+    public int[] getNeighbours() {
+	return neighbours;
+    }
+
+    /**
+     * @return the factor of each cell itself in the laplacian.
+     */
+    public int[] getDegree() {
+	return degree;
+    }
+
+}
@@ -0,0 +1,212 @@
+package rdeapprox;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import models.CellParameters;
+import models.RDEModel;
+
+/**
+ * <p>
+ * Calculates the state of a paced single cell once and stores it in the
+ * directory <i>.rdesolver-states</i> in the home directory. A file belongs to
+ * the class of the model, a hash of its parameters and the basic cycle
+ * length, i.e. <i>BeelerReuterModel.&lt;hash&gt;.bcl1000.0.bin</i>, and
+ * contains the protocol and the values in binary form. Resting states are not
+ * cached, <code>{@link RestingState}</code> finds them in a few steps.
+ *
+ * <p>
+ * The parameters are all numerical fields of the model, static or not, and
+ * the <code>{@link CellParameters}</code> of grid point <i>(0,0)</i>. A
+ * model which is changed or compiled from a different specification gets a
+ * new hash, so the cache never has to be cleared by hand.
+ *
+ * @author Mario Krapp
+ */
+public class SteadyStateCache {
+
+    private static Logger logger = Logger.getLogger(SteadyStateCache.class
+	    .getName());
+
+    private static final File DIRECTORY = new File(System
+	    .getProperty("user.home"), ".rdesolver-states");
+
+    /**
+     * Returns the state of a single cell just before the next stimulus, after
+     * it was paced from <code>rest</code>.
+     *
+     * @param model
+     *                the model.
+     * @param rest
+     *                the values before the first stimulus.
+     * @param bcl
+     *                the basic cycle length.
+     * @param beats
+     *                the number of stimuli.
+     * @param duration
+     *                the duration of each stimulus, <b>0</b> for kicks.
+     * @param amplitude
+     *                the kick or the current during each stimulus.
+     * @return the paced state.
+     *
+     * @see CellEngine#pace(double, double, int, double, double)
+     */
+    public static double[] pacedState(RDEModel model, double[] rest,
+	    double bcl, int beats, double duration, double amplitude) {
+	File file = file(model, "bcl" + bcl);
+	double[] state = load(file, beats, duration, amplitude, model
+		.getFieldCount());
+	if (state != null) {
+	    return state;
+	}
+	CellEngine engine = new CellEngine(model, rest);
+	engine.pace(0, bcl, beats, duration, amplitude);
+	engine.integrate(beats * bcl);
+	state = engine.getState().clone();
+	store(file, beats, duration, amplitude, state);
+	logger.info("Paced " + beats + " beats with " + bcl + " in "
+		+ engine.getStepCount() + " steps");
+	return state;
+    }
+
+    /**
+     * Sets the same values at all grid points.
+     *
+     * @param rde
+     *                the solver.
+     * @param state
+     *                the values of all variables.
+     */
+    public static void warmStart(RDESolver rde, double[] state) {
+	InitCondition ic = new InitCondition(rde);
+	for (int f = 0; f < state.length; f++) {
+	    ic.steadyState(f, state[f]);
+	}
+    }
+
+    private static File file(RDEModel model, String suffix) {
+	return new File(DIRECTORY, model.getClass().getSimpleName() + "."
+		+ parameterHash(model) + "." + suffix + ".bin");
+    }
+
+    /**
+     * @return a hash of all numerical fields of the model and of its
+     *         <code>{@link CellParameters}</code> at grid point <i>(0,0)</i>.
+     */
+    static String parameterHash(RDEModel model) {
+	StringBuilder sb = new StringBuilder(model.getClass().getName());
+	for (Class<?> c = model.getClass(); c != Object.class; c = c
+		.getSuperclass()) {
+	    for (Field field : c.getDeclaredFields()) {
+		Class<?> type = field.getType();
+		if (!type.isPrimitive() && type != double[].class
+			&& type != int[].class) {
+		    continue;
+		}
+		try {
+		    field.setAccessible(true);
+		    Object value = field.get(Modifier.isStatic(field
+			    .getModifiers()) ? null : model);
+		    if (value instanceof double[]) {
+			value = Arrays.toString((double[]) value);
+		    } else if (value instanceof int[]) {
+			value = Arrays.toString((int[]) value);
+		    }
+		    sb.append(";" + field.getName() + "=" + value);
+		} catch (Exception e) {
+		    // not accessible, i.e. a field of the JDK
+		}
+	    }
+	}
+	CellParameters cp = model.getCellParameters();
+	if (cp != null) {
+	    sb.append(";type=" + cp.getCellType()[0][0]);
+	    for (int i = 0; i < cp.getConductanceCount(); i++) {
+		sb.append(";g" + i + "=" + cp.getConductance(i)[0][0]);
+	    }
+	}
+	try {
+	    byte[] digest = MessageDigest.getInstance("SHA-1").digest(
+		    sb.toString().getBytes("UTF-8"));
+	    StringBuilder hex = new StringBuilder();
+	    for (int i = 0; i < 8; i++) {
+		hex.append(String.format("%02x", digest[i]));
+	    }
+	    return hex.toString();
+	} catch (NoSuchAlgorithmException e) {
+	    throw new IllegalStateException(e);
+	} catch (IOException e) {
+	    throw new IllegalStateException(e);
+	}
+    }
+
+    /**
+     * @return the cached values or <code>null</code> if there are none for
+     *         the protocol.
+     */
+    private static double[] load(File file, int beats, double duration,
+	    double amplitude, int n) {
+	if (!file.exists()) {
+	    return null;
+	}
+	try {
+	    DataInputStream in = new DataInputStream(new FileInputStream(file));
+	    try {
+		if (in.readInt() != beats || in.readDouble() != duration
+			|| in.readDouble() != amplitude || in.readInt() != n) {
+		    return null;
+		}
+		double[] state = new double[n];
+		for (int f = 0; f < n; f++) {
+		    state[f] = in.readDouble();
+		}
+		return state;
+	    } finally {
+		in.close();
+	    }
+	} catch (IOException e) {
+	    logger.warning("Could not read " + file + ": " + e);
+	    return null;
+	}
+    }
+
+    private static void store(File file, int beats, double duration,
+	    double amplitude, double[] state) {
+	try {
+	    DIRECTORY.mkdirs();
+	    // write a new file first, so parallel runs never read half a file
+	    File tmp = File.createTempFile(file.getName(), ".tmp", DIRECTORY);
+	    DataOutputStream out = new DataOutputStream(new FileOutputStream(
+		    tmp));
+	    try {
+		out.writeInt(beats);
+		out.writeDouble(duration);
+		out.writeDouble(amplitude);
+		out.writeInt(state.length);
+		for (double v : state) {
+		    out.writeDouble(v);
+		}
+	    } finally {
+		out.close();
+	    }
+	    Files.move(tmp.toPath(), file.toPath(),
+		    StandardCopyOption.REPLACE_EXISTING,
+		    StandardCopyOption.ATOMIC_MOVE);
+	} catch (IOException e) {
+	    logger.warning("Could not write " + file + ": " + e);
+	}
+    }
+
+}
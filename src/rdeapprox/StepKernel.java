@@ -0,0 +1,46 @@
+package rdeapprox;
+
+/**
+ * <p>
+ * A <code>{@link StepKernel}</code> calculates one Euler forward time step for
+ * a run of consecutive grid points. The <code>{@link RDESolver}</code> selects
+ * the kernel once for its model, <code>{@link DiffusionOperator}</code> and
+ * storage, so the calls inside a kernel always reach the same classes and can
+ * be inlined by the JIT.
+ *
+ * <p>
+ * Implemented kernels are
+ * <ul>
+ * <li><code>{@link GenericKernel}</code> for all models and operators and</li>
+ * <li><code>{@link OregonatorKernel}</code>, which fuses the five point
+ * laplacian and the reaction terms into a single scalar loop.</li>
+ * </ul>
+ * All kernels give identical results.
+ *
+ * @author Mario Krapp
+ */
+public interface StepKernel {
+
+    /**
+     * Calculates the new values of all variables for the grid points
+     * <i>(x,y)</i> to <i>(x,y+to-from-1)</i>, which are numbered
+     * <code>from</code> to <code>to - 1</code> in the
+     * <code>{@link Geometry}</code>.
+     *
+     * @param in
+     *                the old values of all variables.
+     * @param out
+     *                the new values of all variables.
+     * @param x
+     *                x-coordinate of the grid points.
+     * @param y
+     *                y-coordinate of the first grid point.
+     * @param from
+     *                number of the first grid point.
+     * @param to
+     *                number of the first grid point which is not calculated.
+     */
+    public void step(double[][][] in, double[][][] out, int x, int y,
+	    int from, int to);
+
+}
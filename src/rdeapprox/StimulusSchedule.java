@@ -0,0 +1,273 @@
+package rdeapprox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * A schedule of stimuli of the first variable. Each stimulus is a spatial
+ * mask, an amplitude and a time window, which may be repeated as a train
+ * with a period, i.e. the <i>bcl</i> of a pacing protocol. A stimulus with
+ * the duration <b>0</b> is a kick which adds the amplitude to the first
+ * variable within one time step, otherwise the amplitude is a current which
+ * is added to the time derivative during the window.
+ *
+ * <p>
+ * The schedule is compiled by
+ * <code>{@link RDESolver#setStimulusSchedule(StimulusSchedule)}</code> into
+ * time steps and the layout of the grid. For each time step only the
+ * stimuli are checked, and the sum of the masks of the active stimuli is
+ * added to the new values of every run without a condition per grid point.
+ * The sums of the last few combinations of several stimuli are kept, so they
+ * are not calculated again in every time step. Stimuli therefore work with
+ * <code>{@link RDESolver#nextTimeSteps(int)}</code>, time blocks and sparse
+ * storage.
+ *
+ * @author Mario Krapp
+ */
+public class StimulusSchedule {
+
+    /**
+     * The maximal number of stimuli, one bit of the active combination each.
+     */
+    private static final int MAX_STIMULI = 64;
+
+    private List<Stimulus> stimuli = new ArrayList<Stimulus>();
+
+    /**
+     * Adds a stimulus.
+     *
+     * @param mask
+     *                the weight of the stimulus at each grid point
+     *                <i>[x][y]</i>, <b>0</b> outside of the stimulated
+     *                region.
+     * @param amplitude
+     *                the kick or the current.
+     * @param start
+     *                the time of the first pulse.
+     * @param duration
+     *                the duration of a pulse, <b>0</b> for a kick.
+     * @param period
+     *                the time between two pulses, <b>0</b> for a single
+     *                pulse.
+     * @param count
+     *                the number of pulses, <b>0</b> for an infinite train.
+     */
+    public void add(double[][] mask, double amplitude, double start,
+	    double duration, double period, int count) {
+	if (stimuli.size() == MAX_STIMULI) {
+	    throw new IllegalStateException("More than " + MAX_STIMULI
+		    + " stimuli");
+	}
+	if (start < 0 || duration < 0 || period < 0 || count < 0
+		|| (period > 0 && duration > period)) {
+	    throw new IllegalArgumentException("Invalid time window: start "
+		    + start + ", duration " + duration + ", period " + period
+		    + ", count " + count);
+	}
+	stimuli.add(new Stimulus(mask, amplitude, start, duration, period,
+		count));
+    }
+
+    /**
+     * Adds a stimulus of the grid points <i>(x0,y0)</i> to
+     * <i>(x1-1,y1-1)</i>, see
+     * <code>{@link StimulusSchedule#add(double[][], double, double, double, double, int)}</code>.
+     *
+     * @param dimX
+     *                the number of grid points in x-direction.
+     * @param dimY
+     *                the number of grid points in y-direction.
+     */
+    public void addRectangle(int dimX, int dimY, int x0, int x1, int y0,
+	    int y1, double amplitude, double start, double duration,
+	    double period, int count) {
+	double[][] mask = new double[dimX][dimY];
+	for (int x = Math.max(x0, 0); x < Math.min(x1, dimX); x++) {
+	    for (int y = Math.max(y0, 0); y < Math.min(y1, dimY); y++) {
+		mask[x][y] = 1;
+	    }
+	}
+	add(mask, amplitude, start, duration, period, count);
+    }
+
+    /**
+     * @return the number of stimuli.
+     */
+    public int size() {
+	return stimuli.size();
+    }
+
+    /**
+     * Compiles the schedule for a solver.
+     *
+     * @param sparse
+     *                the packed tissue or <code>null</code> for the grid.
+     */
+    Compiled compile(double dt, int dimX, int dimY, SparseTissue sparse) {
+	return new Compiled(dt, dimX, dimY, sparse);
+    }
+
+    private static class Stimulus {
+
+	private final double[][] mask;
+
+	private final double amplitude;
+
+	private final double start;
+
+	private final double duration;
+
+	private final double period;
+
+	private final int count;
+
+	Stimulus(double[][] mask, double amplitude, double start,
+		double duration, double period, int count) {
+	    this.mask = mask;
+	    this.amplitude = amplitude;
+	    this.start = start;
+	    this.duration = duration;
+	    this.period = period;
+	    this.count = count;
+	}
+
+    }
+
+    /**
+     * The schedule in time steps. The masks are scaled by the amplitudes and
+     * stored in the layout of the solver.
+     */
+    class Compiled {
+
+	private final int n;
+
+	private final long[] start;
+
+	private final long[] duration;
+
+	private final long[] period;
+
+	private final long[] count;
+
+	private final double[][][] current;
+
+	/**
+	 * The number of kept sums of combinations of several active stimuli.
+	 */
+	private static final int CACHED = 8;
+
+	/**
+	 * The combinations of the kept sums, <b>0</b> for none.
+	 */
+	private final long[] combinations = new long[CACHED];
+
+	private final double[][][] sums = new double[CACHED][][];
+
+	/**
+	 * The next kept sum which is replaced.
+	 */
+	private int oldest;
+
+	private Compiled(double dt, int dimX, int dimY, SparseTissue sparse) {
+	    n = stimuli.size();
+	    start = new long[n];
+	    duration = new long[n];
+	    period = new long[n];
+	    count = new long[n];
+	    current = new double[n][][];
+	    for (int i = 0; i < n; i++) {
+		Stimulus s = stimuli.get(i);
+		if (s.mask.length != dimX || s.mask[0].length != dimY) {
+		    throw new IllegalArgumentException("Mask of size "
+			    + s.mask.length + "x" + s.mask[0].length
+			    + " does not match grid of size " + dimX + "x"
+			    + dimY);
+		}
+		start[i] = Math.round(s.start / dt);
+		duration[i] = Math.max(1, Math.round(s.duration / dt));
+		period[i] = Math.round(s.period / dt);
+		count[i] = s.count == 0 ? Long.MAX_VALUE : s.count;
+		// a kick is a current during one time step
+		double a = s.duration == 0 ? s.amplitude / dt : s.amplitude;
+		double[][] c = new double[dimX][dimY];
+		for (int x = 0; x < dimX; x++) {
+		    for (int y = 0; y < dimY; y++) {
+			c[x][y] = a * s.mask[x][y];
+		    }
+		}
+		current[i] = sparse != null ? new double[][] { sparse.pack(c) }
+			: c;
+	    }
+	}
+
+	/**
+	 * @return the schedule which was compiled.
+	 */
+	StimulusSchedule getSchedule() {
+	    return StimulusSchedule.this;
+	}
+
+	/**
+	 * @param step
+	 *                the number of the time step.
+	 * @return the current of the time step in the layout of the solver or
+	 *         <code>null</code> if no stimulus is active. It is only valid
+	 *         until the next call.
+	 */
+	double[][] current(long step) {
+	    long active = 0;
+	    for (int i = 0; i < n; i++) {
+		long d = step - start[i];
+		if (d < 0) {
+		    continue;
+		}
+		if (period[i] > 0) {
+		    if (d / period[i] >= count[i]) {
+			continue;
+		    }
+		    d %= period[i];
+		}
+		if (d < duration[i]) {
+		    active |= 1L << i;
+		}
+	    }
+	    if (active == 0) {
+		return null;
+	    }
+	    if ((active & (active - 1)) == 0) {
+		// a single stimulus needs no sum
+		return current[Long.numberOfTrailingZeros(active)];
+	    }
+	    for (int c = 0; c < CACHED; c++) {
+		if (combinations[c] == active) {
+		    return sums[c];
+		}
+	    }
+	    int c = oldest;
+	    oldest = (oldest + 1) % CACHED;
+	    double[][] sum = sums[c];
+	    if (sum == null) {
+		sum = sums[c] = new double[current[0].length][current[0][0].length];
+	    } else {
+		for (double[] row : sum) {
+		    Arrays.fill(row, 0);
+		}
+	    }
+	    for (int i = 0; i < n; i++) {
+		if ((active & (1L << i)) != 0) {
+		    for (int x = 0; x < sum.length; x++) {
+			for (int y = 0; y < sum[x].length; y++) {
+			    sum[x][y] += current[i][x][y];
+			}
+		    }
+		}
+	    }
+	    combinations[c] = active;
+	    return sum;
+	}
+
+    }
+
+}
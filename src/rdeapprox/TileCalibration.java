@@ -0,0 +1,106 @@
+package rdeapprox;
+
+import static utils.PropertiesManager.loadProperties;
+import static utils.PropertiesManager.storeProperties;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ * Chooses the tile size of an <code>{@link RDESolver}</code> by timing a few
+ * time steps with different tile sizes. The result depends on the caches of
+ * the machine, so it is stored per host, model and grid size in the file
+ * <i>.rdesolver-tiles</i> in the home directory and only measured once.
+ *
+ * <p>
+ * The data and the number of time steps of the solver are restored after
+ * the calibration, so stimuli start at the same time steps.
+ *
+ * @author Mario Krapp
+ */
+class TileCalibration {
+
+    private static Logger logger = Logger.getLogger(TileCalibration.class
+	    .getName());
+
+    private static final String CACHE_FILE = System.getProperty("user.home")
+	    + File.separator + ".rdesolver-tiles";
+
+    /**
+     * The tile sizes which are timed, <b>0</b> are whole runs of the
+     * <code>{@link Geometry}</code>.
+     */
+    private static final int[] CANDIDATES = { 0, 16, 32, 64, 128, 256 };
+
+    /**
+     * The number of grid point updates which are timed for each tile size.
+     */
+    private static final int WORK = 4000000;
+
+    /**
+     * Returns the tile size for an <code>{@link RDESolver}</code>, either from
+     * the cache or by timing it.
+     *
+     * @param rde
+     *                the solver.
+     * @return the fastest tile size.
+     */
+    static int tileSize(RDESolver rde) {
+	String key = host() + "." + rde.getModel().getClass().getSimpleName()
+		+ "." + rde.getDimX() + "x" + rde.getDimY()
+		+ (rde.getSparseTissue() != null ? ".sparse" : "");
+	Properties cache = new File(CACHE_FILE).exists() ? loadProperties(CACHE_FILE)
+		: new Properties();
+	if (cache.getProperty(key) != null) {
+	    return Integer.parseInt(cache.getProperty(key));
+	}
+	int best = calibrate(rde);
+	cache.setProperty(key, String.valueOf(best));
+	storeProperties(cache, CACHE_FILE);
+	logger.info("Calibrated tile size " + best + " for " + key);
+	return best;
+    }
+
+    private static int calibrate(RDESolver rde) {
+	double[][][][] saved = rde.saveState();
+	long stepCount = rde.getStepCount();
+	int cells = rde.getGeometry().getCellCount();
+	// an even number of steps, so the current array stays the same
+	int steps = 2 * Math.max(1, WORK / (2 * cells));
+	int best = 0;
+	long bestTime = Long.MAX_VALUE;
+	for (int size : CANDIDATES) {
+	    if (size >= rde.getDimY() && size > 0 && rde.getSparseTissue() == null) {
+		continue;
+	    }
+	    rde.setTileSize(size);
+	    // warm up
+	    rde.nextTimeStep();
+	    rde.nextTimeStep();
+	    long start = System.nanoTime();
+	    for (int i = 0; i < steps; i++) {
+		rde.nextTimeStep();
+	    }
+	    long time = System.nanoTime() - start;
+	    if (time < bestTime) {
+		bestTime = time;
+		best = size;
+	    }
+	}
+	rde.restoreState(saved);
+	rde.setStepCount(stepCount);
+	return best;
+    }
+
+    private static String host() {
+	try {
+	    return InetAddress.getLocalHost().getHostName();
+	} catch (Exception e) {
+	    return "localhost";
+	}
+    }
+
+}
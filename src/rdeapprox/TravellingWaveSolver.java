@@ -0,0 +1,308 @@
+package rdeapprox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import models.CellParameters;
+import models.RDEModel;
+
+/**
+ * <p>
+ * Finds the speed <i>c</i> and the profile of a travelling pulse of a
+ * <code>{@link RDEModel}</code> where only the first variable diffuses, with
+ * the diffusion constant <i>D</i>. In the frame <i>&xi; = x - ct</i> which
+ * moves with the pulse the equations become ordinary differential equations
+ *
+ * <pre>
+ * u' = U
+ * U' = -(f(u, y) + c U) / D
+ * y' = -g(u, y) / c
+ * </pre>
+ *
+ * as in <code>MinimalModelEpiTWS</code> for a fixed <i>c</i>. They are
+ * integrated from the resting state ahead of the pulse against the direction
+ * of <i>&xi;</i>, starting on the single unstable direction. For a wrong
+ * speed <i>u</i> leaves the pulse either upwards or below the resting state,
+ * so the speed is found by shooting: a bracket of speeds is divided into as
+ * many parts as there are processors, the speeds are integrated in parallel
+ * and the part where the outcome changes is divided again.
+ *
+ * <p>
+ * The integration uses the <code>{@link CellEngine}</code>.
+ *
+ * @author Mario Krapp
+ */
+public class TravellingWaveSolver {
+
+    /**
+     * The distance from the resting state where the integration starts.
+     */
+    private static final double DELTA = 1e-6;
+
+    private RDEModel model;
+
+    private double[] rest;
+
+    private double diffusion;
+
+    private double lower;
+
+    private double upper;
+
+    private double length = 1000;
+
+    private double tolerance = 1e-10;
+
+    private int threads;
+
+    /**
+     * Creates a new <code>{@link TravellingWaveSolver}</code> object.
+     *
+     * @param model
+     *                the model of a cell.
+     * @param rest
+     *                the resting state, see
+     *                <code>{@link RestingState}</code>.
+     * @param diffusion
+     *                the diffusion constant of the first variable.
+     */
+    public TravellingWaveSolver(RDEModel model, double[] rest,
+	    double diffusion) {
+	this.model = model;
+	if (model.getCellParameters() == null) {
+	    model.setCellParameters(new CellParameters(1, 1));
+	}
+	this.rest = rest.clone();
+	this.diffusion = diffusion;
+	double scale = Math.max(1, Math.abs(rest[0]));
+	lower = rest[0] - 1e-3 * scale;
+	upper = rest[0] + 2 * scale;
+	threads = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Sets the values of the first variable where a trajectory has left the
+     * pulse. By default they are slightly below the resting state and twice
+     * times its magnitude (at least <b>1</b>) above it.
+     *
+     * @param lower
+     *                the value below the resting state.
+     * @param upper
+     *                the value above the pulse.
+     */
+    public void setBounds(double lower, double upper) {
+	this.lower = lower;
+	this.upper = upper;
+    }
+
+    /**
+     * @param length
+     *                the largest distance from the resting state which is
+     *                integrated, by default <b>1000</b>.
+     */
+    public void setLength(double length) {
+	this.length = length;
+    }
+
+    /**
+     * @param tolerance
+     *                the width of the bracket at which the shooting stops.
+     */
+    public void setTolerance(double tolerance) {
+	this.tolerance = tolerance;
+    }
+
+    /**
+     * @param threads
+     *                the number of speeds integrated in parallel.
+     */
+    public void setThreads(int threads) {
+	this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Finds the speed within a bracket.
+     *
+     * @param cMin
+     *                the smallest speed.
+     * @param cMax
+     *                the largest speed.
+     * @return the speed.
+     * @throws IllegalArgumentException
+     *                 if all speeds of the bracket leave the pulse in the
+     *                 same direction.
+     */
+    public double speed(double cMin, double cMax) {
+	int parts = Math.max(2, threads);
+	ExecutorService executor = Executors.newFixedThreadPool(threads);
+	try {
+	    int outMin = shoot(cMin, executor).get();
+	    int outMax = shoot(cMax, executor).get();
+	    if (outMin == outMax) {
+		throw new IllegalArgumentException("No change between the speeds "
+			+ cMin + " and " + cMax);
+	    }
+	    while (cMax - cMin > tolerance * Math.max(1, cMax)) {
+		List<Future<Integer>> outcomes = new ArrayList<Future<Integer>>();
+		double[] c = new double[parts + 1];
+		for (int i = 1; i < parts; i++) {
+		    c[i] = cMin + (cMax - cMin) * i / parts;
+		    outcomes.add(shoot(c[i], executor));
+		}
+		c[0] = cMin;
+		c[parts] = cMax;
+		int i = 1;
+		while (i < parts && outcomes.get(i - 1).get() == outMin) {
+		    i++;
+		}
+		cMin = c[i - 1];
+		cMax = c[i];
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new IllegalStateException(e);
+	} catch (ExecutionException e) {
+	    throw new IllegalStateException(e.getCause());
+	} finally {
+	    executor.shutdown();
+	}
+	return (cMin + cMax) / 2;
+    }
+
+    private Future<Integer> shoot(final double c, ExecutorService executor) {
+	return executor.submit(new Callable<Integer>() {
+	    public Integer call() {
+		return integrate(c, null, 0);
+	    }
+	});
+    }
+
+    /**
+     * Calculates the profile of the pulse for a speed, from the resting state
+     * until <i>u</i> leaves the pulse.
+     *
+     * @param c
+     *                the speed.
+     * @param step
+     *                the distance between the rows.
+     * @return the rows <i>&xi;, u, U, y...</i> with <i>&xi; = 0</i> at the
+     *         resting state and negative behind it.
+     */
+    public double[][] profile(double c, double step) {
+	List<double[]> rows = new ArrayList<double[]>();
+	integrate(c, rows, step);
+	return rows.toArray(new double[rows.size()][]);
+    }
+
+    /**
+     * Integrates the co-moving equations for a speed.
+     *
+     * @return <b>1</b> if <i>u</i> leaves upwards, <b>-1</b> below the
+     *         resting state and <b>0</b> if it does not leave within
+     *         <code>{@link TravellingWaveSolver#length}</code>.
+     */
+    private int integrate(double c, List<double[]> rows, double step) {
+	RDEModel cell = new CoMoving(model, diffusion, c);
+	int n = rest.length;
+	// the decaying solution ahead of the pulse, u ~ exp(lambda xi)
+	double fu = derivative();
+	double lambda = (-c - Math.sqrt(c * c - 4 * diffusion * fu))
+		/ (2 * diffusion);
+	double[] z = new double[n + 1];
+	z[0] = rest[0] + DELTA;
+	z[1] = lambda * DELTA;
+	for (int i = 1; i < n; i++) {
+	    z[i + 1] = rest[i];
+	}
+	CellEngine engine = new CellEngine(cell, z);
+	engine.setTolerances(1e-6, 1e-9);
+	engine.addThreshold(0, lower);
+	engine.addThreshold(0, upper);
+	double s = 0;
+	double chunk = step > 0 ? step : length / 100;
+	try {
+	    while (s < length) {
+		if (rows != null) {
+		    double[] row = new double[n + 2];
+		    row[0] = -s;
+		    System.arraycopy(engine.getState(), 0, row, 1, n + 1);
+		    rows.add(row);
+		}
+		s += chunk;
+		engine.integrate(s);
+		if (!engine.getCrossings().isEmpty()) {
+		    return engine.getCrossings().get(0).rising ? 1 : -1;
+		}
+	    }
+	} catch (IllegalStateException e) {
+	    // the solution diverges
+	    return engine.getValue(0) > rest[0] ? 1 : -1;
+	}
+	return 0;
+    }
+
+    /**
+     * @return the derivative of the first equation by the first variable at
+     *         the resting state.
+     */
+    private double derivative() {
+	int n = rest.length;
+	double[][][] data = new double[n][1][1];
+	for (int i = 0; i < n; i++) {
+	    data[i][0][0] = rest[i];
+	}
+	double h = Math.sqrt(Math.ulp(1.0)) * Math.max(Math.abs(rest[0]), 1e-3);
+	double f0 = model.function(data, 0, 0)[0];
+	data[0][0][0] += h;
+	return (model.function(data, 0, 0)[0] - f0) / h;
+    }
+
+    /**
+     * The co-moving equations as a <code>{@link RDEModel}</code> of the
+     * distance <i>s = -&xi;</i> behind the resting state. The variables are
+     * <i>u, U = du/d&xi;</i> and the other variables of the cell.
+     */
+    private static class CoMoving extends RDEModel {
+
+	private RDEModel cell;
+
+	private double diffusion;
+
+	private double c;
+
+	private double[][][] view;
+
+	CoMoving(RDEModel cell, double diffusion, double c) {
+	    super(cell.getFieldCount() + 1, new double[cell.getFieldCount() + 1]);
+	    this.cell = cell;
+	    this.diffusion = diffusion;
+	    this.c = c;
+	    view = new double[cell.getFieldCount()][1][1];
+	}
+
+	@Override
+	public double[] function(double[][][] data, int x, int y) {
+	    int n = cell.getFieldCount();
+	    view[0][0][0] = data[0][x][y];
+	    for (int i = 1; i < n; i++) {
+		view[i][0][0] = data[i + 1][x][y];
+	    }
+	    double[] f = cell.function(view, 0, 0);
+	    double U = data[1][x][y];
+	    double[] ret = new double[n + 1];
+	    ret[0] = -U;
+	    ret[1] = (f[0] + c * U) / diffusion;
+	    for (int i = 1; i < n; i++) {
+		ret[i + 1] = f[i] / c;
+	    }
+	    return ret;
+	}
+
+    }
+
+}
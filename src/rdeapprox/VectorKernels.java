@@ -0,0 +1,200 @@
+package rdeapprox;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * <p>
+ * Kernels for consecutive grid points written with the vector API of
+ * <i>jdk.incubator.vector</i>. Each kernel calculates exactly the same
+ * operations in the same order as the scalar loop it replaces, so the results
+ * do not depend on whether the vector kernels are used. Grid points which do
+ * not fill a whole vector are calculated by the scalar loop.
+ *
+ * <p>
+ * This class must only be used if <code>{@link Simd#ENABLED}</code> is
+ * <code>true</code>, otherwise it can not be loaded.
+ *
+ * @author Mario Krapp
+ */
+public class VectorKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorKernels() {
+    }
+
+    /**
+     * The Euler forward step
+     * <i>act = old + dt (diffCoeff scale laplace + react)</i> for the grid
+     * points <i>y</i> to <i>y+n-1</i> of a row.
+     * 
+     * @param old
+     *                the old values of the row.
+     * @param act
+     *                the new values of the row.
+     * @param y
+     *                the first y-coordinate.
+     * @param n
+     *                the number of grid points.
+     * @param laplace
+     *                the laplacian of the grid points, starting at index
+     *                <b>0</b>.
+     * @param react
+     *                the reaction terms of the grid points, starting at index
+     *                <b>0</b>.
+     * @param scale
+     *                the scaling factors of the diffusion constant of the
+     *                row.
+     * @param diffCoeff
+     *                the diffusion constant.
+     * @param dt
+     *                the time step.
+     */
+    public static void update(double[] old, double[] act, int y, int n,
+	    double[] laplace, double[] react, double[] scale, double diffCoeff,
+	    double dt) {
+	int k = 0;
+	for (; k < SPECIES.loopBound(n); k += SPECIES.length()) {
+	    DoubleVector diff = DoubleVector.fromArray(SPECIES, scale, y + k)
+		    .mul(diffCoeff).mul(
+			    DoubleVector.fromArray(SPECIES, laplace, k));
+	    DoubleVector rhs = diff.add(DoubleVector.fromArray(SPECIES, react,
+		    k));
+	    DoubleVector.fromArray(SPECIES, old, y + k).add(rhs.mul(dt))
+		    .intoArray(act, y + k);
+	}
+	for (; k < n; k++) {
+	    act[y + k] = old[y + k] + dt
+		    * (diffCoeff * scale[y + k] * laplace[k] + react[k]);
+	}
+    }
+
+    /**
+     * The five point laplacian for grid points whose neighbours are all
+     * inside the grid and belong to the tissue.
+     * 
+     * @param u
+     *                the values of one variable.
+     * @param x
+     *                x-coordinate of the grid points.
+     * @param y
+     *                y-coordinate of the first grid point.
+     * @param n
+     *                the number of grid points.
+     * @param h2
+     *                the square of the spatial step.
+     * @param out
+     *                the laplacians.
+     * @param offset
+     *                index of the first grid point in <code>out</code>.
+     */
+    public static void laplace(double[][] u, int x, int y, int n, double h2,
+	    double[] out, int offset) {
+	double[] um = u[x - 1];
+	double[] ux = u[x];
+	double[] up = u[x + 1];
+	int k = 0;
+	for (; k < SPECIES.loopBound(n); k += SPECIES.length()) {
+	    int i = y + k;
+	    DoubleVector c = DoubleVector.fromArray(SPECIES, ux, i);
+	    DoubleVector.fromArray(SPECIES, um, i)
+		    .add(DoubleVector.fromArray(SPECIES, up, i))
+		    .add(DoubleVector.fromArray(SPECIES, ux, i - 1))
+		    .add(DoubleVector.fromArray(SPECIES, ux, i + 1))
+		    .sub(c.mul(4)).div(h2).intoArray(out, offset + k);
+	}
+	for (; k < n; k++) {
+	    int i = y + k;
+	    out[offset + k] = (um[i] + up[i] + ux[i - 1] + ux[i + 1] - 4 * ux[i])
+		    / h2;
+	}
+    }
+
+    /**
+     * The reaction terms of the <code>FitzHughNagumoModel</code>.
+     * 
+     * @param v
+     *                the row of the activator.
+     * @param w
+     *                the row of the inhibitor.
+     * @param y
+     *                the first y-coordinate.
+     * @param n
+     *                the number of grid points.
+     * @param a
+     *                threshold parameter.
+     * @param b
+     *                recovery parameter.
+     * @param eps
+     *                time scale of the inhibitor.
+     * @param iExt
+     *                external current.
+     * @param dv
+     *                the reaction terms of the activator.
+     * @param dw
+     *                the reaction terms of the inhibitor.
+     */
+    public static void fitzHughNagumo(double[] v, double[] w, int y, int n,
+	    double a, double b, double eps, double iExt, double[] dv,
+	    double[] dw) {
+	int k = 0;
+	for (; k < SPECIES.loopBound(n); k += SPECIES.length()) {
+	    DoubleVector vv = DoubleVector.fromArray(SPECIES, v, y + k);
+	    DoubleVector ww = DoubleVector.fromArray(SPECIES, w, y + k);
+	    vv.neg().mul(vv.sub(1)).mul(vv.sub(a)).sub(ww).add(iExt)
+		    .intoArray(dv, k);
+	    vv.sub(ww.mul(b)).mul(eps).intoArray(dw, k);
+	}
+	for (; k < n; k++) {
+	    double vk = v[y + k];
+	    double wk = w[y + k];
+	    dv[k] = -vk * (vk - 1) * (vk - a) - wk + iExt;
+	    dw[k] = eps * (vk - b * wk);
+	}
+    }
+
+    /**
+     * The reaction terms of the <code>Oregonator</code>.
+     * 
+     * @param u
+     *                the row of the activator.
+     * @param v
+     *                the row of the inhibitor.
+     * @param y
+     *                the first y-coordinate.
+     * @param n
+     *                the number of grid points.
+     * @param eps
+     *                inverse time scale of the activator.
+     * @param phi
+     *                excitability parameter.
+     * @param q
+     *                scaling parameter.
+     * @param f
+     *                stoichiometric factor.
+     * @param du
+     *                the reaction terms of the activator.
+     * @param dv
+     *                the reaction terms of the inhibitor.
+     */
+    public static void oregonator(double[] u, double[] v, int y, int n,
+	    double eps, double phi, double q, double f, double[] du, double[] dv) {
+	int k = 0;
+	for (; k < SPECIES.loopBound(n); k += SPECIES.length()) {
+	    DoubleVector uu = DoubleVector.fromArray(SPECIES, u, y + k);
+	    DoubleVector vv = DoubleVector.fromArray(SPECIES, v, y + k);
+	    DoubleVector frac = vv.mul(f).add(phi).mul(uu.sub(q)).div(
+		    uu.add(q));
+	    uu.sub(uu.mul(uu)).sub(frac).mul(eps).intoArray(du, k);
+	    uu.sub(vv).intoArray(dv, k);
+	}
+	for (; k < n; k++) {
+	    double uk = u[y + k];
+	    double vk = v[y + k];
+	    du[k] = eps * (uk - (uk * uk) - (f * vk + phi) * (uk - q) / (uk + q));
+	    dv[k] = uk - vk;
+	}
+    }
+
+}